@@ -0,0 +1,93 @@
+#!/bin/bash
+# Compares cold start of the plain fat jar against the AOT + CDS build produced by `mvn -Pcds package`.
+#
+# usage: startup-benchmark.sh <fat jar> <cds directory> <cds application jar>
+#
+# For each variant the app is started BENCH_RUNS times and we record:
+#   started  - "Started ... in X seconds" as reported by Spring Boot
+#   ready    - launch until /actuator/health/readiness is UP (includes the warm-up phase)
+#   first    - latency of the first GET /api/doctors once ready
+# The report is printed and written to <cds directory>/startup-report.txt.
+# Needs a reachable PostgreSQL (DB_HOST/DB_PORT or DATABASE_URL settings), otherwise it is skipped.
+
+set -u
+
+FAT_JAR=$1
+CDS_DIR=$2
+CDS_JAR=$3
+
+PORT=${BENCH_PORT:-18080}
+RUNS=${BENCH_RUNS:-3}
+TIMEOUT_SECONDS=${BENCH_TIMEOUT:-120}
+BENCH_ARGS=${BENCH_ARGS:---spring.jpa.hibernate.ddl-auto=update --spring.sql.init.mode=never}
+DB_HOST=${DB_HOST:-127.0.0.1}
+DB_PORT=${DB_PORT:-5432}
+REPORT="$CDS_DIR/startup-report.txt"
+
+if ! (exec 3<>"/dev/tcp/$DB_HOST/$DB_PORT") 2>/dev/null; then
+    echo "Startup benchmark skipped: no database at $DB_HOST:$DB_PORT"
+    exit 0
+fi
+
+now_ms() {
+    echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# Prints "<started seconds> <ready ms> <first request ms>" for one launch of the given command
+measure() {
+    local workdir=$1
+    shift
+    local log
+    log=$(mktemp)
+
+    local launched
+    launched=$(now_ms)
+    (cd "$workdir" && exec "$@" --server.port="$PORT" --logging.file.name= $BENCH_ARGS) > "$log" 2>&1 &
+    local pid=$!
+
+    local ready=""
+    while [ $(( $(now_ms) - launched )) -lt $(( TIMEOUT_SECONDS * 1000 )) ]; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            break
+        fi
+        if curl -sf "http://localhost:$PORT/actuator/health/readiness" > /dev/null 2>&1; then
+            ready=$(( $(now_ms) - launched ))
+            break
+        fi
+        sleep 0.05
+    done
+
+    local first=""
+    if [ -n "$ready" ]; then
+        first=$(curl -s -o /dev/null -w "%{time_total}" "http://localhost:$PORT/api/doctors" | awk '{ printf "%d", $1 * 1000 }')
+    fi
+    local started
+    started=$(grep -o "Started [A-Za-z]* in [0-9.]* seconds" "$log" | awk '{ print $4 }')
+
+    kill "$pid" 2>/dev/null
+    wait "$pid" 2>/dev/null
+    if [ -z "$ready" ]; then
+        echo "Launch failed, last log lines:" >&2
+        tail -20 "$log" >&2
+    fi
+    rm -f "$log"
+    echo "${started:-n/a} ${ready:-n/a} ${first:-n/a}"
+}
+
+run_variant() {
+    local name=$1
+    shift
+    for run in $(seq 1 "$RUNS"); do
+        read -r started ready first < <(measure "$@")
+        printf "%-10s run %d  started %6ss  ready %6sms  first request %5sms\n" "$name" "$run" "$started" "$ready" "$first"
+    done
+}
+
+FAT_DIR=$(dirname "$FAT_JAR")
+
+{
+    echo "Startup benchmark ($RUNS runs per variant, $(java -version 2>&1 | head -1))"
+    run_variant "fat-jar" "$FAT_DIR" java -jar "$FAT_JAR"
+    run_variant "aot+cds" "$CDS_DIR" java -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true \
+        -Dspring.main.allow-bean-definition-overriding=true -jar "$CDS_JAR"
+} | tee "$REPORT"
@@ -0,0 +1,57 @@
+package com.appointment.benchmark;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/** The getter/setter form AdminAppointmentDTO had before it became a record, for comparison. */
+public class AdminAppointmentBean {
+    private Long id;
+    private String patientFirstName;
+    private String patientLastName;
+    private String patientEmail;
+    private String doctorName;
+    private String doctorSpecialty;
+    private LocalDate appointmentDate;
+    private LocalTime appointmentTime;
+    private String status;
+
+    public AdminAppointmentBean() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getPatientFirstName() { return patientFirstName; }
+    public void setPatientFirstName(String patientFirstName) { this.patientFirstName = patientFirstName; }
+
+    public String getPatientLastName() { return patientLastName; }
+    public void setPatientLastName(String patientLastName) { this.patientLastName = patientLastName; }
+
+    public String getPatientEmail() { return patientEmail; }
+    public void setPatientEmail(String patientEmail) { this.patientEmail = patientEmail; }
+
+    public String getDoctorName() { return doctorName; }
+    public void setDoctorName(String doctorName) { this.doctorName = doctorName; }
+
+    public String getDoctorSpecialty() { return doctorSpecialty; }
+    public void setDoctorSpecialty(String doctorSpecialty) { this.doctorSpecialty = doctorSpecialty; }
+
+    public LocalDate getAppointmentDate() { return appointmentDate; }
+    public void setAppointmentDate(LocalDate appointmentDate) { this.appointmentDate = appointmentDate; }
+
+    public LocalTime getAppointmentTime() { return appointmentTime; }
+    public void setAppointmentTime(LocalTime appointmentTime) { this.appointmentTime = appointmentTime; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getPatientName() {
+        if (patientFirstName != null && patientLastName != null) {
+            return patientFirstName + " " + patientLastName;
+        } else if (patientFirstName != null) {
+            return patientFirstName;
+        } else if (patientLastName != null) {
+            return patientLastName;
+        }
+        return "Unknown Patient";
+    }
+}
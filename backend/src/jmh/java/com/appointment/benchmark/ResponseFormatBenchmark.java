@@ -0,0 +1,92 @@
+package com.appointment.benchmark;
+
+import com.appointment.dto.DoctorDTO;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The doctor catalogue, {@code elements} doctors per operation, in each format ResponseFormats serves,
+ * with the same builder settings and Blackbird. {@code write} is the server's serialization, {@code
+ * writeGzip} adds the compression {@code server.compression} applies, {@code read} is a client parsing
+ * the response. Payload size is {@code bytes} divided by the operation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseFormatBenchmark {
+
+    private static final String[] SPECIALTIES = {"Cardiology", "Dermatology", "Family Medicine", "Neurology",
+            "Orthopedics", "Pediatrics", "Psychiatry", "Radiology"};
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"1000"})
+    public int elements;
+
+    private ObjectMapper mapper;
+    private JavaType listType;
+    private List<DoctorDTO> doctors;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = switch (format) {
+            case "smile" -> Jackson2ObjectMapperBuilder.smile();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor();
+            default -> Jackson2ObjectMapperBuilder.json();
+        };
+        mapper = builder.modulesToInstall(new BlackbirdModule()).build();
+        listType = mapper.getTypeFactory().constructCollectionType(List.class, DoctorDTO.class);
+        doctors = new ArrayList<>(elements);
+        for (int i = 0; i < elements; i++) {
+            doctors.add(new DoctorDTO((long) 10_000 + i, "Dr. Doctor " + i, SPECIALTIES[i % SPECIALTIES.length],
+                    new BigDecimal("28.6139").add(BigDecimal.valueOf(i % 500, 4)),
+                    new BigDecimal("77.2090").subtract(BigDecimal.valueOf(i % 700, 4)),
+                    (100 + i) + " Main Road, Sector " + (i % 60) + ", New Delhi", "+91-98" + (10_000_000 + i),
+                    LocalDateTime.of(2025, 1, 1, 9, 0).plusMinutes(i * 37L), null));
+        }
+        payload = mapper.writerFor(listType).writeValueAsBytes(doctors);
+    }
+
+    @Benchmark
+    public void write(ByteCounter output) throws IOException {
+        mapper.writerFor(listType).writeValue(output.stream, doctors);
+    }
+
+    @Benchmark
+    public void writeGzip(ByteCounter output) throws IOException {
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output.stream, 8192)) {
+            mapper.writerFor(listType).writeValue(gzip, doctors);
+        }
+    }
+
+    @Benchmark
+    public List<DoctorDTO> read() throws IOException {
+        return mapper.readValue(payload, listType);
+    }
+}
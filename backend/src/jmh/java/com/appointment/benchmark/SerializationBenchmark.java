@@ -0,0 +1,122 @@
+package com.appointment.benchmark;
+
+import com.appointment.dto.AdminAppointmentDTO;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes the admin appointment listing, {@code elements} rows per operation, into a stream that only
+ * counts bytes.
+ * <p>
+ * {@code converter} is what Spring's message converter does with a returned list; {@code streamed} is
+ * what {@link com.appointment.config.JsonStreamWriter} does, a {@link SequenceWriter} from a cached
+ * {@link ObjectWriter}; {@code perElement} calls the cached writer once per element on one generator,
+ * as JsonStreamWriter first did. All start from a list in memory: not holding the list at all is the
+ * point of streaming and does not show up here. {@code bytes} is the output rate; run with {@code -prof gc}
+ * for the allocation per operation ({@code gc.alloc.rate.norm}, divide by {@code elements}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final String[] SPECIALTIES = {"Cardiology", "Dermatology", "General Practice", "Neurology",
+            "Orthopedics", "Pediatrics", "Psychiatry", "Radiology"};
+
+    @Param({"reflection", "blackbird"})
+    public String accessors;
+
+    @Param({"record", "bean"})
+    public String dto;
+
+    @Param({"1000"})
+    public int elements;
+
+    private ObjectMapper mapper;
+    private ObjectWriter elementWriter;
+    private List<?> rows;
+
+    @Setup
+    public void setUp() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if ("blackbird".equals(accessors)) {
+            builder.modulesToInstall(new BlackbirdModule());
+        }
+        mapper = builder.build();
+        List<AdminAppointmentDTO> records = new ArrayList<>(elements);
+        for (int i = 0; i < elements; i++) {
+            records.add(new AdminAppointmentDTO((long) 1_000_000 + i, "Patient" + i, "Lastname" + (i % 97),
+                    "patient" + i + "@example.test", "Dr. Doctor " + (i % 211), SPECIALTIES[i % SPECIALTIES.length],
+                    LocalDate.of(2026, 1, 1).plusDays(i % 365), LocalTime.of(8 + i % 9, i % 2 * 30),
+                    i % 5 == 0 ? "CANCELLED" : "BOOKED", (long) (i % 211)));
+        }
+        rows = "record".equals(dto) ? records : records.stream().map(SerializationBenchmark::bean).toList();
+        Class<?> type = "record".equals(dto) ? AdminAppointmentDTO.class : AdminAppointmentBean.class;
+        elementWriter = mapper.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Benchmark
+    public void converter(ByteCounter output) throws IOException {
+        mapper.writeValue(output.stream, rows);
+    }
+
+    @Benchmark
+    public void streamed(ByteCounter output) throws IOException {
+        try (SequenceWriter sequence = elementWriter.writeValuesAsArray(output.stream)) {
+            for (Object row : rows) {
+                sequence.write(row);
+            }
+        }
+    }
+
+    @Benchmark
+    public void perElement(ByteCounter output) throws IOException {
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(output.stream)) {
+            generator.writeStartArray();
+            for (Object row : rows) {
+                elementWriter.writeValue(generator, row);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static AdminAppointmentBean bean(AdminAppointmentDTO row) {
+        AdminAppointmentBean bean = new AdminAppointmentBean();
+        bean.setId(row.id());
+        bean.setPatientFirstName(row.patientFirstName());
+        bean.setPatientLastName(row.patientLastName());
+        bean.setPatientEmail(row.patientEmail());
+        bean.setDoctorName(row.doctorName());
+        bean.setDoctorSpecialty(row.doctorSpecialty());
+        bean.setAppointmentDate(row.appointmentDate());
+        bean.setAppointmentTime(row.appointmentTime());
+        bean.setStatus(row.status());
+        return bean;
+    }
+}
@@ -0,0 +1,30 @@
+package com.appointment.audit;
+
+/** What an audited actor did. The codes are stored in segment files and must never be reused. */
+public enum AuditAction {
+    BOOK(1),
+    VIEW(2),
+    LIST(3),
+    CANCEL(4),
+    USER_UPDATE(5),
+    USER_DELETE(6);
+
+    private final byte code;
+
+    AuditAction(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public static AuditAction fromCode(byte code) {
+        for (AuditAction action : values()) {
+            if (action.code == code) {
+                return action;
+            }
+        }
+        throw new IllegalArgumentException("Unknown audit action code " + code);
+    }
+}
@@ -0,0 +1,309 @@
+package com.appointment.audit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only audit trail of who booked, viewed, cancelled or changed what, kept in local files.
+ * <p>
+ * {@link #record} only puts the record on an {@link AuditRingBuffer}; one writer thread takes records
+ * off in batches, appends them to a memory-mapped segment file and forces the segment to disk once per
+ * batch, at most every {@code sync-interval-ms} (group commit). With {@code wait-for-sync} callers
+ * wait for that, otherwise a crash loses at most the last interval. A segment is closed when it is full
+ * or older than {@code segment-max-age-minutes}, and closed segments are loaded into the database by
+ * the {@link AuditShipper}.
+ * <p>
+ * Every node writes its own segments; file names carry a node id so shipped segments never collide.
+ */
+@Component
+public class AuditLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditLog.class);
+
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long SYNC_WAIT_PARK_NANOS = 50_000;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.audit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.audit.directory:audit}")
+    private Path directory;
+
+    @Value("${app.audit.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${app.audit.segment-max-age-minutes:60}")
+    private long segmentMaxAgeMinutes;
+
+    // Power of two; callers wait once this many records are not written yet
+    @Value("${app.audit.ring-capacity:65536}")
+    private int ringCapacity;
+
+    @Value("${app.audit.batch-size:1024}")
+    private int batchSize;
+
+    @Value("${app.audit.sync-interval-ms:10}")
+    private long syncIntervalMs;
+
+    @Value("${app.audit.wait-for-sync:false}")
+    private boolean waitForSync;
+
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private AuditRingBuffer ring;
+    private Thread writerThread;
+    private volatile boolean running;
+    // Records before this sequence are on disk
+    private volatile long durable;
+    private volatile Path activeFile;
+    private int segmentCounter;
+    private Counter writtenCounter;
+    private Counter syncCounter;
+    private Counter droppedCounter;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            if (!Files.isWritable(directory)) {
+                throw new IOException("not writable");
+            }
+        } catch (IOException e) {
+            // Losing the audit trail is bad, refusing every booking because of it is worse
+            logger.error("Audit log disabled, cannot write to {}: {}", directory.toAbsolutePath(), e.toString());
+            enabled = false;
+            return;
+        }
+        ring = new AuditRingBuffer(ringCapacity);
+        Gauge.builder("audit.pending", ring, AuditRingBuffer::size)
+                .description("Audit records waiting for the writer")
+                .register(meterRegistry);
+        FunctionCounter.builder("audit.ring.full", ring, AuditRingBuffer::fullWaits)
+                .description("Times a caller waited for room in the audit ring")
+                .register(meterRegistry);
+        writtenCounter = Counter.builder("audit.written").register(meterRegistry);
+        droppedCounter = Counter.builder("audit.dropped")
+                .description("Audit records too large for a segment")
+                .register(meterRegistry);
+        syncCounter = Counter.builder("audit.syncs").register(meterRegistry);
+
+        running = true;
+        writerThread = new Thread(this::writeLoop, "audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        if (writerThread != null) {
+            running = false;
+            writerThread.join(10_000);
+        }
+    }
+
+    /** Queues a record of {@code actor} doing {@code action} to {@code targetId}; {@code detail} may be null. */
+    public void record(AuditAction action, String actor, long targetId, String detail) {
+        if (!enabled) {
+            return;
+        }
+        long sequence = ring.publish(new AuditRecord(Instant.now(), action, actor, targetId, detail));
+        if (waitForSync) {
+            while (durable <= sequence && running) {
+                LockSupport.parkNanos(SYNC_WAIT_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Records of this node between {@code from} (inclusive) and {@code to} (exclusive), oldest first, by
+     * {@code actor} and of {@code action} if given. Reads the segment files, so it sees what the writer
+     * has taken off the ring, shipped segments included while they are kept.
+     */
+    public List<AuditRecord> query(Instant from, Instant to, String actor, AuditAction action, int limit) {
+        List<AuditRecord> matches = new ArrayList<>();
+        if (!enabled) {
+            return matches;
+        }
+        try {
+            for (Path segment : segments()) {
+                if (AuditSegment.startMillis(segment) >= to.toEpochMilli()) {
+                    break;
+                }
+                AuditSegment.scan(segment, (offset, record) -> {
+                    if (!record.occurredAt().isBefore(from) && record.occurredAt().isBefore(to)
+                            && (actor == null || actor.equals(record.actor()))
+                            && (action == null || action == record.action())) {
+                        matches.add(record);
+                    }
+                    return matches.size() < limit;
+                });
+                if (matches.size() >= limit) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read audit segments in " + directory, e);
+        }
+        return matches;
+    }
+
+    /** All segment files, shipped or not, oldest first. */
+    List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(AuditSegment::isSegment)
+                    .sorted(Comparator.comparingLong(AuditSegment::startMillis).thenComparing(Path::toString))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /** Segments that are no longer written to and not shipped yet. */
+    List<Path> closedSegments() throws IOException {
+        Path active = activeFile;
+        return segments().stream()
+                .filter(segment -> segment.toString().endsWith(AuditSegment.SUFFIX) && !segment.equals(active))
+                .collect(Collectors.toList());
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    private void writeLoop() {
+        List<AuditRecord> batch = new ArrayList<>(batchSize);
+        // Records of batch before this index are in a segment or dropped
+        int appended = 0;
+        // Records in the segment that are not forced to disk yet, oldest first
+        List<AuditRecord> unsynced = new ArrayList<>();
+        AuditSegmentWriter segment = null;
+        long segmentOpenedAt = 0;
+        long lastSync = 0;
+        while (true) {
+            try {
+                if (appended == batch.size()) {
+                    batch.clear();
+                    appended = 0;
+                    ring.drainTo(batch, batchSize);
+                }
+                long now = System.currentTimeMillis();
+                if (segment != null && now - segmentOpenedAt > segmentMaxAgeMinutes * 60_000) {
+                    close(segment);
+                    segment = null;
+                    unsynced.clear();
+                }
+                while (appended < batch.size()) {
+                    AuditRecord record = batch.get(appended);
+                    boolean written = segment != null && segment.append(record);
+                    if (!written && (segment == null || !segment.isEmpty())) {
+                        if (segment != null) {
+                            close(segment);
+                            segment = null;
+                            unsynced.clear();
+                        }
+                        segment = open(now);
+                        segmentOpenedAt = now;
+                        written = segment.append(record);
+                    }
+                    appended++;
+                    if (!written) {
+                        // Fits no segment; retrying it would stall the ring for good
+                        logger.error("Dropped audit record larger than app.audit.segment-bytes: {} by {} on {}",
+                                record.action(), record.actor(), record.targetId());
+                        droppedCounter.increment();
+                        continue;
+                    }
+                    writtenCounter.increment();
+                    unsynced.add(record);
+                }
+                if (!unsynced.isEmpty() && (batch.isEmpty() || now - lastSync >= syncIntervalMs)) {
+                    segment.force();
+                    syncCounter.increment();
+                    lastSync = now;
+                    unsynced.clear();
+                }
+                // The ring hands out records in sequence order, so everything before the unwritten and
+                // unsynced tail is on disk
+                durable = ring.consumed() - (batch.size() - appended) - unsynced.size();
+                if (batch.isEmpty()) {
+                    if (!running) {
+                        break;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (IOException | RuntimeException e) {
+                // The rest of the batch is retried in a new segment; callers wait once the ring is full
+                logger.error("Audit writer failed, retrying", e);
+                if (segment != null) {
+                    try {
+                        close(segment);
+                        unsynced.clear();
+                    } catch (IOException | RuntimeException closeFailure) {
+                        logger.error("Could not close audit segment {}", segment.file(), closeFailure);
+                    }
+                    segment = null;
+                }
+                activeFile = null;
+                if (!unsynced.isEmpty()) {
+                    // Not known to be on disk, so written again; the abandoned segment may hold them twice
+                    List<AuditRecord> retry = new ArrayList<>(unsynced);
+                    retry.addAll(batch.subList(appended, batch.size()));
+                    batch.clear();
+                    batch.addAll(retry);
+                    appended = 0;
+                    unsynced.clear();
+                }
+                LockSupport.parkNanos(1_000_000_000L);
+            }
+        }
+        if (segment != null) {
+            try {
+                close(segment);
+            } catch (IOException e) {
+                logger.error("Could not close audit segment {}", segment.file(), e);
+            }
+        }
+    }
+
+    private AuditSegmentWriter open(long now) throws IOException {
+        Path file = directory.resolve(AuditSegment.fileName(now, nodeId, ++segmentCounter));
+        AuditSegmentWriter segment = newWriter(file, now);
+        activeFile = file;
+        logger.debug("Opened audit segment {}", file);
+        return segment;
+    }
+
+    AuditSegmentWriter newWriter(Path file, long now) throws IOException {
+        return new AuditSegmentWriter(file, segmentBytes, now);
+    }
+
+    private void close(AuditSegmentWriter segment) throws IOException {
+        activeFile = null;
+        segment.close();
+    }
+}
@@ -0,0 +1,10 @@
+package com.appointment.audit;
+
+import java.time.Instant;
+
+/**
+ * One audited action: {@code actor} (an email) did {@code action} to {@code targetId}, an appointment
+ * or a user depending on the action. {@code detail} is a short free-form note, may be null.
+ */
+public record AuditRecord(Instant occurredAt, AuditAction action, String actor, long targetId, String detail) {
+}
@@ -0,0 +1,85 @@
+package com.appointment.audit;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer, single-consumer queue without locks.
+ * <p>
+ * A producer claims a sequence number with one atomic increment, waits only if the consumer is a whole
+ * ring behind, stores its record and then publishes the sequence in the slot. The consumer takes slots
+ * in sequence order for as long as they are published.
+ */
+final class AuditRingBuffer {
+
+    private static final long FULL_PARK_NANOS = 50_000;
+
+    private final int mask;
+    private final AuditRecord[] records;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong fullWaits = new AtomicLong();
+    // Written by the consumer only
+    private volatile long consumed;
+
+    AuditRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Audit ring capacity must be a power of two, got " + capacity);
+        }
+        mask = capacity - 1;
+        records = new AuditRecord[capacity];
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    /** Adds {@code record} and returns its sequence number; waits while the ring is full. */
+    long publish(AuditRecord record) {
+        long sequence = claimed.getAndIncrement();
+        if (sequence - consumed >= records.length) {
+            fullWaits.incrementAndGet();
+            while (sequence - consumed >= records.length) {
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+        }
+        int slot = (int) (sequence & mask);
+        records[slot] = record;
+        // Volatile write, makes the record visible to the consumer that reads the sequence
+        published.set(slot, sequence);
+        return sequence;
+    }
+
+    /** Moves at most {@code max} published records, in sequence order, to {@code batch}. Consumer only. */
+    int drainTo(List<AuditRecord> batch, int max) {
+        long next = consumed;
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) (next & mask);
+            if (published.get(slot) != next) {
+                break;
+            }
+            batch.add(records[slot]);
+            records[slot] = null;
+            next++;
+            drained++;
+        }
+        consumed = next;
+        return drained;
+    }
+
+    /** Sequence of the next record the consumer will take. */
+    long consumed() {
+        return consumed;
+    }
+
+    int size() {
+        return (int) Math.max(0, claimed.get() - consumed);
+    }
+
+    long fullWaits() {
+        return fullWaits.get();
+    }
+}
@@ -0,0 +1,146 @@
+package com.appointment.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.zip.CRC32;
+
+/**
+ * Layout of an audit segment file: a 16 byte header (magic, version, creation time in epoch millis) and
+ * then records back to back, each
+ * <pre>
+ * int length | long epochMillis | byte action | long targetId | short n | n bytes actor | short m | m bytes detail | int crc32
+ * </pre>
+ * where {@code length} covers the whole record and the CRC everything between length and CRC. Files are
+ * preallocated, so a length of 0 ends the records; so does a record that fails its CRC, which is what a
+ * crash in the middle of a write leaves behind.
+ */
+final class AuditSegment {
+
+    static final String SUFFIX = ".seg";
+    static final String SHIPPED_SUFFIX = ".shipped";
+
+    private static final int MAGIC = 0x41554454;
+    private static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    private static final int FIXED_RECORD_BYTES = 4 + 8 + 1 + 8 + 2 + 2 + 4;
+    private static final int MAX_ACTOR_CHARS = 320;
+    private static final int MAX_DETAIL_CHARS = 500;
+
+    private AuditSegment() {
+    }
+
+    /** Sorts by creation time, which the reader uses to skip segments started after a time range. */
+    static String fileName(long startMillis, String nodeId, int counter) {
+        return String.format("audit-%013d-%s-%06d%s", startMillis, nodeId, counter, SUFFIX);
+    }
+
+    static boolean isSegment(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith("audit-") && (name.endsWith(SUFFIX) || name.endsWith(SHIPPED_SUFFIX));
+    }
+
+    static long startMillis(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("audit-".length(), name.indexOf('-', "audit-".length())));
+    }
+
+    static void writeHeader(ByteBuffer buffer, long startMillis) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, startMillis);
+    }
+
+    /** Writes {@code record} at {@code position} and returns the bytes used, or -1 if it does not fit. */
+    static int encode(ByteBuffer buffer, int position, AuditRecord record) {
+        byte[] actor = truncate(record.actor(), MAX_ACTOR_CHARS);
+        byte[] detail = truncate(record.detail(), MAX_DETAIL_CHARS);
+        int length = FIXED_RECORD_BYTES + actor.length + detail.length;
+        // Room for the record and the zero length that ends the segment
+        if (position + length + 4 > buffer.capacity()) {
+            return -1;
+        }
+        ByteBuffer body = buffer.duplicate();
+        body.position(position + 4);
+        body.putLong(record.occurredAt().toEpochMilli());
+        body.put(record.action().getCode());
+        body.putLong(record.targetId());
+        body.putShort((short) actor.length);
+        body.put(actor);
+        body.putShort((short) detail.length);
+        body.put(detail);
+        body.putInt(crc(buffer, position + 4, length - 8));
+        // Length last, readers never see a record before its body
+        buffer.putInt(position, length);
+        return length;
+    }
+
+    /** Calls {@code visitor} with the offset and content of every intact record in {@code file}. */
+    static void scan(Path file, RecordVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not an audit segment: " + file);
+            }
+            int position = HEADER_BYTES;
+            while (position + 4 <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length < FIXED_RECORD_BYTES || position + length > buffer.capacity()) {
+                    return;
+                }
+                if (crc(buffer, position + 4, length - 8) != buffer.getInt(position + length - 4)) {
+                    return;
+                }
+                if (!visitor.visit(position, decode(buffer, position))) {
+                    return;
+                }
+                position += length;
+            }
+        }
+    }
+
+    private static AuditRecord decode(ByteBuffer buffer, int position) {
+        ByteBuffer body = buffer.duplicate();
+        body.position(position + 4);
+        long epochMillis = body.getLong();
+        AuditAction action = AuditAction.fromCode(body.get());
+        long targetId = body.getLong();
+        String actor = readString(body);
+        String detail = readString(body);
+        return new AuditRecord(Instant.ofEpochMilli(epochMillis), action, actor, targetId,
+                detail.isEmpty() ? null : detail);
+    }
+
+    private static String readString(ByteBuffer body) {
+        byte[] bytes = new byte[body.getShort()];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] truncate(String value, int maxChars) {
+        if (value == null) {
+            return new byte[0];
+        }
+        return (value.length() > maxChars ? value.substring(0, maxChars) : value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int crc(ByteBuffer buffer, int position, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(position).limit(position + length));
+        return (int) crc.getValue();
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+        /** Returns false to stop the scan. */
+        boolean visit(int offset, AuditRecord record) throws IOException;
+    }
+}
@@ -0,0 +1,53 @@
+package com.appointment.audit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** The segment being appended to, mapped whole into memory. Used by the writer thread only. */
+class AuditSegmentWriter implements AutoCloseable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int position = AuditSegment.HEADER_BYTES;
+
+    AuditSegmentWriter(Path file, int segmentBytes, long startMillis) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Mapping past the end grows the file; the new pages read as zeros, i.e. no records
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        AuditSegment.writeHeader(buffer, startMillis);
+    }
+
+    Path file() {
+        return file;
+    }
+
+    /** Returns false if the segment is full. */
+    boolean append(AuditRecord record) {
+        int length = AuditSegment.encode(buffer, position, record);
+        if (length < 0) {
+            return false;
+        }
+        position += length;
+        return true;
+    }
+
+    boolean isEmpty() {
+        return position == AuditSegment.HEADER_BYTES;
+    }
+
+    /** Writes the dirty pages to disk. */
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,187 @@
+package com.appointment.audit;
+
+import jakarta.annotation.PostConstruct;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Loads closed audit segments into {@code audit_events}, off-peak on {@code cron}.
+ * <p>
+ * Each segment is copied with {@code COPY FROM STDIN} in one transaction that first deletes whatever an
+ * interrupted earlier attempt loaded from it, and is then renamed to {@code .shipped}. Shipped segments
+ * stay on disk for {@code retention-days}, so the node's own audit queries keep working on them.
+ */
+@Component
+public class AuditShipper {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditShipper.class);
+
+    private static final String COPY_SQL = "COPY audit_events (segment, record_offset, occurred_at, action, actor, " +
+            "target_id, detail) FROM STDIN";
+    // Bytes of COPY data sent to the server at a time
+    private static final int COPY_CHUNK_BYTES = 1 << 20;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.audit.shipper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.audit.shipper.retention-days:30}")
+    private long retentionDays;
+
+    private TransactionTemplate shipTransaction;
+
+    @PostConstruct
+    void init() {
+        if (!enabled || !auditLog.isEnabled()) {
+            return;
+        }
+        shipTransaction = new TransactionTemplate(transactionManager);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS audit_events (segment varchar(80) NOT NULL, " +
+                "record_offset integer NOT NULL, occurred_at timestamp with time zone NOT NULL, " +
+                "action varchar(20) NOT NULL, actor varchar(320), target_id bigint NOT NULL, detail varchar(2000), " +
+                "PRIMARY KEY (segment, record_offset))");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_audit_events_actor_time ON audit_events (actor, occurred_at)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_audit_events_time ON audit_events (occurred_at)");
+    }
+
+    @Scheduled(cron = "${app.audit.shipper.cron:0 15 2 * * *}")
+    public void shipScheduled() {
+        if (enabled && auditLog.isEnabled()) {
+            try {
+                ship();
+            } catch (RuntimeException e) {
+                logger.error("Shipping audit segments failed", e);
+            }
+        }
+    }
+
+    /** Ships every closed segment now and returns the number of records loaded. */
+    public synchronized long ship() {
+        if (!enabled || !auditLog.isEnabled()) {
+            throw new IllegalStateException("Audit shipping is not enabled");
+        }
+        long started = System.currentTimeMillis();
+        long records = 0;
+        try {
+            List<Path> segments = auditLog.closedSegments();
+            for (Path segment : segments) {
+                records += shipSegment(segment);
+                Path shipped = segment.resolveSibling(segment.getFileName().toString()
+                        .replace(AuditSegment.SUFFIX, AuditSegment.SHIPPED_SUFFIX));
+                Files.move(segment, shipped, StandardCopyOption.ATOMIC_MOVE);
+            }
+            purgeShipped();
+            if (!segments.isEmpty()) {
+                logger.info("Shipped {} audit records from {} segments in {} ms", records, segments.size(),
+                        System.currentTimeMillis() - started);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not ship audit segments", e);
+        }
+        return records;
+    }
+
+    private long shipSegment(Path segment) {
+        String name = segment.getFileName().toString();
+        return shipTransaction.execute(status -> {
+            jdbcTemplate.update("DELETE FROM audit_events WHERE segment = ?", name);
+            return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+                try {
+                    ByteArrayOutputStream chunk = new ByteArrayOutputStream(COPY_CHUNK_BYTES + 4096);
+                    AuditSegment.scan(segment, (offset, record) -> {
+                        appendRow(chunk, name, offset, record);
+                        if (chunk.size() >= COPY_CHUNK_BYTES) {
+                            writeChunk(copy, chunk);
+                        }
+                        return true;
+                    });
+                    writeChunk(copy, chunk);
+                    return copy.endCopy();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read audit segment " + segment, e);
+                } finally {
+                    if (copy.isActive()) {
+                        copy.cancelCopy();
+                    }
+                }
+            });
+        });
+    }
+
+    private void purgeShipped() throws IOException {
+        long cutoff = Instant.now().minus(Duration.ofDays(retentionDays)).toEpochMilli();
+        for (Path segment : auditLog.segments()) {
+            if (segment.toString().endsWith(AuditSegment.SHIPPED_SUFFIX) && AuditSegment.startMillis(segment) < cutoff) {
+                Files.deleteIfExists(segment);
+            }
+        }
+    }
+
+    private static void writeChunk(CopyIn copy, ByteArrayOutputStream chunk) throws IOException {
+        if (chunk.size() == 0) {
+            return;
+        }
+        try {
+            copy.writeToCopy(chunk.toByteArray(), 0, chunk.size());
+        } catch (SQLException e) {
+            throw new IOException("COPY into audit_events failed", e);
+        }
+        chunk.reset();
+    }
+
+    // One line of COPY text format: tab separated, \N for null
+    private static void appendRow(ByteArrayOutputStream out, String segment, int offset, AuditRecord record) {
+        String line = segment + '\t' + offset + '\t' + record.occurredAt() + '\t' + record.action().name() + '\t'
+                + escape(record.actor()) + '\t' + record.targetId() + '\t' + escape(record.detail()) + '\n';
+        out.writeBytes(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "\\N";
+        }
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> escaped.append("\\\\");
+                case '\t' -> escaped.append("\\t");
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> escaped.append("\\r");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,79 @@
+package com.appointment.calendar;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * A subscribable calendar: the appointments of one patient or of one doctor.
+ */
+public final class CalendarFeed {
+
+    public enum Kind {
+        USER, DOCTOR
+    }
+
+    private final Kind kind;
+    private final long id;
+
+    public CalendarFeed(Kind kind, long id) {
+        this.kind = Objects.requireNonNull(kind);
+        this.id = id;
+    }
+
+    public static CalendarFeed forUser(long userId) {
+        return new CalendarFeed(Kind.USER, userId);
+    }
+
+    public static CalendarFeed forDoctor(long doctorId) {
+        return new CalendarFeed(Kind.DOCTOR, doctorId);
+    }
+
+    /** Parses the kind as used in feed URLs ({@code user}, {@code doctor}); returns null if unknown. */
+    public static CalendarFeed parse(String kind, long id) {
+        for (Kind candidate : Kind.values()) {
+            if (candidate.name().equalsIgnoreCase(kind)) {
+                return new CalendarFeed(candidate, id);
+            }
+        }
+        return null;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /** Stable identifier, e.g. {@code user:42}; used for the version row, cache and token. */
+    public String key() {
+        return pathSegment() + ":" + id;
+    }
+
+    public String pathSegment() {
+        return kind.name().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CalendarFeed)) {
+            return false;
+        }
+        CalendarFeed other = (CalendarFeed) o;
+        return kind == other.kind && id == other.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, id);
+    }
+
+    @Override
+    public String toString() {
+        return key();
+    }
+}
@@ -0,0 +1,358 @@
+package com.appointment.calendar;
+
+import com.appointment.cluster.ClusterCoordinator;
+import com.appointment.repository.CalendarFeedVersionRepository;
+import com.appointment.shard.ShardContext;
+import com.appointment.shard.ShardMap;
+import com.appointment.shard.ShardRouter;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves the ICS feeds of patients and doctors.
+ * <p>
+ * Every feed has a version in {@code calendar_feed_versions} that is bumped in the transaction that
+ * books or cancels one of its appointments, so all nodes agree on the ETag and calendar apps polling
+ * with {@code If-None-Match} get a 304. Rendered feeds are kept in a bounded LRU map per node and
+ * dropped through the {@link ClusterCoordinator} after such a change. On a miss the events are read
+ * with a cursor and written straight to the response while a copy is kept for the cache.
+ * <p>
+ * Feeds cover appointments from {@code past-days} ago on. Name or address changes of a patient or
+ * doctor show up with the next booking change of the feed.
+ * <p>
+ * With sharding the versions stay on home and are bumped right after the shard transaction commits. A
+ * patient's feed lists the events of one shard after the other.
+ */
+@Service
+public class CalendarFeedService {
+
+    private static final String REGION = "calendar-feeds";
+    private static final String PRODUCT_ID = "-//Appointment Booking//Calendar Feed//EN";
+
+    private static final String USER_EVENTS_SQL =
+            "SELECT a.id, a.appointment_date, a.appointment_time, a.status, a.created_at, " +
+            "d.name, d.specialty, d.address, d.phone, a.doctor_id FROM appointments a JOIN doctors d ON d.id = a.doctor_id " +
+            "WHERE a.user_id = ? AND a.appointment_date >= ? ORDER BY a.appointment_date, a.appointment_time";
+
+    private static final String DOCTOR_EVENTS_SQL =
+            "SELECT a.id, a.appointment_date, a.appointment_time, a.status, a.created_at, " +
+            "u.first_name, u.last_name FROM appointments a JOIN users u ON u.id = a.user_id " +
+            "WHERE a.doctor_id = ? AND a.appointment_date >= ? ORDER BY a.appointment_date, a.appointment_time";
+
+    private static final String BUMP_VERSION_SQL =
+            "INSERT INTO calendar_feed_versions (feed_key, version) VALUES (?, 1) " +
+            "ON CONFLICT (feed_key) DO UPDATE SET version = calendar_feed_versions.version + 1";
+
+    @Autowired
+    private CalendarFeedVersionRepository calendarFeedVersionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Value("${app.calendar.past-days:90}")
+    private long pastDays;
+
+    @Value("${app.calendar.event-minutes:30}")
+    private long eventMinutes;
+
+    // Empty means the JVM default zone, which is also how appointment times are stored
+    @Value("${app.calendar.time-zone:}")
+    private String timeZone;
+
+    @Value("${app.calendar.refresh-interval:PT15M}")
+    private String refreshInterval;
+
+    @Value("${app.calendar.uid-domain:appointment-booking}")
+    private String uidDomain;
+
+    @Value("${app.calendar.cache.max-entries:2000}")
+    private int maxEntries;
+
+    // Larger feeds are streamed on every miss but not kept
+    @Value("${app.calendar.cache.max-feed-bytes:262144}")
+    private int maxFeedBytes;
+
+    @Value("${app.calendar.fetch-size:200}")
+    private int fetchSize;
+
+    private ZoneId zone;
+    private TransactionTemplate renderTransaction;
+    // Bumped on every invalidation, a render that overlapped one is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Map<String, RenderedFeed> rendered = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RenderedFeed> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    @PostConstruct
+    void init() {
+        zone = timeZone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(timeZone);
+        renderTransaction = new TransactionTemplate(transactionManager);
+        // Read-write so it runs on the primary: a lagging replica would put old events in the cache under
+        // the new version. Repeatable read keeps the version and the events from the same snapshot.
+        renderTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        clusterCoordinator.onInvalidation(REGION, this::evictLocal);
+    }
+
+    /**
+     * Must be called in the transaction that books or cancels the appointment; the cached feeds are
+     * dropped on every node after commit.
+     */
+    public void appointmentChanged(Long userId, Long doctorId) {
+        if (!ShardContext.isHome()) {
+            shardRouter.afterCommitOnHome(() -> bumpVersions(userId, doctorId));
+            return;
+        }
+        bumpVersions(userId, doctorId);
+    }
+
+    /**
+     * Drops the feeds of a user and of the doctors whose appointments with them were deleted. Called on
+     * home after the delete committed, with one batch of version bumps.
+     */
+    public void appointmentsRemoved(Long userId, Collection<Long> doctorIds) {
+        // User before doctors, in id order, the same lock order as bookings
+        List<String> keys = new ArrayList<>();
+        keys.add(CalendarFeed.forUser(userId).key());
+        doctorIds.stream().sorted().distinct().forEach(doctorId -> keys.add(CalendarFeed.forDoctor(doctorId).key()));
+        jdbcTemplate.batchUpdate(BUMP_VERSION_SQL, keys, keys.size(), (ps, key) -> ps.setString(1, key));
+        keys.forEach(key -> clusterCoordinator.broadcastInvalidation(REGION, key));
+    }
+
+    /** The first day the feeds show; appointments before it can change without invalidating any feed. */
+    public LocalDate feedStart() {
+        return LocalDate.now(zone).minusDays(pastDays);
+    }
+
+    private void bumpVersions(Long userId, Long doctorId) {
+        // Always user before doctor, so concurrent bookings lock the version rows in the same order
+        for (CalendarFeed feed : new CalendarFeed[] {CalendarFeed.forUser(userId), CalendarFeed.forDoctor(doctorId)}) {
+            calendarFeedVersionRepository.bump(feed.key());
+            clusterCoordinator.broadcastInvalidation(REGION, feed.key());
+        }
+    }
+
+    /**
+     * Answers a feed request: {@code target.notModified} decides on the ETag, otherwise the calendar is
+     * written to the stream returned by {@code target.open}.
+     */
+    public void writeFeed(CalendarFeed feed, FeedTarget target) throws IOException {
+        LocalDate from = feedStart();
+        RenderedFeed cached;
+        synchronized (rendered) {
+            cached = rendered.get(feed.key());
+        }
+        if (cached != null && cached.from.equals(from)) {
+            if (!target.notModified(cached.etag)) {
+                target.open(cached.etag).write(cached.bytes);
+            }
+            return;
+        }
+
+        long generation = invalidations.get();
+        RenderedFeed fresh;
+        try {
+            fresh = renderTransaction.execute(status -> render(feed, from, target));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (fresh != null) {
+            synchronized (rendered) {
+                if (invalidations.get() == generation) {
+                    rendered.put(feed.key(), fresh);
+                }
+            }
+        }
+    }
+
+    private RenderedFeed render(CalendarFeed feed, LocalDate from, FeedTarget target) {
+        long version = calendarFeedVersionRepository.findVersion(feed.key()).orElse(0L);
+        String etag = "W/\"" + version + "-" + from.toEpochDay() + "\"";
+        try {
+            if (target.notModified(etag)) {
+                return null;
+            }
+            boolean forUser = feed.getKind() == CalendarFeed.Kind.USER;
+            CappedCopy copy = new CappedCopy(target.open(etag), maxFeedBytes);
+            IcsWriter writer = new IcsWriter(copy);
+            writer.beginCalendar(PRODUCT_ID, forUser ? "My appointments" : "Appointments", refreshInterval);
+            if (forUser) {
+                for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                    writeEvents(shard, feed, from, writer);
+                }
+            } else {
+                writeEvents(shardMap.shardOf(feed.getId()), feed, from, writer);
+            }
+            writer.endCalendar();
+            return copy.isComplete() ? new RenderedFeed(etag, from, copy.toByteArray()) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Home shares the render transaction, other shards are read outside of it
+    private void writeEvents(int shard, CalendarFeed feed, LocalDate from, IcsWriter writer) {
+        boolean forUser = feed.getKind() == CalendarFeed.Kind.USER;
+        JdbcTemplate jdbc = shard == ShardContext.HOME ? jdbcTemplate : shardRouter.jdbc(shard);
+        jdbc.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(forUser ? USER_EVENTS_SQL : DOCTOR_EVENTS_SQL);
+            statement.setFetchSize(fetchSize);
+            statement.setLong(1, feed.getId());
+            statement.setObject(2, from);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            if (forUser && !shardRouter.owns(shard, rs.getLong(10))) {
+                return;
+            }
+            try {
+                writeEvent(writer, rs, forUser);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeEvent(IcsWriter writer, ResultSet rs, boolean forUser) throws SQLException, IOException {
+        LocalDateTime start = LocalDateTime.of(rs.getObject(2, LocalDate.class), rs.getObject(3, LocalTime.class));
+        Instant startInstant = start.atZone(zone).toInstant();
+        Timestamp createdAt = rs.getTimestamp(5);
+        Instant stamp = createdAt != null ? createdAt.toLocalDateTime().atZone(zone).toInstant() : startInstant;
+        String summary;
+        String location = null;
+        String description = null;
+        if (forUser) {
+            summary = rs.getString(6) + " (" + rs.getString(7) + ")";
+            location = rs.getString(8);
+            String phone = rs.getString(9);
+            description = phone != null ? "Phone: " + phone : null;
+        } else {
+            summary = rs.getString(6) + " " + rs.getString(7);
+        }
+        writer.event("appointment-" + rs.getLong(1) + "@" + uidDomain, stamp, startInstant,
+                startInstant.plusSeconds(eventMinutes * 60), summary, location, description,
+                "CANCELLED".equals(rs.getString(4)));
+    }
+
+    private void evictLocal(String key) {
+        synchronized (rendered) {
+            invalidations.incrementAndGet();
+            if (ClusterCoordinator.ALL_KEYS.equals(key)) {
+                rendered.clear();
+            } else {
+                rendered.remove(key);
+            }
+        }
+    }
+
+    /** Where a feed response goes; implemented by the web layer. */
+    public interface FeedTarget {
+
+        /** Returns true if the client already has {@code etag}, in which case nothing is written. */
+        boolean notModified(String etag);
+
+        OutputStream open(String etag) throws IOException;
+    }
+
+    private static final class RenderedFeed {
+        private final String etag;
+        private final LocalDate from;
+        private final byte[] bytes;
+
+        private RenderedFeed(String etag, LocalDate from, byte[] bytes) {
+            this.etag = etag;
+            this.from = from;
+            this.bytes = bytes;
+        }
+    }
+
+    // Passes everything through and keeps a copy up to a limit
+    private static final class CappedCopy extends OutputStream {
+        private final OutputStream target;
+        private final int limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream(4096);
+
+        private CappedCopy(OutputStream target, int limit) {
+            this.target = target;
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+            if (copy != null) {
+                copy.write(b);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+            if (copy != null) {
+                copy.write(b, off, len);
+                checkLimit();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+
+        private void checkLimit() {
+            if (copy.size() > limit) {
+                copy = null;
+            }
+        }
+
+        private boolean isComplete() {
+            return copy != null;
+        }
+
+        private byte[] toByteArray() {
+            return copy.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.appointment.calendar;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Signs feed URLs so they can be polled without a login, as calendar apps do.
+ * <p>
+ * The token is an HMAC-SHA256 of the feed key, nothing is stored. Changing
+ * {@code app.calendar.feed-secret} revokes every subscription URL at once.
+ */
+@Component
+public class CalendarFeedTokens {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @Value("${app.calendar.feed-secret:${jwt.secret:mySecretKeyForJWTTokensWhichShouldBeLongEnoughForHMACAlgorithm}}")
+    private String secret;
+
+    public String tokenFor(CalendarFeed feed) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            byte[] signature = mac.doFinal(feed.key().getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign calendar feed " + feed, e);
+        }
+    }
+
+    public boolean isValid(CalendarFeed feed, String token) {
+        if (token == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(tokenFor(feed).getBytes(StandardCharsets.US_ASCII),
+                token.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,101 @@
+package com.appointment.calendar;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes an iCalendar (RFC 5545) stream event by event, without building the calendar in memory.
+ * <p>
+ * Lines end in CRLF and are folded at 75 octets without splitting UTF-8 sequences; TEXT values are
+ * escaped. Times are written in UTC.
+ */
+public class IcsWriter {
+
+    private static final int MAX_LINE_OCTETS = 75;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] FOLD = {'\r', '\n', ' '};
+    private static final DateTimeFormatter UTC_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final OutputStream out;
+
+    public IcsWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public void beginCalendar(String productId, String name, String refreshInterval) throws IOException {
+        line("BEGIN:VCALENDAR");
+        line("VERSION:2.0");
+        line("PRODID:" + productId);
+        line("CALSCALE:GREGORIAN");
+        line("METHOD:PUBLISH");
+        line("X-WR-CALNAME:" + escape(name));
+        if (refreshInterval != null) {
+            line("REFRESH-INTERVAL;VALUE=DURATION:" + refreshInterval);
+            line("X-PUBLISHED-TTL:" + refreshInterval);
+        }
+    }
+
+    public void event(String uid, Instant stamp, Instant start, Instant end, String summary,
+                      String location, String description, boolean cancelled) throws IOException {
+        line("BEGIN:VEVENT");
+        line("UID:" + uid);
+        line("DTSTAMP:" + UTC_TIME.format(stamp));
+        line("DTSTART:" + UTC_TIME.format(start));
+        line("DTEND:" + UTC_TIME.format(end));
+        line("SUMMARY:" + escape(summary));
+        if (location != null && !location.isEmpty()) {
+            line("LOCATION:" + escape(location));
+        }
+        if (description != null && !description.isEmpty()) {
+            line("DESCRIPTION:" + escape(description));
+        }
+        line("STATUS:" + (cancelled ? "CANCELLED" : "CONFIRMED"));
+        line("END:VEVENT");
+    }
+
+    public void endCalendar() throws IOException {
+        line("END:VCALENDAR");
+        out.flush();
+    }
+
+    private void line(String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        int start = 0;
+        // Continuation lines lose one octet to the leading space
+        int limit = MAX_LINE_OCTETS;
+        while (bytes.length - start > limit) {
+            int end = start + limit;
+            while ((bytes[end] & 0xC0) == 0x80) {
+                end--;
+            }
+            out.write(bytes, start, end - start);
+            out.write(FOLD);
+            start = end;
+            limit = MAX_LINE_OCTETS - 1;
+        }
+        out.write(bytes, start, bytes.length - start);
+        out.write(CRLF);
+    }
+
+    static String escape(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder escaped = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\', ';', ',' -> escaped.append('\\').append(c);
+                case '\n' -> escaped.append("\\n");
+                case '\r' -> { }
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,74 @@
+package com.appointment.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+abstract class AbstractClusterCoordinator implements ClusterCoordinator {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbstractClusterCoordinator.class);
+
+    private final Map<String, List<Consumer<String>>> handlers = new ConcurrentHashMap<>();
+
+    @Override
+    public void onInvalidation(String region, Consumer<String> handler) {
+        handlers.computeIfAbsent(region, r -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    @Override
+    public void broadcastInvalidation(String region, String key) {
+        publish(region, key);
+        runAfterCommit(() -> dispatch(region, key));
+    }
+
+    /** Sends the invalidation to the other nodes. */
+    protected abstract void publish(String region, String key);
+
+    protected void dispatch(String region, String key) {
+        for (Consumer<String> handler : handlers.getOrDefault(region, List.of())) {
+            try {
+                handler.accept(key);
+            } catch (RuntimeException e) {
+                logger.error("Invalidation handler for region {} failed", region, e);
+            }
+        }
+    }
+
+    /** Drops every registered region, used when invalidations may have been missed. */
+    protected void dispatchAll() {
+        handlers.keySet().forEach(region -> dispatch(region, ALL_KEYS));
+    }
+
+    protected static int slotHash(Long doctorId, LocalDate date, LocalTime time) {
+        return Objects.hash(doctorId, date, time);
+    }
+
+    protected static void requireTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Slot locks can only be taken inside a transaction");
+        }
+    }
+
+    protected static void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.appointment.cluster;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+/**
+ * Clears Spring caches on every node through the {@link ClusterCoordinator}.
+ */
+@Component
+public class ClusterCacheInvalidator {
+
+    private static final String REGION = "spring-cache";
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @PostConstruct
+    void register() {
+        clusterCoordinator.onInvalidation(REGION, this::clearLocal);
+    }
+
+    public void clear(String cacheName) {
+        clusterCoordinator.broadcastInvalidation(REGION, cacheName);
+    }
+
+    private void clearLocal(String cacheName) {
+        if (ClusterCoordinator.ALL_KEYS.equals(cacheName)) {
+            cacheManager.getCacheNames().forEach(this::clearLocal);
+            return;
+        }
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
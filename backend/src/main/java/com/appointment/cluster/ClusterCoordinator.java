@@ -0,0 +1,39 @@
+package com.appointment.cluster;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.function.Consumer;
+
+/**
+ * Keeps per-node caches and booking locks coherent when several backend replicas run side by side.
+ * <p>
+ * The implementation is chosen with {@code app.cluster.mode}: {@code local} (default) for a single
+ * node, {@code postgres} to coordinate through LISTEN/NOTIFY and advisory locks on the shared database.
+ */
+public interface ClusterCoordinator {
+
+    /** Key passed to invalidation handlers when the whole region must be dropped. */
+    String ALL_KEYS = "*";
+
+    /**
+     * Drops {@code key} from {@code region} on every node, including this one. When called inside a
+     * transaction the invalidation is delivered after commit.
+     */
+    void broadcastInvalidation(String region, String key);
+
+    /** Registers a handler that is called for every invalidation of {@code region}. */
+    void onInvalidation(String region, Consumer<String> handler);
+
+    /**
+     * Serializes bookings of one doctor slot across the cluster. Must be called inside a transaction;
+     * the lock is released when the transaction completes.
+     */
+    void lockSlot(Long doctorId, LocalDate date, LocalTime time);
+
+    /**
+     * Returns whether this node is the leader for {@code role}, campaigning for it if nobody is. At most
+     * one node is leader per role; call it periodically, leadership can be lost (e.g. when the node's
+     * database connection drops) and is then taken over by another node.
+     */
+    boolean isLeader(String role);
+}
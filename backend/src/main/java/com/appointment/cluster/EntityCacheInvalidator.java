@@ -0,0 +1,116 @@
+package com.appointment.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Keeps the Hibernate second-level cache coherent across nodes.
+ * <p>
+ * The READ_WRITE regions already stay correct on the node that makes a change; this listener sends the
+ * same eviction to the other nodes through the {@link ClusterCoordinator}, after commit. Keys are
+ * {@code <entity>#<id>} for one entity and {@code <entity>##NaturalId} for the natural id region, which
+ * is only dropped when the natural id itself changed or the entity was deleted.
+ */
+@Component
+public class EntityCacheInvalidator implements PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final String REGION = "hibernate-l2";
+    private static final String NATURAL_ID_SUFFIX = "##NaturalId";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    private SessionFactoryImplementor sessionFactory;
+
+    @PostConstruct
+    void register() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        clusterCoordinator.onInvalidation(REGION, this::evictLocal);
+    }
+
+    /** Drops every entity and natural id region on all nodes. */
+    public void evictAll() {
+        clusterCoordinator.broadcastInvalidation(REGION, ClusterCoordinator.ALL_KEYS);
+    }
+
+    /** Drops one entity on all nodes, for a row changed by SQL that Hibernate does not see. */
+    public void evict(Class<?> entityClass, Long id) {
+        clusterCoordinator.broadcastInvalidation(REGION, entityClass.getName() + "#" + id);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        EntityPersister persister = event.getPersister();
+        if (!persister.canWriteToCache()) {
+            return;
+        }
+        clusterCoordinator.broadcastInvalidation(REGION, persister.getEntityName() + "#" + event.getId());
+        if (persister.hasNaturalIdCache() && naturalIdChanged(persister, event.getOldState(), event.getState())) {
+            clusterCoordinator.broadcastInvalidation(REGION, persister.getEntityName() + NATURAL_ID_SUFFIX);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        EntityPersister persister = event.getPersister();
+        if (!persister.canWriteToCache()) {
+            return;
+        }
+        clusterCoordinator.broadcastInvalidation(REGION, persister.getEntityName() + "#" + event.getId());
+        if (persister.hasNaturalIdCache()) {
+            clusterCoordinator.broadcastInvalidation(REGION, persister.getEntityName() + NATURAL_ID_SUFFIX);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private static boolean naturalIdChanged(EntityPersister persister, Object[] oldState, Object[] state) {
+        if (oldState == null) {
+            // Updated without a loaded snapshot (e.g. merge of a detached instance), assume the worst
+            return true;
+        }
+        for (int property : persister.getNaturalIdentifierProperties()) {
+            if (!Objects.equals(oldState[property], state[property])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void evictLocal(String key) {
+        Cache cache = sessionFactory.getCache();
+        if (ClusterCoordinator.ALL_KEYS.equals(key)) {
+            cache.evictAllRegions();
+            return;
+        }
+        if (key.endsWith(NATURAL_ID_SUFFIX)) {
+            cache.evictNaturalIdData(key.substring(0, key.length() - NATURAL_ID_SUFFIX.length()));
+            return;
+        }
+        int separator = key.lastIndexOf('#');
+        // All entity ids in this application are Long
+        cache.evictEntityData(key.substring(0, separator), Long.valueOf(key.substring(separator + 1)));
+    }
+}
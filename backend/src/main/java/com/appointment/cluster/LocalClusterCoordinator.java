@@ -0,0 +1,51 @@
+package com.appointment.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Single node coordinator: invalidations stay in the JVM and slot locks are striped in-process locks.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cluster.mode", havingValue = "local", matchIfMissing = true)
+public class LocalClusterCoordinator extends AbstractClusterCoordinator {
+
+    private static final int LOCK_STRIPES = 1024;
+
+    private final ReentrantLock[] slotLocks = new ReentrantLock[LOCK_STRIPES];
+
+    public LocalClusterCoordinator() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            slotLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    protected void publish(String region, String key) {
+        // Nothing to tell, this is the only node
+    }
+
+    @Override
+    public void lockSlot(Long doctorId, LocalDate date, LocalTime time) {
+        requireTransaction();
+        ReentrantLock lock = slotLocks[Math.floorMod(slotHash(doctorId, date, time), LOCK_STRIPES)];
+        lock.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+
+    @Override
+    public boolean isLeader(String role) {
+        return true;
+    }
+}
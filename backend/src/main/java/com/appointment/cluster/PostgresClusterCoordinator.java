@@ -0,0 +1,237 @@
+package com.appointment.cluster;
+
+import com.appointment.shard.ShardDataSources;
+import com.zaxxer.hikari.HikariDataSource;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coordinates replicas through the shared PostgreSQL database, so no extra infrastructure is needed.
+ * <p>
+ * Invalidations are sent with {@code pg_notify} on the caller's connection, which means they are only
+ * delivered once the surrounding transaction commits. Every node keeps one dedicated connection
+ * (outside the Hikari pool) that LISTENs for them. Slot locks are transaction scoped advisory locks.
+ * Leadership is a session advisory lock held on another dedicated connection per role, so it is released
+ * by the database as soon as the leader dies or loses its connection.
+ * <p>
+ * With sharding, transactions on other shards notify on their own database, so there is a listening
+ * connection per shard as well.
+ */
+@Component
+@ConditionalOnProperty(name = "app.cluster.mode", havingValue = "postgres")
+public class PostgresClusterCoordinator extends AbstractClusterCoordinator implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresClusterCoordinator.class);
+
+    private static final String CHANNEL = "app_cluster";
+    private static final int SLOT_LOCK_NAMESPACE = 1;
+    private static final int LEADER_LOCK_NAMESPACE = 2;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private ObjectProvider<ShardDataSources> shardDataSources;
+
+    @Value("${app.cluster.poll-timeout-ms:500}")
+    private int pollTimeoutMs;
+
+    @Value("${app.cluster.reconnect-delay-ms:2000}")
+    private long reconnectDelayMs;
+
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final Map<String, Connection> leaderConnections = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private final List<Thread> listenerThreads = new ArrayList<>();
+
+    @Override
+    protected void publish(String region, String key) {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> {}, CHANNEL, nodeId + "|" + region + "|" + key);
+    }
+
+    @Override
+    public void lockSlot(Long doctorId, LocalDate date, LocalTime time) {
+        requireTransaction();
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(?, ?)", rs -> {},
+                SLOT_LOCK_NAMESPACE, slotHash(doctorId, date, time));
+    }
+
+    @Override
+    public boolean isLeader(String role) {
+        synchronized (leaderConnections) {
+            Connection held = leaderConnections.get(role);
+            if (held != null) {
+                if (isAlive(held)) {
+                    return true;
+                }
+                logger.warn("Lost the connection holding leadership of {}", role);
+                leaderConnections.remove(role);
+                closeQuietly(held);
+            }
+            if (!running) {
+                return false;
+            }
+            Connection connection = null;
+            try {
+                connection = openConnection();
+                boolean acquired;
+                try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?, ?)")) {
+                    statement.setInt(1, LEADER_LOCK_NAMESPACE);
+                    statement.setInt(2, role.hashCode());
+                    try (ResultSet rs = statement.executeQuery()) {
+                        acquired = rs.next() && rs.getBoolean(1);
+                    }
+                }
+                if (!acquired) {
+                    closeQuietly(connection);
+                    return false;
+                }
+                leaderConnections.put(role, connection);
+                logger.info("Cluster node {} is now leader of {}", nodeId, role);
+                return true;
+            } catch (SQLException e) {
+                logger.error("Could not campaign for leadership of {}", role, e);
+                closeQuietly(connection);
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        startListener("cluster-listener", this::openConnection);
+        ShardDataSources shards = shardDataSources.getIfAvailable();
+        if (shards != null) {
+            for (int shard = 1; shard < shards.count(); shard++) {
+                HikariDataSource pool = shards.get(shard);
+                startListener("cluster-listener-shard-" + shard, () -> DriverManager.getConnection(pool.getJdbcUrl(),
+                        pool.getUsername(), pool.getPassword()));
+            }
+        }
+        logger.info("Cluster node {} listening on channel {} of {} databases", nodeId, CHANNEL, listenerThreads.size());
+    }
+
+    private void startListener(String name, ConnectionFactory connectionFactory) {
+        Thread thread = new Thread(() -> listen(connectionFactory), name);
+        thread.setDaemon(true);
+        thread.start();
+        listenerThreads.add(thread);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        listenerThreads.forEach(Thread::interrupt);
+        listenerThreads.clear();
+        synchronized (leaderConnections) {
+            leaderConnections.values().forEach(PostgresClusterCoordinator::closeQuietly);
+            leaderConnections.clear();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen(ConnectionFactory connectionFactory) {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = connectionFactory.open()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (reconnecting) {
+                    // Invalidations sent while we were disconnected are lost, start from a clean slate
+                    logger.warn("Cluster listener reconnected, dropping all local caches");
+                    dispatchAll();
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                logger.error("Cluster listener connection failed, retrying in {} ms", reconnectDelayMs, e);
+                reconnecting = true;
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+    }
+
+    private static boolean isAlive(Connection connection) {
+        try {
+            return connection.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.debug("Failed to close connection", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private void handle(String payload) {
+        String[] parts = payload.split("\\|", 3);
+        if (parts.length != 3 || parts[0].equals(nodeId)) {
+            return;
+        }
+        dispatch(parts[1], parts[2]);
+    }
+}
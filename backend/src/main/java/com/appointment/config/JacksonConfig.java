@@ -0,0 +1,26 @@
+package com.appointment.config;
+
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.NativeDetector;
+
+@Configuration
+public class JacksonConfig {
+
+    @Value("${app.json.blackbird:true}")
+    private boolean blackbird;
+
+    // Property access through generated lambdas instead of reflection. Native images cannot define
+    // classes at runtime, so they keep the reflective accessors.
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer blackbirdCustomizer() {
+        return builder -> {
+            if (blackbird && !NativeDetector.inNativeImage()) {
+                builder.modulesToInstall(modules -> modules.add(new BlackbirdModule()));
+            }
+        };
+    }
+}
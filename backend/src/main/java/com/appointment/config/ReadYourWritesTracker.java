@@ -0,0 +1,70 @@
+package com.appointment.config;
+
+import com.appointment.cluster.ClusterCoordinator;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which users wrote recently so their reads are served by the primary instead of a
+ * possibly lagging replica. Writes are announced cluster-wide, so the next request may land on any node.
+ */
+@Component
+public class ReadYourWritesTracker implements SmartInitializingSingleton {
+
+    private static final String REGION = "read-your-writes";
+    private static final int MAX_TRACKED_USERS = 100_000;
+
+    @Value("${app.datasource.replica.enabled:false}")
+    private boolean replicaEnabled;
+
+    @Value("${app.datasource.replica.sticky-ms:5000}")
+    private long stickyMs;
+
+    // Lazy: the routing data source needs this tracker before the coordinator's JdbcTemplate exists
+    @Autowired
+    @Lazy
+    private ClusterCoordinator clusterCoordinator;
+
+    private final Map<String, Long> stickyUntil = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        clusterCoordinator.onInvalidation(REGION, this::markLocal);
+    }
+
+    /** Call inside the writing transaction; the user is pinned to the primary once it commits. */
+    public void markWrite(String userEmail) {
+        if (replicaEnabled && userEmail != null) {
+            clusterCoordinator.broadcastInvalidation(REGION, userEmail);
+        }
+    }
+
+    public boolean isSticky(String userEmail) {
+        Long until = stickyUntil.get(userEmail);
+        if (until == null) {
+            return false;
+        }
+        if (until < System.currentTimeMillis()) {
+            stickyUntil.remove(userEmail, until);
+            return false;
+        }
+        return true;
+    }
+
+    private void markLocal(String userEmail) {
+        if (ClusterCoordinator.ALL_KEYS.equals(userEmail)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (stickyUntil.size() >= MAX_TRACKED_USERS) {
+            stickyUntil.values().removeIf(until -> until < now);
+        }
+        stickyUntil.put(userEmail, now + stickyMs);
+    }
+}
@@ -0,0 +1,83 @@
+package com.appointment.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Binary encodings for clients that ask for them with {@code Accept}: Smile
+ * ({@code application/x-jackson-smile}) or CBOR ({@code application/cbor}). JSON stays the default,
+ * also for wildcard and missing {@code Accept} headers.
+ * <p>
+ * Spring MVC registers Smile and CBOR converters on its own once the data formats are on the classpath,
+ * after the JSON one, but with plain mappers. They are swapped for mappers built from the application's
+ * {@link Jackson2ObjectMapperBuilder} so every format carries the same settings and modules.
+ */
+@Configuration
+public class ResponseFormats implements WebMvcConfigurer {
+
+    public static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    private Format json;
+    private Format smile;
+    private Format cbor;
+
+    @PostConstruct
+    void init() {
+        json = new Format(MediaType.APPLICATION_JSON, objectMapper);
+        smile = new Format(APPLICATION_SMILE, objectMapperBuilder.getObject().factory(new SmileFactory()).build());
+        cbor = new Format(MediaType.APPLICATION_CBOR, objectMapperBuilder.getObject().factory(new CBORFactory()).build());
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2SmileHttpMessageConverter) {
+                converters.set(i, new MappingJackson2SmileHttpMessageConverter(smile.mapper()));
+            } else if (converters.get(i) instanceof MappingJackson2CborHttpMessageConverter) {
+                converters.set(i, new MappingJackson2CborHttpMessageConverter(cbor.mapper()));
+            }
+        }
+    }
+
+    /** The format for an {@code Accept} header, for responses written without the message converters. */
+    public Format negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return json;
+        }
+        Format best = json;
+        double bestQuality = -1;
+        for (MediaType type : MediaType.parseMediaTypes(accept)) {
+            Format format = type.includes(MediaType.APPLICATION_JSON) ? json
+                    : type.equalsTypeAndSubtype(APPLICATION_SMILE) ? smile
+                    : type.equalsTypeAndSubtype(MediaType.APPLICATION_CBOR) ? cbor
+                    : null;
+            if (format != null && type.getQualityValue() > bestQuality) {
+                best = format;
+                bestQuality = type.getQualityValue();
+            }
+        }
+        return best;
+    }
+
+    public record Format(MediaType mediaType, ObjectMapper mapper) {
+    }
+}
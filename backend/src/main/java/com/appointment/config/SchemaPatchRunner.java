@@ -0,0 +1,134 @@
+package com.appointment.config;
+
+import com.appointment.shard.ShardDataSources;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptStatementFailedException;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Applies the SQL in {@code classpath:db/patches/*.sql}, in file name order, on every startup.
+ * <p>
+ * Hibernate keeps creating tables and columns; these patches hold what it cannot express, such as
+ * partial indexes. Patches must therefore be idempotent ({@code IF NOT EXISTS}). They run on an
+ * auto-commit connection, so {@code CREATE INDEX CONCURRENTLY} works, and under an advisory lock so
+ * several nodes starting together do not race.
+ * <p>
+ * With sharding they are applied to every shard database too, where {@code users} and {@code doctors}
+ * are foreign tables, except patches starting with a {@code -- home-only} line.
+ */
+@Component
+@DependsOn({"entityManagerFactory", "shardSchemaManager"})
+public class SchemaPatchRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaPatchRunner.class);
+
+    private static final int PATCH_LOCK_NAMESPACE = 3;
+    private static final String FEATURE_NOT_SUPPORTED = "0A000";
+    private static final String HOME_ONLY = "-- home-only";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectProvider<ShardDataSources> shardDataSources;
+
+    @Value("${app.schema-patches.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.schema-patches.location:classpath:db/patches/*.sql}")
+    private String location;
+
+    @PostConstruct
+    void apply() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Resource[] patches = new PathMatchingResourcePatternResolver().getResources(location);
+        Arrays.sort(patches, Comparator.comparing(Resource::getFilename));
+        // Each patch gets a pooled connection of its own, Hikari evicts a connection after some errors
+        jdbcTemplate.execute((ConnectionCallback<Void>) lockConnection -> {
+            try (Statement statement = lockConnection.createStatement()) {
+                statement.execute("SELECT pg_advisory_lock(" + PATCH_LOCK_NAMESPACE + ", 0)");
+            }
+            try {
+                for (Resource patch : patches) {
+                    logger.debug("Applying schema patch {}", patch.getFilename());
+                    applyPatch(jdbcTemplate, patch);
+                }
+                ShardDataSources shards = shardDataSources.getIfAvailable();
+                if (shards != null) {
+                    for (int shard = 1; shard < shards.count(); shard++) {
+                        JdbcTemplate shardJdbc = new JdbcTemplate(shards.get(shard));
+                        for (Resource patch : patches) {
+                            if (readPatch(patch).startsWith(HOME_ONLY)) {
+                                continue;
+                            }
+                            logger.debug("Applying schema patch {} to shard {}", patch.getFilename(), shard);
+                            applyPatch(shardJdbc, patch);
+                        }
+                    }
+                }
+            } finally {
+                try (Statement statement = lockConnection.createStatement()) {
+                    statement.execute("SELECT pg_advisory_unlock(" + PATCH_LOCK_NAMESPACE + ", 0)");
+                }
+            }
+            return null;
+        });
+        logger.info("Applied {} schema patches", patches.length);
+    }
+
+    private void applyPatch(JdbcTemplate jdbc, Resource patch) {
+        try {
+            executeScript(jdbc, patch);
+        } catch (ScriptStatementFailedException e) {
+            if (!(e.getCause() instanceof SQLException cause) || !FEATURE_NOT_SUPPORTED.equals(cause.getSQLState())) {
+                throw e;
+            }
+            // PostgreSQL cannot build an index CONCURRENTLY on a partitioned table (see
+            // AppointmentPartitionManager); patches are idempotent, so run the file again without it
+            String script = readPatch(patch);
+            String withoutConcurrently = script.replace(" CONCURRENTLY", "");
+            if (withoutConcurrently.equals(script)) {
+                throw e;
+            }
+            logger.info("Applying schema patch {} without CONCURRENTLY", patch.getFilename());
+            executeScript(jdbc, new ByteArrayResource(withoutConcurrently.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private void executeScript(JdbcTemplate jdbc, Resource script) {
+        jdbc.execute((ConnectionCallback<Void>) connection -> {
+            ScriptUtils.executeSqlScript(connection, script);
+            return null;
+        });
+    }
+
+    private static String readPatch(Resource patch) {
+        try {
+            return patch.getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read schema patch " + patch.getFilename(), e);
+        }
+    }
+}
@@ -38,6 +38,8 @@ public class SecurityConfig {
                 .requestMatchers("/oauth2/**").permitAll()
                 .requestMatchers("/login").permitAll()
                 .requestMatchers("/api/doctors/**").permitAll()
+                .requestMatchers("/api/calendar/feeds/**").permitAll()
+                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
                 .requestMatchers("/api/appointments/**").authenticated()
                 .anyRequest().authenticated()
             )
@@ -0,0 +1,30 @@
+package com.appointment.config;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Reports OUT_OF_SERVICE until {@link WarmupRunner} has primed caches and hot code paths, so the
+ * readiness probe keeps traffic away from a cold replica.
+ */
+@Component
+public class WarmupHealthIndicator implements HealthIndicator {
+
+    private volatile Map<String, Object> timings;
+
+    void markWarm(Map<String, Object> timings) {
+        this.timings = timings;
+    }
+
+    @Override
+    public Health health() {
+        Map<String, Object> current = timings;
+        if (current == null) {
+            return Health.outOfService().withDetail("warmup", "in progress").build();
+        }
+        return Health.up().withDetails(current).build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.appointment.config;
+
+import com.appointment.dto.DoctorDTO;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.service.DoctorService;
+import com.appointment.shard.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the doctor directory and upcoming booked slots in bulk and exercises the hot request paths
+ * before the node reports ready. Each step is timed and logged; a failing step is logged and skipped
+ * so that a warm-up problem never keeps the node out of rotation.
+ */
+@Component
+@Order(100)
+public class WarmupRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmupRunner.class);
+
+    @Value("${app.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.warmup.slot-days:14}")
+    private int slotDays;
+
+    @Value("${app.warmup.iterations:3}")
+    private int iterations;
+
+    @Value("${app.warmup.max-doctor-lookups:500}")
+    private int maxDoctorLookups;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WarmupHealthIndicator warmupHealthIndicator;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Map<String, Object> timings = new LinkedHashMap<>();
+        if (!enabled) {
+            warmupHealthIndicator.markWarm(timings);
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        List<DoctorDTO> doctors = timed(timings, "doctorDirectoryMs", doctorService::getAllDoctors);
+
+        if (doctors != null) {
+            timed(timings, "doctorLookupsMs", () -> {
+                doctors.stream().limit(maxDoctorLookups).forEach(doctor -> doctorService.getDoctorById(doctor.id()));
+                return null;
+            });
+
+            timed(timings, "nearbySearchMs", () -> {
+                for (int i = 0; i < iterations; i++) {
+                    for (DoctorDTO doctor : doctors.subList(0, Math.min(doctors.size(), 10))) {
+                        doctorService.getNearbyDoctors(doctor.latitude(), doctor.longitude(), 10);
+                    }
+                }
+                return null;
+            });
+
+            timed(timings, "serializationMs", () -> {
+                for (int i = 0; i < iterations; i++) {
+                    objectMapper.writeValueAsBytes(doctors);
+                }
+                return null;
+            });
+        }
+
+        LocalDate today = LocalDate.now();
+        List<AppointmentRepository.BookedSlot> slots = timed(timings, "bookedSlotsMs",
+                () -> shardRouter.readAll(() -> appointmentRepository.findBookedSlotsBetween(today, today.plusDays(slotDays)),
+                        AppointmentRepository.BookedSlot::getDoctorId));
+
+        timings.put("doctors", doctors != null ? doctors.size() : 0);
+        timings.put("bookedSlots", slots != null ? slots.size() : 0);
+        timings.put("totalMs", System.currentTimeMillis() - start);
+        logger.info("Warm-up finished: {}", timings);
+        warmupHealthIndicator.markWarm(timings);
+    }
+
+    private <T> T timed(Map<String, Object> timings, String name, WarmupStep<T> step) {
+        long start = System.currentTimeMillis();
+        try {
+            return step.run();
+        } catch (Exception e) {
+            logger.warn("Warm-up step {} failed: {}", name, e.getMessage());
+            return null;
+        } finally {
+            timings.put(name, System.currentTimeMillis() - start);
+        }
+    }
+
+    @FunctionalInterface
+    private interface WarmupStep<T> {
+        T run() throws Exception;
+    }
+}
@@ -1,26 +1,69 @@
 package com.appointment.controller;
 
+import com.appointment.audit.AuditAction;
+import com.appointment.audit.AuditLog;
+import com.appointment.audit.AuditRecord;
+import com.appointment.audit.AuditShipper;
+import com.appointment.cluster.ClusterCacheInvalidator;
+import com.appointment.cluster.ClusterCoordinator;
+import com.appointment.cluster.EntityCacheInvalidator;
+import com.appointment.config.JsonStreamWriter;
 import com.appointment.entity.User;
+import com.appointment.entity.UserDeletion;
 import com.appointment.entity.Appointment;
 import com.appointment.repository.UserRepository;
 import com.appointment.repository.AppointmentRepository;
 import com.appointment.repository.DoctorRepository;
 import com.appointment.dto.AdminAppointmentDTO;
+import com.appointment.dto.AdminUserDTO;
+import com.appointment.nearby.NearbyDoctorCache;
+import com.appointment.querystats.QueryLatencies;
+import com.appointment.service.UserDeletionService;
+import com.appointment.shard.ShardContext;
+import com.appointment.shard.ShardRebalancer;
+import com.appointment.shard.ShardRouter;
+import com.appointment.tracing.InMemoryTraceExporter;
+import com.appointment.tracing.TraceData;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.servlet.http.HttpServletResponse;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.ArrayList;
 
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*")
 public class AdminController {
 
+    private static final Comparator<AdminAppointmentDTO> LISTING_ORDER = Comparator
+            .comparing(AdminAppointmentDTO::appointmentDate)
+            .thenComparing(AdminAppointmentDTO::appointmentTime)
+            .reversed();
+
     @Autowired
     private UserRepository userRepository;
 
@@ -30,34 +73,100 @@ public class AdminController {
     @Autowired
     private DoctorRepository doctorRepository;
 
+    @Autowired
+    private ClusterCacheInvalidator clusterCacheInvalidator;
+
+    @Autowired
+    private EntityCacheInvalidator entityCacheInvalidator;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JsonStreamWriter jsonStreamWriter;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    @Autowired
+    private AuditShipper auditShipper;
+
+    @Autowired
+    private ObjectProvider<InMemoryTraceExporter> traceCollector;
+
+    @Autowired
+    private QueryLatencies queryLatencies;
+
+    @Autowired
+    private UserDeletionService userDeletionService;
+
+    @Autowired
+    private NearbyDoctorCache nearbyDoctorCache;
+
+    @Value("${app.admin.appointment-listing-months:3}")
+    private long adminListingMonths;
+
+    @Value("${app.admin.user-page-max:500}")
+    private int maxUserPageSize;
+
+    /**
+     * The user directory a page at a time, in id order; {@code q} matches the start of email, first or
+     * last name. A full page links the next one in a {@code Link: <...>; rel="next"} header.
+     */
     @GetMapping("/users")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userRepository.findAll();
-        return ResponseEntity.ok(users);
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<AdminUserDTO>> getAllUsers(@RequestParam(required = false) String q,
+                                                          @RequestParam(required = false) User.Role role,
+                                                          @RequestParam(defaultValue = "0") long after,
+                                                          @RequestParam(defaultValue = "50") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxUserPageSize));
+        List<AdminUserDTO> users = userRepository.findDirectoryPage(q, role, after, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (users.size() == pageSize) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", users.get(users.size() - 1).id())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(users);
     }
 
+    /**
+     * Appointments dated {@code from} or later; without {@code from} the last
+     * {@code appointment-listing-months}. The date used is sent back in {@code X-Listing-From}.
+     */
     @GetMapping("/appointments/all")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<AdminAppointmentDTO>> getAllAppointments() {
+    public void getAllAppointments(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response) throws IOException {
         System.out.println("=== Admin getAllAppointments called ===");
-        List<Appointment> appointments = appointmentRepository.findAllWithUserAndDoctor();
-        System.out.println("Found " + appointments.size() + " appointments");
-
-        // Convert to DTOs to avoid JSON serialization issues
-        List<AdminAppointmentDTO> appointmentDTOs = new ArrayList<>();
-        for (Appointment apt : appointments) {
-            System.out.println("Processing Appointment ID: " + apt.getId() + ", Patient: " +
-                (apt.getUser() != null ? apt.getUser().getFirstName() + " " + apt.getUser().getLastName() : "NULL") +
-                ", Doctor: " + (apt.getDoctor() != null ? apt.getDoctor().getName() : "NULL") +
-                ", Status: " + apt.getStatus());
-
-            AdminAppointmentDTO dto = new AdminAppointmentDTO(apt);
-            appointmentDTOs.add(dto);
+        if (from == null) {
+            from = LocalDate.now().minusMonths(adminListingMonths);
+        }
+        LocalDate since = from;
+        response.setHeader("X-Listing-From", since.toString());
+        // Rows go from the cursors of all shards, merged, to the response as they are read
+        try {
+            shardRouter.streamAll(() -> appointmentRepository.streamAdminListingFrom(since), LISTING_ORDER,
+                    AdminAppointmentDTO::doctorId, appointments -> {
+                        try {
+                            jsonStreamWriter.writeArray(response, appointments, AdminAppointmentDTO.class, accept);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-
-        System.out.println("=== Returning " + appointmentDTOs.size() + " appointment DTOs ===");
-        return ResponseEntity.ok(appointmentDTOs);
     }
 
     @GetMapping("/admin/stats")
@@ -65,10 +174,18 @@ public class AdminController {
     public ResponseEntity<Map<String, Object>> getAdminStats() {
         Map<String, Object> stats = new HashMap<>();
 
-        long userCount = userRepository.count();
-        long doctorCount = doctorRepository.count();
-        long appointmentCount = appointmentRepository.count();
-        long pendingAppointments = appointmentRepository.countByStatus(Appointment.AppointmentStatus.BOOKED);
+        // Users and doctors are not sharded; read-only on home, so they can go to its replica
+        long[] homeCounts = shardRouter.inTransaction(ShardContext.HOME, true, () -> new long[]{
+                userRepository.countByDeletedAtIsNull(),
+                doctorRepository.count()});
+        long userCount = homeCounts[0];
+        long doctorCount = homeCounts[1];
+        // Rows of a bucket being moved may be counted twice for a moment
+        List<long[]> shardCounts = shardRouter.scatter(shard -> shardRouter.inTransaction(shard, true, () -> new long[]{
+                appointmentRepository.count(),
+                appointmentRepository.countByStatus(Appointment.AppointmentStatus.BOOKED)}));
+        long appointmentCount = shardCounts.stream().mapToLong(counts -> counts[0]).sum();
+        long pendingAppointments = shardCounts.stream().mapToLong(counts -> counts[1]).sum();
 
         stats.put("totalUsers", userCount);
         stats.put("totalDoctors", doctorCount);
@@ -78,11 +195,147 @@ public class AdminController {
         return ResponseEntity.ok(stats);
     }
 
+    @GetMapping("/admin/shards")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getShards() {
+        return ResponseEntity.ok(shardRebalancer.status());
+    }
+
+    // Moves at most maxMoves buckets towards equal shards; dryRun only returns the plan
+    @PostMapping("/admin/shards/rebalance")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebalanceShards(@RequestParam(defaultValue = "64") int maxMoves,
+                                                               @RequestParam(defaultValue = "false") boolean dryRun) {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            result.put("moves", dryRun ? shardRebalancer.plan(maxMoves) : shardRebalancer.start(maxMoves));
+            result.put("started", !dryRun);
+            return ResponseEntity.ok(result);
+        } catch (IllegalStateException e) {
+            result.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+        }
+    }
+
+    // Audit records written by this node, shipped segments included while they are kept; defaults to the last day
+    @GetMapping("/admin/audit")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<AuditRecord>> getAuditRecords(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String actor,
+            @RequestParam(required = false) AuditAction action,
+            @RequestParam(defaultValue = "1000") int limit) {
+        Instant end = to != null ? to : Instant.now().plusSeconds(1);
+        Instant start = from != null ? from : end.minus(Duration.ofDays(1));
+        return ResponseEntity.ok(auditLog.query(start, end, actor, action, Math.min(limit, 10_000)));
+    }
+
+    // Loads the closed audit segments into audit_events now instead of waiting for the nightly run
+    @PostMapping("/admin/audit/ship")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> shipAudit() {
+        Map<String, Object> result = new HashMap<>();
+        try {
+            result.put("shipped", auditShipper.ship());
+            return ResponseEntity.ok(result);
+        } catch (IllegalStateException e) {
+            result.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+        }
+    }
+
+    // JPQL and native queries of this node by total time spent in them
+    @GetMapping("/admin/queries")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<Map<String, Object>>> getQueryStats(@RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(queryLatencies.costliest(limit));
+    }
+
+    // Recently kept traces of this node, newest first; needs app.tracing.exporter=memory
+    @GetMapping("/admin/traces")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<Map<String, Object>>> getTraces(@RequestParam(defaultValue = "0") double minMs,
+                                                               @RequestParam(defaultValue = "50") int limit) {
+        InMemoryTraceExporter collector = traceCollector.getIfAvailable();
+        if (collector == null) {
+            return ResponseEntity.notFound().build();
+        }
+        List<Map<String, Object>> summaries = new ArrayList<>();
+        for (TraceData trace : collector.recent(minMs, limit)) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("traceId", trace.traceId());
+            summary.put("name", trace.name());
+            summary.put("startedAt", trace.startedAt());
+            summary.put("durationMs", trace.durationMs());
+            summary.put("error", trace.error());
+            summary.put("spans", trace.spans().size() + trace.droppedSpans());
+            summaries.add(summary);
+        }
+        return ResponseEntity.ok(summaries);
+    }
+
+    @GetMapping("/admin/traces/{traceId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<TraceData> getTrace(@PathVariable String traceId) {
+        InMemoryTraceExporter collector = traceCollector.getIfAvailable();
+        if (collector == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return collector.find(traceId).map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    }
+
+    // Doctors are maintained directly in the database, so edits there need an explicit cache flush
+    @PostMapping("/admin/caches/{name}/clear")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> clearCache(@PathVariable String name) {
+        clusterCacheInvalidator.clear(name);
+        if (ClusterCoordinator.ALL_KEYS.equals(name)) {
+            entityCacheInvalidator.evictAll();
+        }
+        if (ClusterCoordinator.ALL_KEYS.equals(name) || NearbyDoctorCache.REGION.equals(name)) {
+            nearbyDoctorCache.clear();
+        }
+        Map<String, Object> result = new HashMap<>();
+        result.put("cleared", name);
+        return ResponseEntity.ok(result);
+    }
+
+    // Second-level cache hit/miss counters of this node, needs hibernate.generate_statistics
+    @GetMapping("/admin/caches/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> result = new HashMap<>();
+        result.put("enabled", statistics.isStatisticsEnabled());
+        result.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        result.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        result.put("secondLevelCachePuts", statistics.getSecondLevelCachePutCount());
+        result.put("naturalIdCacheHits", statistics.getNaturalIdCacheHitCount());
+        result.put("naturalIdCacheMisses", statistics.getNaturalIdCacheMissCount());
+        result.put("naturalIdQueries", statistics.getNaturalIdQueryExecutionCount());
+        result.put("entityLoads", statistics.getEntityLoadCount());
+        result.put("queryExecutions", statistics.getQueryExecutionCount());
+
+        Map<String, Object> regions = new HashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(regionName);
+            Map<String, Object> regionStats = new HashMap<>();
+            regionStats.put("hits", region.getHitCount());
+            regionStats.put("misses", region.getMissCount());
+            regionStats.put("puts", region.getPutCount());
+            regions.put(regionName, regionStats);
+        }
+        result.put("regions", regions);
+        return ResponseEntity.ok(result);
+    }
+
     @GetMapping("/appointments/test")
     public ResponseEntity<String> testAppointments() {
         System.out.println("=== TEST ENDPOINT CALLED ===");
         try {
-            List<Appointment> appointments = appointmentRepository.findAllWithUserAndDoctor();
+            List<Appointment> appointments = shardRouter.readAll(appointmentRepository::findAllWithUserAndDoctor,
+                    appointment -> appointment.getDoctor().getId());
             System.out.println("Direct query found: " + appointments.size() + " appointments");
 
             StringBuilder result = new StringBuilder();
@@ -107,8 +360,10 @@ public class AdminController {
 
     @PutMapping("/users/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User userUpdate) {
+    public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User userUpdate,
+                                           Authentication authentication) {
         return userRepository.findById(id)
+                .filter(user -> !user.isDeleted())
                 .map(user -> {
                     if (userUpdate.getFirstName() != null) {
                         user.setFirstName(userUpdate.getFirstName());
@@ -128,19 +383,28 @@ public class AdminController {
                     if (userUpdate.getRole() != null) {
                         user.setRole(userUpdate.getRole());
                     }
-                    return ResponseEntity.ok(userRepository.save(user));
+                    User saved = userRepository.save(user);
+                    auditLog.record(AuditAction.USER_UPDATE, authentication.getName(), id, user.getEmail());
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /** 200 once the user's data is gone, 202 while their appointments are still being deleted. */
     @DeleteMapping("/users/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<?> deleteUser(@PathVariable Long id) {
-        return userRepository.findById(id)
-                .map(user -> {
-                    userRepository.delete(user);
-                    return ResponseEntity.ok().build();
-                })
+    public ResponseEntity<UserDeletion> deleteUser(@PathVariable Long id, Authentication authentication) {
+        return userDeletionService.deleteUser(id, authentication.getName())
+                .map(deletion -> ResponseEntity.status(deletion.getStatus() == UserDeletion.Status.COMPLETED
+                        ? HttpStatus.OK : HttpStatus.ACCEPTED).body(deletion))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/users/{id}/deletion")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserDeletion> getUserDeletion(@PathVariable Long id) {
+        return userDeletionService.getDeletion(id)
+                .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 }
\ No newline at end of file
@@ -2,11 +2,18 @@ package com.appointment.controller;
 
 import com.appointment.dto.AppointmentDTO;
 import com.appointment.dto.CreateAppointmentRequest;
+import com.appointment.exception.CustomExceptions;
+import com.appointment.repository.AppointmentRepositoryCustom;
+import com.appointment.repository.FieldSelection;
 import com.appointment.service.AppointmentService;
+import com.appointment.service.IdempotencyService;
+import com.appointment.waitingroom.WaitingRoom;
+import com.appointment.waitingroom.WaitingRoomTicket;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -15,6 +22,7 @@ import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/appointments")
@@ -26,6 +34,12 @@ public class AppointmentController {
     @Autowired
     private AppointmentService appointmentService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private WaitingRoom waitingRoom;
+
     @SuppressWarnings("null")
     private ResponseEntity<Map<String, Object>> createErrorResponse(HttpStatus status, String message, Exception e) {
         Map<String, Object> errorResponse = new HashMap<>();
@@ -45,6 +59,7 @@ public class AppointmentController {
     @PostMapping
     public ResponseEntity<?> createAppointment(
             @Valid @RequestBody CreateAppointmentRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             Authentication authentication) {
         try {
             String userEmail = authentication.getName();
@@ -52,10 +67,37 @@ public class AppointmentController {
                 return createErrorResponse(HttpStatus.UNAUTHORIZED, "Authentication required", null);
             }
 
-            AppointmentDTO appointment = appointmentService.createAppointment(request, userEmail);
-            return ResponseEntity.ok(appointment);
+            // A retry is answered from its stored result, the waiting room would refuse its already booked slot
+            if (idempotencyKey != null) {
+                Optional<AppointmentDTO> replayed = idempotencyService.replay(userEmail, idempotencyKey, request);
+                if (replayed.isPresent()) {
+                    return ResponseEntity.ok(replayed.get());
+                }
+            }
+
+            WaitingRoomTicket ticket = waitingRoom.enter(userEmail, request, () -> idempotencyKey != null
+                    ? idempotencyService.execute(userEmail, idempotencyKey, request,
+                            () -> appointmentService.createAppointment(request, userEmail))
+                    : appointmentService.createAppointment(request, userEmail));
+            if (ticket.getState() == WaitingRoomTicket.State.BOOKED) {
+                return ResponseEntity.ok(ticket.getAppointment());
+            }
+            // Queued behind other bookings of this doctor, the client polls the ticket
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/api/appointments/waiting-room/" + ticket.getToken())
+                    .body(ticketStatus(ticket));
+        } catch (CustomExceptions.WaitingRoomFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(createErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), null).getBody());
+        } catch (CustomExceptions.ShardMovingException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(createErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), null).getBody());
         } catch (IllegalArgumentException e) {
             return createErrorResponse(HttpStatus.BAD_REQUEST, "Invalid appointment request: " + e.getMessage(), e);
+        } catch (CustomExceptions.AppointmentConflictException e) {
+            return createErrorResponse(HttpStatus.CONFLICT, e.getMessage(), null);
         } catch (RuntimeException e) {
             String message = e.getMessage();
             if (message != null && message.toLowerCase().contains("not found")) {
@@ -67,14 +109,60 @@ public class AppointmentController {
         }
     }
 
+    @GetMapping("/waiting-room/{token}")
+    public ResponseEntity<?> getWaitingRoomTicket(@PathVariable String token, Authentication authentication) {
+        WaitingRoomTicket ticket = waitingRoom.getTicket(token, authentication.getName());
+        if (ticket == null) {
+            return createErrorResponse(HttpStatus.NOT_FOUND, "Waiting room ticket not found or expired", null);
+        }
+        return ResponseEntity.ok(ticketStatus(ticket));
+    }
+
+    private Map<String, Object> ticketStatus(WaitingRoomTicket ticket) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("token", ticket.getToken());
+        status.put("doctorId", ticket.getDoctorId());
+        status.put("status", ticket.getState().name());
+        switch (ticket.getState()) {
+            case WAITING -> {
+                long position = waitingRoom.positionOf(ticket);
+                status.put("position", position);
+                status.put("estimatedWaitSeconds", waitingRoom.estimatedWaitSeconds(position));
+            }
+            case BOOKED -> status.put("appointment", ticket.getAppointment());
+            case FAILED -> {
+                RuntimeException failure = ticket.getFailure();
+                String message = failure.getMessage();
+                HttpStatus httpStatus = HttpStatus.BAD_REQUEST;
+                if (failure instanceof CustomExceptions.AppointmentConflictException) {
+                    httpStatus = HttpStatus.CONFLICT;
+                } else if (message != null && message.toLowerCase().contains("not found")) {
+                    httpStatus = HttpStatus.NOT_FOUND;
+                }
+                status.put("message", message);
+                status.put("httpStatus", httpStatus.value());
+            }
+            default -> {
+            }
+        }
+        return status;
+    }
+
     @GetMapping
-    public ResponseEntity<?> getUserAppointments(Authentication authentication) {
+    public ResponseEntity<?> getUserAppointments(
+            @RequestParam(required = false) String fields,
+            Authentication authentication) {
         try {
             String userEmail = authentication.getName();
             if (userEmail == null || userEmail.trim().isEmpty()) {
                 return createErrorResponse(HttpStatus.UNAUTHORIZED, "Authentication required", null);
             }
 
+            if (fields != null) {
+                return ResponseEntity.ok(appointmentService.getUserAppointments(userEmail,
+                        FieldSelection.parse(fields, AppointmentRepositoryCustom.FIELDS)));
+            }
+
             List<AppointmentDTO> appointments = appointmentService.getUserAppointments(userEmail);
             return ResponseEntity.ok(appointments);
         } catch (RuntimeException e) {
@@ -152,6 +240,10 @@ public class AppointmentController {
 
             AppointmentDTO appointment = appointmentService.cancelAppointment(id, userEmail);
             return ResponseEntity.ok(appointment);
+        } catch (CustomExceptions.ShardMovingException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(createErrorResponse(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), null).getBody());
         } catch (IllegalArgumentException e) {
             return createErrorResponse(HttpStatus.BAD_REQUEST, "Invalid cancellation request: " + e.getMessage(), e);
         } catch (RuntimeException e) {
@@ -2,6 +2,7 @@ package com.appointment.controller;
 
 import com.appointment.dto.LoginRequest;
 import com.appointment.dto.LoginResponse;
+import com.appointment.security.JwtUtil;
 import com.appointment.service.AuthService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +17,9 @@ public class AuthController {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private JwtUtil jwtUtil;
+
     @PostMapping("/login")
     public ResponseEntity<?> login(@Valid @RequestBody LoginRequest loginRequest) {
         try {
@@ -79,7 +83,7 @@ public class AuthController {
     public ResponseEntity<?> getCurrentUser(@RequestHeader("Authorization") String token) {
         try {
             String email = extractEmailFromToken(token);
-            var user = authService.getCurrentUser(email);
+            var user = authService.getProfile(email);
             return ResponseEntity.ok(user);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Invalid token");
@@ -118,7 +122,7 @@ public class AuthController {
 
     private String extractEmailFromToken(String authHeader) {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            return authHeader.substring(7);
+            return jwtUtil.extractEmail(authHeader.substring(7));
         }
         throw new RuntimeException("Invalid token format");
     }
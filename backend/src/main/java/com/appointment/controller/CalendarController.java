@@ -0,0 +1,92 @@
+package com.appointment.controller;
+
+import com.appointment.calendar.CalendarFeed;
+import com.appointment.calendar.CalendarFeedService;
+import com.appointment.calendar.CalendarFeedTokens;
+import com.appointment.entity.User;
+import com.appointment.service.AuthService;
+import com.appointment.service.DoctorService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/calendar")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5174", "http://localhost:5175", "http://localhost:5176", "http://localhost:5177", "http://127.0.0.1:5173", "http://127.0.0.1:5174", "http://127.0.0.1:5175", "http://127.0.0.1:5176", "http://127.0.0.1:5177"})
+public class CalendarController {
+
+    @Autowired
+    private CalendarFeedService calendarFeedService;
+
+    @Autowired
+    private CalendarFeedTokens calendarFeedTokens;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private DoctorService doctorService;
+
+    @Value("${app.calendar.max-age-seconds:300}")
+    private long maxAgeSeconds;
+
+    @GetMapping("/feed-url")
+    public ResponseEntity<Map<String, Object>> getMyFeedUrl(Authentication authentication) {
+        User user = authService.getCurrentUser(authentication.getName());
+        return ResponseEntity.ok(feedUrl(CalendarFeed.forUser(user.getId())));
+    }
+
+    @GetMapping("/doctors/{id}/feed-url")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getDoctorFeedUrl(@PathVariable Long id) {
+        doctorService.getDoctorEntityById(id);
+        return ResponseEntity.ok(feedUrl(CalendarFeed.forDoctor(id)));
+    }
+
+    // Public, the token in the path is the credential
+    @GetMapping("/feeds/{kind}/{id}/{token}.ics")
+    public void getFeed(@PathVariable String kind, @PathVariable long id, @PathVariable String token,
+                        ServletWebRequest webRequest, HttpServletResponse response) throws IOException {
+        CalendarFeed feed = CalendarFeed.parse(kind, id);
+        if (feed == null || !calendarFeedTokens.isValid(feed, token)) {
+            response.setStatus(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        response.setHeader("Cache-Control", "private, max-age=" + maxAgeSeconds);
+        calendarFeedService.writeFeed(feed, new CalendarFeedService.FeedTarget() {
+            @Override
+            public boolean notModified(String etag) {
+                return webRequest.checkNotModified(etag);
+            }
+
+            @Override
+            public OutputStream open(String etag) throws IOException {
+                response.setContentType("text/calendar;charset=UTF-8");
+                return response.getOutputStream();
+            }
+        });
+    }
+
+    private Map<String, Object> feedUrl(CalendarFeed feed) {
+        String url = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/calendar/feeds/{kind}/{id}/{token}.ics")
+                .buildAndExpand(feed.pathSegment(), feed.getId(), calendarFeedTokens.tokenFor(feed))
+                .toUriString();
+        Map<String, Object> result = new HashMap<>();
+        result.put("feed", feed.key());
+        result.put("url", url);
+        return result;
+    }
+}
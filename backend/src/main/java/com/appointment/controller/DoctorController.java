@@ -1,13 +1,23 @@
 package com.appointment.controller;
 
+import com.appointment.config.JsonStreamWriter;
+import com.appointment.dto.AvailableSlotDTO;
 import com.appointment.dto.DoctorDTO;
+import com.appointment.repository.DoctorRepositoryCustom;
+import com.appointment.repository.FieldSelection;
 import com.appointment.service.DoctorService;
+import com.appointment.service.FirstAvailableSlotService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/doctors")
@@ -17,11 +27,24 @@ public class DoctorController {
     @Autowired
     private DoctorService doctorService;
 
+    @Autowired
+    private FirstAvailableSlotService firstAvailableSlotService;
+
+    @Autowired
+    private JsonStreamWriter jsonStreamWriter;
+
     @GetMapping
-    public ResponseEntity<List<DoctorDTO>> getAllDoctors() {
+    public ResponseEntity<StreamingResponseBody> getAllDoctors(
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         try {
+            if (fields != null) {
+                List<Map<String, Object>> doctors = doctorService.getAllDoctors(
+                        FieldSelection.parse(fields, DoctorRepositoryCustom.FIELDS));
+                return jsonStreamWriter.arrayResponse(doctors, Map.class, accept);
+            }
             List<DoctorDTO> doctors = doctorService.getAllDoctors();
-            return ResponseEntity.ok(doctors);
+            return jsonStreamWriter.arrayResponse(doctors, DoctorDTO.class, accept);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(null);
         }
@@ -56,15 +79,38 @@ public class DoctorController {
     }
 
     @GetMapping("/nearby")
-    public ResponseEntity<List<DoctorDTO>> getNearbyDoctors(
+    public ResponseEntity<List<?>> getNearbyDoctors(
             @RequestParam BigDecimal latitude,
             @RequestParam BigDecimal longitude,
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String fields) {
         try {
+            if (fields != null) {
+                return ResponseEntity.ok(doctorService.getNearbyDoctors(latitude, longitude, limit,
+                        FieldSelection.parse(fields, DoctorRepositoryCustom.NEARBY_FIELDS)));
+            }
             List<DoctorDTO> doctors = doctorService.getNearbyDoctors(latitude, longitude, limit);
             return ResponseEntity.ok(doctors);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(null);
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/first-available")
+    public ResponseEntity<List<AvailableSlotDTO>> getFirstAvailableSlots(
+            @RequestParam(required = false) String specialty,
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "10") double radiusKm,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(defaultValue = "14") int days,
+            @RequestParam(defaultValue = "5") int limit) {
+        try {
+            List<AvailableSlotDTO> slots = firstAvailableSlotService.findFirstAvailable(
+                    specialty, latitude, longitude, radiusKm, from, days, limit);
+            return ResponseEntity.ok(slots);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(null);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.appointment.dto;
+
+import java.time.LocalDateTime;
+
+/** A user as the admin directory lists them, without credentials or location. */
+public record AdminUserDTO(
+        Long id,
+        String firstName,
+        String lastName,
+        String email,
+        String role,
+        String city,
+        LocalDateTime createdAt,
+        LocalDateTime lastLogin) {
+}
@@ -6,150 +6,36 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 
-public class AppointmentDTO {
-    private Long id;
-    private Long userId;
-    private String userFirstName;
-    private String userLastName;
-    private String userEmail;
-    private Long doctorId;
-    private String doctorName;
-    private String doctorSpecialty;
-    private String doctorAddress;
-    private String doctorPhone;
-    private LocalDate appointmentDate;
-    private LocalTime appointmentTime;
-    private String status;
-    private LocalDateTime createdAt;
-
-    public AppointmentDTO() {}
+public record AppointmentDTO(
+        Long id,
+        Long userId,
+        String userFirstName,
+        String userLastName,
+        String userEmail,
+        Long doctorId,
+        String doctorName,
+        String doctorSpecialty,
+        String doctorAddress,
+        String doctorPhone,
+        LocalDate appointmentDate,
+        LocalTime appointmentTime,
+        String status,
+        LocalDateTime createdAt) {
 
     public AppointmentDTO(Appointment appointment) {
-        this.id = appointment.getId();
-        this.userId = appointment.getUser().getId();
-        this.userFirstName = appointment.getUser().getFirstName();
-        this.userLastName = appointment.getUser().getLastName();
-        this.userEmail = appointment.getUser().getEmail();
-        this.doctorId = appointment.getDoctor().getId();
-        this.doctorName = appointment.getDoctor().getName();
-        this.doctorSpecialty = appointment.getDoctor().getSpecialty();
-        this.doctorAddress = appointment.getDoctor().getAddress();
-        this.doctorPhone = appointment.getDoctor().getPhone();
-        this.appointmentDate = appointment.getAppointmentDate();
-        this.appointmentTime = appointment.getAppointmentTime();
-        this.status = appointment.getStatus().toString();
-        this.createdAt = appointment.getCreatedAt();
-    }
-
-    public Long getId() {
-        return id;
-    }
-
-    public void setId(Long id) {
-        this.id = id;
-    }
-
-    public Long getUserId() {
-        return userId;
-    }
-
-    public void setUserId(Long userId) {
-        this.userId = userId;
-    }
-
-    public String getUserFirstName() {
-        return userFirstName;
-    }
-
-    public void setUserFirstName(String userFirstName) {
-        this.userFirstName = userFirstName;
-    }
-
-    public String getUserLastName() {
-        return userLastName;
-    }
-
-    public void setUserLastName(String userLastName) {
-        this.userLastName = userLastName;
-    }
-
-    public String getUserEmail() {
-        return userEmail;
-    }
-
-    public void setUserEmail(String userEmail) {
-        this.userEmail = userEmail;
-    }
-
-    public Long getDoctorId() {
-        return doctorId;
-    }
-
-    public void setDoctorId(Long doctorId) {
-        this.doctorId = doctorId;
-    }
-
-    public String getDoctorName() {
-        return doctorName;
-    }
-
-    public void setDoctorName(String doctorName) {
-        this.doctorName = doctorName;
-    }
-
-    public String getDoctorSpecialty() {
-        return doctorSpecialty;
-    }
-
-    public void setDoctorSpecialty(String doctorSpecialty) {
-        this.doctorSpecialty = doctorSpecialty;
-    }
-
-    public String getDoctorAddress() {
-        return doctorAddress;
-    }
-
-    public void setDoctorAddress(String doctorAddress) {
-        this.doctorAddress = doctorAddress;
-    }
-
-    public String getDoctorPhone() {
-        return doctorPhone;
-    }
-
-    public void setDoctorPhone(String doctorPhone) {
-        this.doctorPhone = doctorPhone;
-    }
-
-    public LocalDate getAppointmentDate() {
-        return appointmentDate;
-    }
-
-    public void setAppointmentDate(LocalDate appointmentDate) {
-        this.appointmentDate = appointmentDate;
-    }
-
-    public LocalTime getAppointmentTime() {
-        return appointmentTime;
-    }
-
-    public void setAppointmentTime(LocalTime appointmentTime) {
-        this.appointmentTime = appointmentTime;
-    }
-
-    public String getStatus() {
-        return status;
-    }
-
-    public void setStatus(String status) {
-        this.status = status;
-    }
-
-    public LocalDateTime getCreatedAt() {
-        return createdAt;
-    }
-
-    public void setCreatedAt(LocalDateTime createdAt) {
-        this.createdAt = createdAt;
-    }
-}
\ No newline at end of file
+        this(appointment.getId(),
+                appointment.getUser().getId(),
+                appointment.getUser().getFirstName(),
+                appointment.getUser().getLastName(),
+                appointment.getUser().getEmail(),
+                appointment.getDoctor().getId(),
+                appointment.getDoctor().getName(),
+                appointment.getDoctor().getSpecialty(),
+                appointment.getDoctor().getAddress(),
+                appointment.getDoctor().getPhone(),
+                appointment.getAppointmentDate(),
+                appointment.getAppointmentTime(),
+                appointment.getStatus().toString(),
+                appointment.getCreatedAt());
+    }
+}
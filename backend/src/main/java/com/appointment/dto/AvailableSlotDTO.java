@@ -0,0 +1,14 @@
+package com.appointment.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public record AvailableSlotDTO(
+        Long doctorId,
+        String doctorName,
+        String specialty,
+        String address,
+        Double distance,
+        LocalDate appointmentDate,
+        LocalTime appointmentTime) {
+}
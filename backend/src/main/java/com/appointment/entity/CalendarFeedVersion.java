@@ -0,0 +1,32 @@
+package com.appointment.entity;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "calendar_feed_versions")
+public class CalendarFeedVersion {
+    @Id
+    @Column(name = "feed_key", length = 64)
+    private String feedKey;
+
+    @Column(nullable = false)
+    private long version;
+
+    public CalendarFeedVersion() {}
+
+    public String getFeedKey() {
+        return feedKey;
+    }
+
+    public void setFeedKey(String feedKey) {
+        this.feedKey = feedKey;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,114 @@
+package com.appointment.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/** Progress of deleting a user's data, kept after completion as the record of the deletion. */
+@Entity
+@Table(name = "user_deletions")
+public class UserDeletion {
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "requested_by", length = 100, nullable = false)
+    private String requestedBy;
+
+    @Column(name = "requested_at", nullable = false)
+    private LocalDateTime requestedAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20, nullable = false)
+    private Status status = Status.PENDING;
+
+    @Column(name = "appointments_total", nullable = false)
+    private long appointmentsTotal;
+
+    @Column(name = "appointments_deleted", nullable = false)
+    private long appointmentsDeleted;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Last failure, the deletion is retried on the next run
+    @Column(columnDefinition = "text")
+    private String error;
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED
+    }
+
+    public UserDeletion() {}
+
+    public UserDeletion(Long userId, String requestedBy, long appointmentsTotal) {
+        this.userId = userId;
+        this.requestedBy = requestedBy;
+        this.appointmentsTotal = appointmentsTotal;
+        this.requestedAt = LocalDateTime.now();
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getRequestedBy() {
+        return requestedBy;
+    }
+
+    public void setRequestedBy(String requestedBy) {
+        this.requestedBy = requestedBy;
+    }
+
+    public LocalDateTime getRequestedAt() {
+        return requestedAt;
+    }
+
+    public void setRequestedAt(LocalDateTime requestedAt) {
+        this.requestedAt = requestedAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public long getAppointmentsTotal() {
+        return appointmentsTotal;
+    }
+
+    public void setAppointmentsTotal(long appointmentsTotal) {
+        this.appointmentsTotal = appointmentsTotal;
+    }
+
+    public long getAppointmentsDeleted() {
+        return appointmentsDeleted;
+    }
+
+    public void setAppointmentsDeleted(long appointmentsDeleted) {
+        this.appointmentsDeleted = appointmentsDeleted;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
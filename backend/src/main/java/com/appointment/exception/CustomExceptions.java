@@ -37,4 +37,30 @@ public class CustomExceptions {
             super(message);
         }
     }
+
+    public static class WaitingRoomFullException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public WaitingRoomFullException(String message, long retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    public static class ShardMovingException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public ShardMovingException(String message, long retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+package com.appointment.location;
+
+import com.appointment.cluster.EntityCacheInvalidator;
+import com.appointment.entity.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for user locations, which devices post far more often than anyone reads them.
+ * <p>
+ * An update only replaces the user's entry in memory, the latest one wins. Every {@code flush-interval-ms},
+ * or as soon as {@code flush-size} users are waiting, the entries are written in batched UPDATEs of
+ * {@code batch-size} rows, in id order so that nodes flushing together lock rows in the same order.
+ * Until then {@link #pending} answers reads on this node. A crash loses at most one interval of
+ * locations; they are sent again as the device moves.
+ */
+@Component
+public class LocationWriteBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationWriteBuffer.class);
+
+    // Tombstones of deleted users must not get a location back
+    private static final String UPDATE_SQL =
+            "UPDATE users SET latitude = ?, longitude = ?, address = ?, city = ?, state = ?, country = ? " +
+            "WHERE id = ? AND deleted_at IS NULL";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityCacheInvalidator entityCacheInvalidator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.location.buffer.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.location.buffer.flush-size:5000}")
+    private int flushSize;
+
+    @Value("${app.location.buffer.batch-size:500}")
+    private int batchSize;
+
+    private final Map<Long, UserLocation> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private ExecutorService flushExecutor;
+    private Counter updatesCounter;
+    private Counter coalescedCounter;
+    private Counter writtenCounter;
+
+    @PostConstruct
+    void init() {
+        flushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "location-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("users.location.pending", pending, Map::size)
+                .description("User locations waiting to be written")
+                .register(meterRegistry);
+        updatesCounter = Counter.builder("users.location.updates").register(meterRegistry);
+        coalescedCounter = Counter.builder("users.location.coalesced")
+                .description("Location updates replaced by a newer one before being written")
+                .register(meterRegistry);
+        writtenCounter = Counter.builder("users.location.written").register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        flush();
+    }
+
+    public void update(Long userId, UserLocation location) {
+        updatesCounter.increment();
+        if (!enabled) {
+            write(List.of(Map.entry(userId, location)));
+            return;
+        }
+        if (pending.put(userId, location) != null) {
+            coalescedCounter.increment();
+        }
+        if (pending.size() >= flushSize && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Puts an address saved by other means into the user's waiting entry, if there is one, so that the
+     * next flush does not write the older address over it. Call it before saving the address: an entry
+     * being written meanwhile is no longer the buffered one, so it stays for the next flush.
+     */
+    public void addressChanged(Long userId, String address) {
+        pending.computeIfPresent(userId, (id, location) -> location.withAddress(address));
+    }
+
+    /** The location of {@code userId} that is not written yet, if any. */
+    public Optional<UserLocation> pending(Long userId) {
+        return Optional.ofNullable(pending.get(userId));
+    }
+
+    @Scheduled(fixedDelayString = "${app.location.buffer.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty() || !flushLock.tryLock()) {
+            return;
+        }
+        try {
+            List<Long> userIds = new ArrayList<>(pending.keySet());
+            userIds.sort(null);
+            for (int from = 0; from < userIds.size(); from += batchSize) {
+                List<Long> chunk = userIds.subList(from, Math.min(from + batchSize, userIds.size()));
+                List<Map.Entry<Long, UserLocation>> batch = new ArrayList<>(chunk.size());
+                for (Long userId : chunk) {
+                    UserLocation location = pending.get(userId);
+                    if (location != null) {
+                        batch.add(Map.entry(userId, location));
+                    }
+                }
+                try {
+                    write(batch);
+                } catch (RuntimeException e) {
+                    // Entries stay buffered unless replaced meanwhile and are tried again on the next flush
+                    logger.warn("Writing {} user locations failed", batch.size(), e);
+                    return;
+                }
+                // A newer location that arrived during the write stays for the next flush
+                batch.forEach(entry -> pending.remove(entry.getKey(), entry.getValue()));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(List<Map.Entry<Long, UserLocation>> batch) {
+        jdbcTemplate.batchUpdate(UPDATE_SQL, batch, batch.size(), (ps, entry) -> {
+            UserLocation location = entry.getValue();
+            ps.setObject(1, location.latitude(), Types.DOUBLE);
+            ps.setObject(2, location.longitude(), Types.DOUBLE);
+            ps.setString(3, location.address());
+            ps.setString(4, location.city());
+            ps.setString(5, location.state());
+            ps.setString(6, location.country());
+            ps.setLong(7, entry.getKey());
+        });
+        writtenCounter.increment(batch.size());
+        // The cached entities still have the old location
+        batch.forEach(entry -> entityCacheInvalidator.evict(User.class, entry.getKey()));
+    }
+}
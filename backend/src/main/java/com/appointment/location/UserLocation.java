@@ -0,0 +1,22 @@
+package com.appointment.location;
+
+import com.appointment.entity.User;
+
+/** Where a user's device last was, as posted to {@code /api/auth/location}. */
+public record UserLocation(Double latitude, Double longitude, String address, String city, String state,
+                           String country) {
+
+    public UserLocation withAddress(String address) {
+        return new UserLocation(latitude, longitude, address, city, state, country);
+    }
+
+    /** Sets the location on {@code user}, which must not be managed or the change is written again. */
+    public void applyTo(User user) {
+        user.setLatitude(latitude);
+        user.setLongitude(longitude);
+        user.setAddress(address);
+        user.setCity(city);
+        user.setState(state);
+        user.setCountry(country);
+    }
+}
@@ -0,0 +1,169 @@
+package com.appointment.maintenance;
+
+import com.appointment.cluster.ClusterCoordinator;
+import com.appointment.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves BOOKED appointments that are over to COMPLETED.
+ * <p>
+ * Runs on the cluster leader only. Work is done in chunks of {@code chunk-size} rows, each its own short
+ * UPDATE walking the partial BOOKED index in {@code (appointment_date, id)} order from where the previous
+ * chunk stopped, with a pause between chunks. Rows locked by a booking transaction are skipped and picked
+ * up on the next run, so the job never waits on user traffic. A run stops after {@code max-chunks}
+ * on each shard, one shard after the other.
+ */
+@Component
+public class AppointmentCompletionJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentCompletionJob.class);
+
+    private static final String LEADER_ROLE = "appointment-completion";
+    private static final LocalDate KEYSET_START = LocalDate.of(1, 1, 1);
+
+    private static final String COMPLETE_CHUNK_SQL =
+            "UPDATE appointments SET status = 'COMPLETED' WHERE id IN (" +
+            "SELECT id FROM appointments WHERE status = 'BOOKED' AND (appointment_date, id) > (?, ?) " +
+            "AND (appointment_date < ? OR (appointment_date = ? AND appointment_time < ?)) " +
+            "ORDER BY appointment_date, id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING appointment_date, id";
+
+    private static final String OLDEST_OVERDUE_SQL =
+            "SELECT min(appointment_date + appointment_time) FROM appointments WHERE status = 'BOOKED' " +
+            "AND (appointment_date < ? OR (appointment_date = ? AND appointment_time < ?))";
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.maintenance.completion.enabled:true}")
+    private boolean enabled;
+
+    // How long after its start an appointment counts as over
+    @Value("${app.maintenance.completion.grace-minutes:60}")
+    private long graceMinutes;
+
+    @Value("${app.maintenance.completion.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.maintenance.completion.max-chunks:200}")
+    private int maxChunks;
+
+    @Value("${app.maintenance.completion.throttle-ms:200}")
+    private long throttleMs;
+
+    private final AtomicLong lagSeconds = new AtomicLong();
+    private final AtomicLong lastRunCompleted = new AtomicLong();
+    private final AtomicLong lastRunMillis = new AtomicLong();
+    private Counter completedCounter;
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("appointments.completion.lag", lagSeconds, AtomicLong::get)
+                .description("Age of the oldest appointment that is over but still BOOKED")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("appointments.completion.last-run.completed", lastRunCompleted, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("appointments.completion.last-run.duration", lastRunMillis, AtomicLong::get)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        completedCounter = Counter.builder("appointments.completion.completed").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.maintenance.completion.interval-ms:300000}",
+               initialDelayString = "${app.maintenance.completion.initial-delay-ms:60000}")
+    public void run() {
+        if (!enabled || !clusterCoordinator.isLeader(LEADER_ROLE)) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(graceMinutes);
+        int completed = 0;
+        int chunks = 0;
+        try {
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                JdbcTemplate jdbc = shardRouter.jdbc(shard);
+                LocalDate lastDate = KEYSET_START;
+                long lastId = 0;
+                for (int shardChunks = 0; shardChunks < maxChunks; shardChunks++) {
+                    List<ChunkKey> keys = jdbc.query(COMPLETE_CHUNK_SQL,
+                            (rs, rowNum) -> new ChunkKey(rs.getObject(1, LocalDate.class), rs.getLong(2)),
+                            lastDate, lastId, cutoff.toLocalDate(), cutoff.toLocalDate(), cutoff.toLocalTime(), chunkSize);
+                    chunks++;
+                    completed += keys.size();
+                    completedCounter.increment(keys.size());
+                    if (keys.size() < chunkSize) {
+                        break;
+                    }
+                    for (ChunkKey key : keys) {
+                        if (key.isAfter(lastDate, lastId)) {
+                            lastDate = key.date;
+                            lastId = key.id;
+                        }
+                    }
+                    Thread.sleep(throttleMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lastRunCompleted.set(completed);
+            lastRunMillis.set(System.currentTimeMillis() - started);
+        }
+        updateLag(cutoff);
+        if (completed > 0) {
+            logger.info("Completed {} past appointments in {} chunks ({} ms), lag now {} s",
+                    completed, chunks, lastRunMillis.get(), lagSeconds.get());
+        }
+    }
+
+    private void updateLag(LocalDateTime cutoff) {
+        long lag = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            Timestamp oldest = shardRouter.jdbc(shard).queryForObject(OLDEST_OVERDUE_SQL, Timestamp.class,
+                    cutoff.toLocalDate(), cutoff.toLocalDate(), cutoff.toLocalTime());
+            if (oldest != null) {
+                lag = Math.max(lag, Duration.between(oldest.toLocalDateTime(), cutoff).getSeconds());
+            }
+        }
+        lagSeconds.set(lag);
+    }
+
+    private static final class ChunkKey {
+        private final LocalDate date;
+        private final long id;
+
+        private ChunkKey(LocalDate date, long id) {
+            this.date = date;
+            this.id = id;
+        }
+
+        private boolean isAfter(LocalDate otherDate, long otherId) {
+            int byDate = date.compareTo(otherDate);
+            return byDate > 0 || (byDate == 0 && id > otherId);
+        }
+    }
+}
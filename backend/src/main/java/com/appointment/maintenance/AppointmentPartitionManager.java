@@ -0,0 +1,207 @@
+package com.appointment.maintenance;
+
+import com.appointment.cluster.ClusterCoordinator;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps {@code appointments} range partitioned by month of {@code appointment_date}.
+ * <p>
+ * When enabled, a plain {@code appointments} table (as created by Hibernate) is converted at startup:
+ * the rows are copied into a new partitioned table in one transaction, keeping the id sequence, indexes
+ * and foreign keys. This rewrites the table once, so on a large database run the first start in a
+ * maintenance window. The primary key becomes {@code (id, appointment_date)}, as PostgreSQL requires
+ * the partition key in it.
+ * <p>
+ * Afterwards the leader makes sure monthly partitions exist {@code months-ahead} into the future, and
+ * detaches partitions older than {@code retention-months} into the {@code archive-schema}, where they
+ * stay queryable but no longer slow down the live table. A default partition catches dates outside the
+ * created range; its rows move into the right partition when that partition is created.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class AppointmentPartitionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentPartitionManager.class);
+
+    private static final String TABLE = "appointments";
+    private static final String LEGACY_TABLE = "appointments_unpartitioned";
+    private static final String DEFAULT_PARTITION = "appointments_default";
+    private static final String PARTITION_PREFIX = "appointments_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String LEADER_ROLE = "appointment-partitions";
+    private static final int PARTITION_LOCK_NAMESPACE = 4;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Value("${app.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    // 0 keeps every partition attached
+    @Value("${app.partitioning.retention-months:24}")
+    private int retentionMonths;
+
+    @Value("${app.partitioning.archive-schema:archive}")
+    private String archiveSchema;
+
+    @PostConstruct
+    void convertIfNeeded() {
+        if (!enabled) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(?, 0)", rs -> {}, PARTITION_LOCK_NAMESPACE);
+            if (!isPartitioned()) {
+                convert();
+            }
+            ensurePartitions();
+        });
+    }
+
+    @Scheduled(cron = "${app.partitioning.maintenance-cron:0 30 3 * * *}")
+    public void maintain() {
+        if (!enabled || !clusterCoordinator.isLeader(LEADER_ROLE)) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(?, 0)", rs -> {}, PARTITION_LOCK_NAMESPACE);
+            ensurePartitions();
+        });
+        if (retentionMonths > 0) {
+            archiveOldPartitions();
+        }
+    }
+
+    private boolean isPartitioned() {
+        String kind = jdbcTemplate.queryForObject(
+                "SELECT c.relkind::text FROM pg_class c WHERE c.oid = to_regclass(?)", String.class, TABLE);
+        return "p".equals(kind);
+    }
+
+    private void convert() {
+        long started = System.currentTimeMillis();
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT pg_get_indexdef(i.indexrelid) FROM pg_index i " +
+                "WHERE i.indrelid = to_regclass(?) AND NOT i.indisprimary", String.class, TABLE);
+        List<String> indexNames = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+                "WHERE i.indrelid = to_regclass(?) AND NOT i.indisprimary", String.class, TABLE);
+        List<String> foreignKeys = jdbcTemplate.queryForList(
+                "SELECT 'ALTER TABLE " + TABLE + " ADD CONSTRAINT ' || quote_ident(conname) || ' ' || " +
+                "pg_get_constraintdef(oid) FROM pg_constraint WHERE conrelid = to_regclass(?) AND contype = 'f'",
+                String.class, TABLE);
+        String sequence = jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence(?, 'id')", String.class, TABLE);
+
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + LEGACY_TABLE);
+        jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " RENAME CONSTRAINT " + TABLE + "_pkey TO " + LEGACY_TABLE + "_pkey");
+        for (String indexName : indexNames) {
+            jdbcTemplate.execute("DROP INDEX " + indexName);
+        }
+        if (sequence != null) {
+            // Otherwise the sequence would be dropped together with the old table
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " OWNED BY NONE");
+        }
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (LIKE " + LEGACY_TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS " +
+                "INCLUDING STORAGE) PARTITION BY RANGE (appointment_date)");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT " + TABLE + "_pkey PRIMARY KEY (id, appointment_date)");
+        jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+
+        LocalDate oldest = jdbcTemplate.queryForObject("SELECT min(appointment_date) FROM " + LEGACY_TABLE, LocalDate.class);
+        YearMonth month = oldest != null ? YearMonth.from(oldest) : YearMonth.now();
+        for (; !month.isAfter(YearMonth.now().plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            jdbcTemplate.execute("CREATE TABLE " + partitionName(month) + " PARTITION OF " + TABLE + " FOR VALUES FROM ('"
+                    + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+        }
+
+        for (String index : indexes) {
+            jdbcTemplate.execute(index.replace(" ON public." + LEGACY_TABLE + " ", " ON " + TABLE + " ")
+                    .replace(" ON " + LEGACY_TABLE + " ", " ON " + TABLE + " "));
+        }
+        int copied = jdbcTemplate.update("INSERT INTO " + TABLE + " SELECT * FROM " + LEGACY_TABLE);
+        for (String foreignKey : foreignKeys) {
+            jdbcTemplate.execute(foreignKey);
+        }
+        if (sequence != null) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " OWNED BY " + TABLE + ".id");
+        }
+        jdbcTemplate.execute("DROP TABLE " + LEGACY_TABLE);
+        logger.info("Converted {} to monthly partitions, {} rows copied in {} ms",
+                TABLE, copied, System.currentTimeMillis() - started);
+    }
+
+    private void ensurePartitions() {
+        List<String> existing = partitionNames();
+        for (YearMonth month = YearMonth.now(); !month.isAfter(YearMonth.now().plusMonths(monthsAhead)); month = month.plusMonths(1)) {
+            String name = partitionName(month);
+            if (existing.contains(name)) {
+                continue;
+            }
+            LocalDate from = month.atDay(1);
+            LocalDate to = month.plusMonths(1).atDay(1);
+            // Built detached so rows that went to the default partition can be moved in before attaching
+            jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION +
+                    " WHERE appointment_date >= ? AND appointment_date < ? RETURNING *) INSERT INTO " + name +
+                    " SELECT * FROM moved", from, to);
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + name +
+                    " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+            logger.info("Created partition {} ({} rows moved from the default partition)", name, moved);
+        }
+    }
+
+    private void archiveOldPartitions() {
+        YearMonth oldestKept = YearMonth.now().minusMonths(retentionMonths);
+        List<String> expired = new ArrayList<>();
+        for (String name : partitionNames()) {
+            if (name.startsWith(PARTITION_PREFIX)
+                    && YearMonth.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX).isBefore(oldestKept)) {
+                expired.add(name);
+            }
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.execute("CREATE SCHEMA IF NOT EXISTS " + archiveSchema);
+        for (String name : expired) {
+            // One partition per transaction, DETACH takes a short exclusive lock on the parent
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + name);
+                jdbcTemplate.execute("ALTER TABLE " + name + " SET SCHEMA " + archiveSchema);
+            });
+            logger.info("Archived partition {} to schema {}", name, archiveSchema);
+        }
+    }
+
+    private List<String> partitionNames() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = to_regclass(?)", String.class, TABLE);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+}
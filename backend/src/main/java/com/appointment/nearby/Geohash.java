@@ -0,0 +1,85 @@
+package com.appointment.nearby;
+
+/**
+ * Geohash cells: the world halved alternately by longitude and latitude, five halvings per base32
+ * character. A hash of 6 characters is a cell of about 1.2 km by 0.6 km.
+ */
+public final class Geohash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final double EARTH_RADIUS_KM = 6371;
+
+    private Geohash() {
+    }
+
+    public static Cell cellOf(double latitude, double longitude, int precision) {
+        double minLatitude = -90;
+        double maxLatitude = 90;
+        double minLongitude = -180;
+        double maxLongitude = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean longitudeBit = true;
+        int bits = 0;
+        int character = 0;
+        while (hash.length() < precision) {
+            character <<= 1;
+            if (longitudeBit) {
+                double middle = (minLongitude + maxLongitude) / 2;
+                if (longitude >= middle) {
+                    character |= 1;
+                    minLongitude = middle;
+                } else {
+                    maxLongitude = middle;
+                }
+            } else {
+                double middle = (minLatitude + maxLatitude) / 2;
+                if (latitude >= middle) {
+                    character |= 1;
+                    minLatitude = middle;
+                } else {
+                    maxLatitude = middle;
+                }
+            }
+            longitudeBit = !longitudeBit;
+            if (++bits == 5) {
+                hash.append(BASE32[character]);
+                bits = 0;
+                character = 0;
+            }
+        }
+        return new Cell(hash.toString(), minLatitude, maxLatitude, minLongitude, maxLongitude);
+    }
+
+    /** Great-circle distance by the haversine formula. */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double latitudeDistance = Math.toRadians(latitude2 - latitude1);
+        double longitudeDistance = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(latitudeDistance / 2) * Math.sin(latitudeDistance / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(longitudeDistance / 2) * Math.sin(longitudeDistance / 2);
+        return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    public record Cell(String hash, double minLatitude, double maxLatitude, double minLongitude,
+                       double maxLongitude) {
+
+        public double centerLatitude() {
+            return (minLatitude + maxLatitude) / 2;
+        }
+
+        public double centerLongitude() {
+            return (minLongitude + maxLongitude) / 2;
+        }
+
+        /** How far from the center a point of the cell can be. */
+        public double radiusKm() {
+            double latitude = centerLatitude();
+            double longitude = centerLongitude();
+            return Math.max(
+                    Math.max(distanceKm(latitude, longitude, minLatitude, minLongitude),
+                            distanceKm(latitude, longitude, minLatitude, maxLongitude)),
+                    Math.max(distanceKm(latitude, longitude, maxLatitude, minLongitude),
+                            distanceKm(latitude, longitude, maxLatitude, maxLongitude)));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.appointment.nearby;
+
+import com.appointment.cluster.ClusterCoordinator;
+import com.appointment.dto.DoctorDTO;
+import com.appointment.entity.Doctor;
+import com.appointment.repository.DoctorRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Candidates for the nearby-doctor search, cached per geohash cell of {@code precision} characters and
+ * limit rounded up to a power of two, least recently used dropped beyond {@code max-entries}.
+ * <p>
+ * A cell's candidates are every doctor within {@code d + 2r} of its center, {@code d} being the distance
+ * of the bucket-th nearest doctor to the center and {@code r} the cell's radius. That holds the nearest
+ * doctors of any point in the cell, so callers rank the candidates by exact distance to their point and
+ * get the same answer as the database. A doctor inserted, updated or deleted through JPA drops, on every
+ * node, the cells whose candidate circle holds its old or new position.
+ */
+@Component
+public class NearbyDoctorCache implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    public static final String REGION = "nearby-doctors";
+
+    private static final int MIN_LIMIT_BUCKET = 8;
+    // Degrees of latitude per km on the sphere of Geohash.distanceKm, so the box holds the whole circle
+    private static final double KM_PER_DEGREE = Math.PI * 6371 / 180;
+    // Covers the difference between the database's and the haversine distance
+    private static final double EPSILON_KM = 0.001;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.nearby-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.nearby-cache.precision:6}")
+    private int precision;
+
+    @Value("${app.nearby-cache.max-entries:10000}")
+    private int maxEntries;
+
+    // Larger limits are not cached, their candidate sets would be most of the doctors
+    @Value("${app.nearby-cache.max-limit:100}")
+    private int maxLimit;
+
+    private TransactionTemplate loadTransaction;
+    // Bumped on every invalidation, a load that overlapped one is not cached
+    private final AtomicLong invalidations = new AtomicLong();
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    private final Map<String, CellCandidates> cells = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CellCandidates> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    @PostConstruct
+    void init() {
+        // Read-write so it runs on the primary: a lagging replica would cache a doctor's old position
+        loadTransaction = new TransactionTemplate(transactionManager);
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+        clusterCoordinator.onInvalidation(REGION, this::evictLocal);
+        Gauge.builder("doctors.nearby.cache.size", cells, Map::size).register(meterRegistry);
+        hitCounter = Counter.builder("doctors.nearby.cache").tag("result", "hit").register(meterRegistry);
+        missCounter = Counter.builder("doctors.nearby.cache").tag("result", "miss").register(meterRegistry);
+    }
+
+    /** Whether {@link #candidates} answers for {@code limit}. */
+    public boolean covers(int limit) {
+        return enabled && limit > 0 && limit <= maxLimit;
+    }
+
+    /** Doctors among which the {@code limit} nearest to the point are, unordered. */
+    public List<DoctorDTO> candidates(double latitude, double longitude, int limit) {
+        int bucket = Math.max(MIN_LIMIT_BUCKET, Integer.highestOneBit(limit - 1) << 1);
+        Geohash.Cell cell = Geohash.cellOf(latitude, longitude, precision);
+        String key = cell.hash() + ":" + bucket;
+        CellCandidates cached;
+        synchronized (cells) {
+            cached = cells.get(key);
+        }
+        if (cached != null) {
+            hitCounter.increment();
+            return cached.doctors();
+        }
+        missCounter.increment();
+        long invalidationsBefore = invalidations.get();
+        CellCandidates loaded = loadTransaction.execute(status -> load(cell, bucket));
+        synchronized (cells) {
+            if (invalidations.get() == invalidationsBefore) {
+                cells.put(key, loaded);
+            }
+        }
+        return loaded.doctors();
+    }
+
+    /** Drops every cell on all nodes, for doctors edited directly in the database. */
+    public void clear() {
+        clusterCoordinator.broadcastInvalidation(REGION, ClusterCoordinator.ALL_KEYS);
+    }
+
+    private CellCandidates load(Geohash.Cell cell, int bucket) {
+        double latitude = cell.centerLatitude();
+        double longitude = cell.centerLongitude();
+        List<Doctor> nearest = doctorRepository.findNearbyDoctors(BigDecimal.valueOf(latitude),
+                BigDecimal.valueOf(longitude), bucket);
+        if (nearest.size() < bucket) {
+            // That is every doctor there is
+            return new CellCandidates(latitude, longitude, Double.POSITIVE_INFINITY,
+                    nearest.stream().map(DoctorDTO::new).toList());
+        }
+        double radiusKm = distanceKm(latitude, longitude, nearest.get(nearest.size() - 1)) + 2 * cell.radiusKm()
+                + EPSILON_KM;
+        double latitudeDelta = radiusKm / KM_PER_DEGREE;
+        double cosLatitude = Math.cos(Math.toRadians(Math.min(90, Math.abs(latitude) + latitudeDelta)));
+        double longitudeDelta = cosLatitude < 0.01 ? 180 : radiusKm / (KM_PER_DEGREE * cosLatitude);
+        // Widen to the whole longitude range near the poles and across the antimeridian
+        boolean allLongitudes = longitude - longitudeDelta < -180 || longitude + longitudeDelta > 180;
+        List<DoctorDTO> doctors = doctorRepository.findByLatitudeBetweenAndLongitudeBetween(
+                        BigDecimal.valueOf(Math.max(-90, latitude - latitudeDelta)),
+                        BigDecimal.valueOf(Math.min(90, latitude + latitudeDelta)),
+                        BigDecimal.valueOf(allLongitudes ? -180 : longitude - longitudeDelta),
+                        BigDecimal.valueOf(allLongitudes ? 180 : longitude + longitudeDelta))
+                .stream()
+                .filter(doctor -> distanceKm(latitude, longitude, doctor) <= radiusKm)
+                .map(DoctorDTO::new)
+                .toList();
+        return new CellCandidates(latitude, longitude, radiusKm, doctors);
+    }
+
+    private static double distanceKm(double latitude, double longitude, Doctor doctor) {
+        return Geohash.distanceKm(latitude, longitude, doctor.getLatitude().doubleValue(),
+                doctor.getLongitude().doubleValue());
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Doctor) {
+            dropCellsHolding(position(event.getPersister(), event.getState()));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (!(event.getEntity() instanceof Doctor)) {
+            return;
+        }
+        String position = position(event.getPersister(), event.getState());
+        // Without a loaded snapshot the old position is unknown
+        String oldPosition = event.getOldState() != null ? position(event.getPersister(), event.getOldState()) : null;
+        if (oldPosition == null) {
+            clear();
+        } else if (!oldPosition.equals(position)) {
+            dropCellsHolding(oldPosition);
+        }
+        // Cells holding an unmoved doctor still have its old name, phone, ...
+        dropCellsHolding(position);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Doctor) {
+            dropCellsHolding(position(event.getPersister(), event.getDeletedState()));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private static String position(EntityPersister persister, Object[] state) {
+        Object latitude = state[persister.getPropertyIndex("latitude")];
+        Object longitude = state[persister.getPropertyIndex("longitude")];
+        if (latitude instanceof BigDecimal lat && longitude instanceof BigDecimal lon) {
+            return lat.toPlainString() + "," + lon.toPlainString();
+        }
+        return null;
+    }
+
+    // On every node, after commit
+    private void dropCellsHolding(String position) {
+        clusterCoordinator.broadcastInvalidation(REGION, position != null ? position : ClusterCoordinator.ALL_KEYS);
+    }
+
+    private void evictLocal(String key) {
+        synchronized (cells) {
+            invalidations.incrementAndGet();
+            if (ClusterCoordinator.ALL_KEYS.equals(key)) {
+                cells.clear();
+                return;
+            }
+            int separator = key.indexOf(',');
+            double latitude = Double.parseDouble(key.substring(0, separator));
+            double longitude = Double.parseDouble(key.substring(separator + 1));
+            cells.values().removeIf(cell ->
+                    Geohash.distanceKm(cell.latitude(), cell.longitude(), latitude, longitude) <= cell.radiusKm());
+        }
+    }
+
+    private record CellCandidates(double latitude, double longitude, double radiusKm, List<DoctorDTO> doctors) {
+    }
+}
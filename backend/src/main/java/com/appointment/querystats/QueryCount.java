@@ -0,0 +1,112 @@
+package com.appointment.querystats;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the SQL statements run on the current thread while open, by Hibernate or a {@code JdbcTemplate}
+ * on a connection taken while it was open. {@link QueryCountFilter}
+ * opens one per request; tests open their own around a call to pin its query count, e.g.
+ * <pre>
+ * try (QueryCount count = QueryCount.start()) {
+ *     mockMvc.perform(get("/api/appointments").header(...));
+ *     count.assertAtMost(3);
+ * }
+ * </pre>
+ * Counts nest: a statement counts for every open count of the thread. Work handed to other threads,
+ * e.g. shard scatter, is not counted.
+ */
+public final class QueryCount implements AutoCloseable {
+
+    private static final ThreadLocal<QueryCount> CURRENT = new ThreadLocal<>();
+
+    private final QueryCount outer;
+    private int statements;
+    private final Map<String, Integer> statementCounts = new HashMap<>();
+    private final Map<String, Integer> lazyFetches = new HashMap<>();
+    private final List<String> slowStatements = new ArrayList<>();
+    private boolean closed;
+
+    private QueryCount(QueryCount outer) {
+        this.outer = outer;
+    }
+
+    public static QueryCount start() {
+        QueryCount count = new QueryCount(CURRENT.get());
+        CURRENT.set(count);
+        return count;
+    }
+
+    static boolean isCounting() {
+        return CURRENT.get() != null;
+    }
+
+    static void statementPrepared(String sql) {
+        for (QueryCount count = CURRENT.get(); count != null; count = count.outer) {
+            count.statements++;
+            count.statementCounts.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    static void lazyFetched(String role) {
+        for (QueryCount count = CURRENT.get(); count != null; count = count.outer) {
+            count.lazyFetches.merge(role, 1, Integer::sum);
+        }
+    }
+
+    static void slowStatement(String sql, long millis) {
+        for (QueryCount count = CURRENT.get(); count != null; count = count.outer) {
+            count.slowStatements.add(millis + " ms: " + sql);
+        }
+    }
+
+    public int statements() {
+        return statements;
+    }
+
+    /** Statements prepared at least {@code minTimes} times, most frequent first; the usual N+1 signature. */
+    public Map<String, Integer> repeatedStatements(int minTimes) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        statementCounts.entrySet().stream()
+                .filter(entry -> entry.getValue() >= minTimes)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(entry -> repeated.put(entry.getKey(), entry.getValue()));
+        return repeated;
+    }
+
+    /** Lazy associations initialized, by entity name or collection role. */
+    public Map<String, Integer> lazyFetches() {
+        return lazyFetches;
+    }
+
+    public List<String> slowStatements() {
+        return slowStatements;
+    }
+
+    /** Fails with the statements run if there were more than {@code max}. */
+    public void assertAtMost(int max) {
+        if (statements > max) {
+            StringBuilder message = new StringBuilder("Expected at most " + max + " statements but " + statements + " ran:");
+            statementCounts.forEach((sql, times) -> message.append("\n  ").append(times).append("x ").append(sql));
+            throw new AssertionError(message.toString());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (CURRENT.get() == this) {
+            if (outer != null) {
+                CURRENT.set(outer);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
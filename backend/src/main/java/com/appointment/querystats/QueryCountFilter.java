@@ -0,0 +1,97 @@
+package com.appointment.querystats;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Counts the statements of every request, publishes them as {@code db.statements.per.request} by route
+ * and logs one warning per request that ran more than {@code max-statements-per-request} statements,
+ * the same statement {@code repeat-threshold} times or more (N+1), or statements slower than
+ * {@code slow-statement-ms}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(name = "app.query-stats.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.query-stats.max-statements-per-request:30}")
+    private int maxStatements;
+
+    @Value("${app.query-stats.repeat-threshold:5}")
+    private int repeatThreshold;
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        QueryCount count = QueryCount.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            count.close();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String route = request.getMethod() + " " + (pattern != null ? pattern : "unmapped");
+            DistributionSummary.builder("db.statements.per.request")
+                    .description("SQL statements prepared by one request")
+                    .tag("route", route)
+                    .register(meterRegistry)
+                    .record(count.statements());
+            report(route, count);
+        }
+    }
+
+    private void report(String route, QueryCount count) {
+        Map<String, Integer> repeated = count.repeatedStatements(repeatThreshold);
+        boolean tooMany = count.statements() > maxStatements;
+        if (!tooMany && repeated.isEmpty() && count.slowStatements().isEmpty()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder(route).append(" ran ").append(count.statements())
+                .append(count.statements() == 1 ? " statement" : " statements");
+        if (tooMany) {
+            flagged("too_many");
+            message.append(" (more than ").append(maxStatements).append(")");
+        }
+        if (!repeated.isEmpty()) {
+            flagged("repeated");
+            message.append("; repeated, likely N+1:");
+            repeated.forEach((sql, times) -> message.append("\n  ").append(times).append("x ").append(sql));
+            if (!count.lazyFetches().isEmpty()) {
+                message.append("\n  lazy fetches: ").append(count.lazyFetches());
+            }
+        }
+        if (!count.slowStatements().isEmpty()) {
+            flagged("slow");
+            message.append("; slow:");
+            count.slowStatements().forEach(slow -> message.append("\n  ").append(slow));
+        }
+        logger.warn(message.toString());
+    }
+
+    private void flagged(String reason) {
+        Counter.builder("db.requests.flagged")
+                .description("Requests with too many, repeated or slow statements")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+}
@@ -0,0 +1,87 @@
+package com.appointment.querystats;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram per JPQL/native query, published as {@code db.query} timers tagged with the query
+ * and listed, costliest first, at {@code /api/admin/queries}. Fed by Hibernate statistics, which time a
+ * query in whole milliseconds from execution until its results are read.
+ */
+@Component
+public class QueryLatencies {
+
+    private static final String OTHER = "other";
+    private static final int MAX_TAG_CHARS = 200;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Queries beyond this many are recorded under "other", keeping the number of timers bounded
+    @Value("${app.query-stats.max-queries:500}")
+    private int maxQueries;
+
+    private final Map<String, QueryTimer> timers = new ConcurrentHashMap<>();
+
+    void record(String query, int rows, long millis) {
+        QueryTimer timer = timers.get(query);
+        if (timer == null) {
+            String key = timers.size() < maxQueries ? query : OTHER;
+            timer = timers.computeIfAbsent(key, this::register);
+        }
+        timer.timer().record(millis, TimeUnit.MILLISECONDS);
+        if (rows > 0) {
+            timer.rows().add(rows);
+        }
+    }
+
+    /** Queries by total time spent in them, with count, mean, max, p95 and p99 in milliseconds. */
+    public List<Map<String, Object>> costliest(int limit) {
+        List<QueryTimer> sorted = new ArrayList<>(timers.values());
+        sorted.sort(Comparator.comparingDouble((QueryTimer timer) -> timer.timer().totalTime(TimeUnit.MILLISECONDS)).reversed());
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (QueryTimer timer : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            HistogramSnapshot snapshot = timer.timer().takeSnapshot();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("query", timer.query());
+            row.put("count", snapshot.count());
+            row.put("totalMs", snapshot.total(TimeUnit.MILLISECONDS));
+            row.put("meanMs", snapshot.mean(TimeUnit.MILLISECONDS));
+            row.put("maxMs", snapshot.max(TimeUnit.MILLISECONDS));
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                row.put("p" + Math.round(percentile.percentile() * 100) + "Ms", percentile.value(TimeUnit.MILLISECONDS));
+            }
+            row.put("rows", timer.rows().sum());
+            result.add(row);
+        }
+        return result;
+    }
+
+    private QueryTimer register(String query) {
+        String compact = query.replaceAll("\\s+", " ").trim();
+        Timer timer = Timer.builder("db.query")
+                .description("Execution time of a JPQL or native query")
+                .tag("query", compact.length() > MAX_TAG_CHARS ? compact.substring(0, MAX_TAG_CHARS) : compact)
+                .publishPercentiles(0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        return new QueryTimer(compact, timer, new LongAdder());
+    }
+
+    private record QueryTimer(String query, Timer timer, LongAdder rows) {
+    }
+}
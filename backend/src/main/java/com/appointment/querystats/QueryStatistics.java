@@ -0,0 +1,43 @@
+package com.appointment.querystats;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+
+/**
+ * Hibernate's statistics, additionally feeding query latencies to {@link QueryLatencies} and lazy
+ * fetches and slow statements to the open {@link QueryCount}s of the thread.
+ */
+final class QueryStatistics extends StatisticsImpl {
+
+    private final QueryLatencies latencies;
+
+    QueryStatistics(SessionFactoryImplementor sessionFactory, QueryLatencies latencies) {
+        super(sessionFactory);
+        this.latencies = latencies;
+    }
+
+    @Override
+    public void queryExecuted(String query, int rows, long time) {
+        super.queryExecuted(query, rows, time);
+        latencies.record(query, rows, time);
+    }
+
+    @Override
+    public void fetchEntity(String entityName) {
+        super.fetchEntity(entityName);
+        QueryCount.lazyFetched(entityName);
+    }
+
+    @Override
+    public void fetchCollection(String role) {
+        super.fetchCollection(role);
+        QueryCount.lazyFetched(role);
+    }
+
+    // Called by Hibernate for statements slower than hibernate.log_slow_query
+    @Override
+    public void slowQuery(String sql, long executionTime) {
+        super.slowQuery(sql, executionTime);
+        QueryCount.slowStatement(sql, executionTime);
+    }
+}
@@ -0,0 +1,45 @@
+package com.appointment.querystats;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.spi.StatisticsFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the {@code dataSource} bean in a {@link CountingDataSource} that counts every statement for the
+ * open {@link QueryCount}s, and plugs {@link QueryStatistics} into Hibernate for query latencies, lazy
+ * fetches and statements slower than {@code slow-statement-ms}. Needs {@code hibernate.generate_statistics}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.query-stats.enabled", havingValue = "true", matchIfMissing = true)
+public class QueryStatsConfig {
+
+    @Bean
+    public static BeanPostProcessor countingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+                    return new CountingDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer queryStatsCustomizer(QueryLatencies latencies,
+                                                              @Value("${app.query-stats.slow-statement-ms:200}") long slowStatementMs) {
+        StatisticsFactory statistics = sessionFactory -> new QueryStatistics(sessionFactory, latencies);
+        return properties -> {
+            properties.put(AvailableSettings.STATS_BUILDER, statistics);
+            properties.put(AvailableSettings.LOG_SLOW_QUERY, slowStatementMs);
+        };
+    }
+}
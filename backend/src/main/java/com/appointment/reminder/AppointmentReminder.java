@@ -0,0 +1,61 @@
+package com.appointment.reminder;
+
+import com.appointment.entity.Appointment;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+public class AppointmentReminder {
+
+    private final Long appointmentId;
+    private final String userEmail;
+    private final String userName;
+    private final String userPhone;
+    private final String doctorName;
+    private final String doctorAddress;
+    private final LocalDate appointmentDate;
+    private final LocalTime appointmentTime;
+
+    public AppointmentReminder(Appointment appointment) {
+        this.appointmentId = appointment.getId();
+        this.userEmail = appointment.getUser().getEmail();
+        this.userName = appointment.getUser().getFirstName() + " " + appointment.getUser().getLastName();
+        this.userPhone = appointment.getUser().getPhone();
+        this.doctorName = appointment.getDoctor().getName();
+        this.doctorAddress = appointment.getDoctor().getAddress();
+        this.appointmentDate = appointment.getAppointmentDate();
+        this.appointmentTime = appointment.getAppointmentTime();
+    }
+
+    public Long getAppointmentId() {
+        return appointmentId;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public String getUserPhone() {
+        return userPhone;
+    }
+
+    public String getDoctorName() {
+        return doctorName;
+    }
+
+    public String getDoctorAddress() {
+        return doctorAddress;
+    }
+
+    public LocalDate getAppointmentDate() {
+        return appointmentDate;
+    }
+
+    public LocalTime getAppointmentTime() {
+        return appointmentTime;
+    }
+}
@@ -0,0 +1,45 @@
+package com.appointment.reminder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends one tab separated line per reminder to {@code app.reminders.file}, e.g. for a mail merge job.
+ */
+@Component
+@ConditionalOnProperty(name = "app.reminders.notifier", havingValue = "file")
+public class FileReminderNotifier implements ReminderNotifier {
+
+    @Value("${app.reminders.file:reminders.tsv}")
+    private Path file;
+
+    @Override
+    public synchronized void send(List<AppointmentReminder> reminders) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (AppointmentReminder reminder : reminders) {
+                writer.write(reminder.getAppointmentId() + "\t" + reminder.getUserEmail() + "\t"
+                        + nullToEmpty(reminder.getUserPhone()) + "\t" + reminder.getUserName() + "\t"
+                        + reminder.getDoctorName() + "\t" + reminder.getAppointmentDate() + "\t"
+                        + reminder.getAppointmentTime());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write reminders to " + file, e);
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
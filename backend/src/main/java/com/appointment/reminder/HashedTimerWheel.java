@@ -0,0 +1,138 @@
+package com.appointment.reminder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel keyed by a {@code long} id (Varghese &amp; Lauck, as used by Netty's HashedWheelTimer).
+ * <p>
+ * Deadlines are rounded up to a tick and hashed onto a fixed ring of buckets, each an intrusive doubly
+ * linked list, so scheduling and cancelling are O(1) whatever the number of pending timeouts. Deadlines
+ * further away than one turn of the ring simply stay in their bucket until the turn they are due in.
+ * Scheduling an id that is already pending moves it. The wheel does not run a thread of its own, the
+ * owner calls {@link #advance(long)} periodically. All methods are thread safe.
+ */
+public class HashedTimerWheel {
+
+    private final long tickMillis;
+    private final Timeout[] buckets;
+    private final int mask;
+    private final Map<Long, Timeout> pending = new HashMap<>();
+
+    // Ticks up to and including this one have been expired
+    private long lastTick;
+
+    public HashedTimerWheel(long tickMillis, int wheelSize, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("wheelSize must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        this.tickMillis = tickMillis;
+        this.buckets = new Timeout[Math.max(size, 1)];
+        this.mask = buckets.length - 1;
+        this.lastTick = nowMillis / tickMillis;
+    }
+
+    /** Schedules {@code id} to expire at {@code deadlineMillis}, replacing a pending deadline for the same id. */
+    public synchronized void schedule(long id, long deadlineMillis) {
+        Timeout timeout = pending.get(id);
+        if (timeout != null) {
+            unlink(timeout);
+        } else {
+            timeout = new Timeout(id);
+            pending.put(id, timeout);
+        }
+        // Ceiling, a timeout never fires early; past deadlines go to the next tick
+        timeout.deadlineTick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), lastTick + 1);
+        link(timeout);
+    }
+
+    /** Returns false if {@code id} was not pending. */
+    public synchronized boolean cancel(long id) {
+        Timeout timeout = pending.remove(id);
+        if (timeout == null) {
+            return false;
+        }
+        unlink(timeout);
+        return true;
+    }
+
+    /** Removes and returns the ids whose deadline is at or before {@code nowMillis}. */
+    public synchronized List<Long> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        List<Long> expired = new ArrayList<>();
+        if (nowTick <= lastTick) {
+            return expired;
+        }
+        // After a long pause every bucket is visited once, checking deadlines against nowTick
+        long firstTick = Math.max(lastTick + 1, nowTick - mask);
+        for (long tick = firstTick; tick <= nowTick; tick++) {
+            Timeout timeout = buckets[(int) (tick & mask)];
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.deadlineTick <= nowTick) {
+                    unlink(timeout);
+                    pending.remove(timeout.id);
+                    expired.add(timeout.id);
+                }
+                timeout = next;
+            }
+        }
+        lastTick = nowTick;
+        return expired;
+    }
+
+    public synchronized boolean contains(long id) {
+        return pending.containsKey(id);
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    public synchronized void clear() {
+        pending.clear();
+        Arrays.fill(buckets, null);
+    }
+
+    private void link(Timeout timeout) {
+        int index = (int) (timeout.deadlineTick & mask);
+        Timeout head = buckets[index];
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        buckets[index] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[(int) (timeout.deadlineTick & mask)] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    private static final class Timeout {
+        private final long id;
+        private long deadlineTick;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(long id) {
+            this.id = id;
+        }
+    }
+}
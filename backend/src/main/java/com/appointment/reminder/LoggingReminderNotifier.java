@@ -0,0 +1,24 @@
+package com.appointment.reminder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "app.reminders.notifier", havingValue = "log", matchIfMissing = true)
+public class LoggingReminderNotifier implements ReminderNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingReminderNotifier.class);
+
+    @Override
+    public void send(List<AppointmentReminder> reminders) {
+        for (AppointmentReminder reminder : reminders) {
+            logger.info("Reminder for appointment {}: {} <{}> with {} on {} at {}",
+                    reminder.getAppointmentId(), reminder.getUserName(), reminder.getUserEmail(),
+                    reminder.getDoctorName(), reminder.getAppointmentDate(), reminder.getAppointmentTime());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.appointment.reminder;
+
+import java.util.List;
+
+/**
+ * Delivers due reminders. Chosen with {@code app.reminders.notifier}; email or SMS adapters plug in
+ * here as further implementations.
+ * <p>
+ * Reminders are claimed in the database before they are handed over, so a batch is delivered at most
+ * once; an implementation that throws loses that batch rather than sending it twice.
+ */
+public interface ReminderNotifier {
+
+    void send(List<AppointmentReminder> reminders);
+}
@@ -0,0 +1,229 @@
+package com.appointment.reminder;
+
+import com.appointment.cluster.ClusterCoordinator;
+import com.appointment.entity.Appointment;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.shard.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Sends a reminder {@code app.reminders.lead-minutes} before every booked appointment.
+ * <p>
+ * Only the cluster leader keeps reminders. It loads the BOOKED appointments whose reminder falls within
+ * the next {@code horizon-minutes} into a {@link HashedTimerWheel} and extends that window incrementally,
+ * so the database only ever sees small date range queries. Bookings and cancellations reach the leader
+ * through the {@link ClusterCoordinator} after commit. Due reminders are claimed in batches by setting
+ * {@code reminder_sent_at}, which also keeps a new leader from sending them again, and passed to the
+ * {@link ReminderNotifier}. With sharding every shard is asked, ids are unique across shards.
+ */
+@Component
+public class ReminderScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReminderScheduler.class);
+
+    private static final String REGION = "reminders";
+    private static final String LEADER_ROLE = "reminders";
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ReminderNotifier reminderNotifier;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.reminders.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.reminders.lead-minutes:1440}")
+    private long leadMinutes;
+
+    @Value("${app.reminders.horizon-minutes:1440}")
+    private long horizonMinutes;
+
+    // Reminders that fell due at most this long ago (e.g. while no node was leader) are still sent
+    @Value("${app.reminders.catch-up-minutes:60}")
+    private long catchUpMinutes;
+
+    @Value("${app.reminders.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${app.reminders.wheel-size:4096}")
+    private int wheelSize;
+
+    @Value("${app.reminders.batch-size:500}")
+    private int batchSize;
+
+    private HashedTimerWheel wheel;
+    private Counter sentCounter;
+    private volatile boolean leader;
+    // Reminders due up to this time are in the wheel
+    private volatile LocalDateTime loadedUntil;
+
+    @PostConstruct
+    void init() {
+        wheel = new HashedTimerWheel(tickMs, wheelSize, System.currentTimeMillis());
+        clusterCoordinator.onInvalidation(REGION, this::onMessage);
+        Gauge.builder("reminders.pending", wheel, HashedTimerWheel::size)
+                .description("Reminders scheduled on this node")
+                .register(meterRegistry);
+        sentCounter = Counter.builder("reminders.sent").register(meterRegistry);
+    }
+
+    /** Schedules the reminder of a new booking on the leader, once the surrounding transaction commits. */
+    public void appointmentBooked(Appointment appointment) {
+        if (!enabled) {
+            return;
+        }
+        // Booked inside the lead time, the booking confirmation is reminder enough
+        if (reminderTime(appointment.getAppointmentDate(), appointment.getAppointmentTime()).isBefore(LocalDateTime.now())) {
+            return;
+        }
+        clusterCoordinator.broadcastInvalidation(REGION, "B" + appointment.getId() + "|"
+                + appointment.getAppointmentDate() + "|" + appointment.getAppointmentTime());
+    }
+
+    public void appointmentCancelled(Long appointmentId) {
+        if (!enabled) {
+            return;
+        }
+        clusterCoordinator.broadcastInvalidation(REGION, "C" + appointmentId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.reminders.refresh-ms:60000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        boolean elected = clusterCoordinator.isLeader(LEADER_ROLE);
+        if (elected && !leader) {
+            leader = true;
+            reload();
+        } else if (!elected && leader) {
+            logger.warn("Lost reminder leadership, dropping {} pending reminders", wheel.size());
+            leader = false;
+            wheel.clear();
+            loadedUntil = null;
+        } else if (elected) {
+            extendWindow();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.reminders.tick-ms:1000}")
+    public void tick() {
+        if (!leader) {
+            return;
+        }
+        List<Long> due = wheel.advance(System.currentTimeMillis());
+        for (int from = 0; from < due.size(); from += batchSize) {
+            dispatch(due.subList(from, Math.min(from + batchSize, due.size())));
+        }
+    }
+
+    private void dispatch(List<Long> appointmentIds) {
+        try {
+            LocalDateTime sentAt = LocalDateTime.now();
+            // Copies of a bucket being moved are claimed too but only the owning shard's are sent
+            List<AppointmentReminder> reminders = new ArrayList<>();
+            shardRouter.scatter(shard -> {
+                List<Long> claimed = appointmentRepository.claimReminders(appointmentIds, sentAt);
+                return claimed.isEmpty() ? List.<AppointmentReminder>of() : appointmentRepository.findAllWithUserAndDoctorByIdIn(claimed)
+                        .stream()
+                        .filter(appointment -> shardRouter.owns(shard, appointment.getDoctor().getId()))
+                        .map(AppointmentReminder::new)
+                        .collect(Collectors.toList());
+            }).forEach(reminders::addAll);
+            if (reminders.isEmpty()) {
+                return;
+            }
+            reminderNotifier.send(reminders);
+            sentCounter.increment(reminders.size());
+        } catch (RuntimeException e) {
+            logger.error("Failed to send {} reminders", appointmentIds.size(), e);
+        }
+    }
+
+    private synchronized void reload() {
+        wheel.clear();
+        loadedUntil = LocalDateTime.now().minusMinutes(catchUpMinutes);
+        extendWindow();
+        logger.info("Reminder leader, {} reminders scheduled until {}", wheel.size(), loadedUntil);
+    }
+
+    private synchronized void extendWindow() {
+        LocalDateTime from = loadedUntil;
+        LocalDateTime until = LocalDateTime.now().plusMinutes(horizonMinutes);
+        if (from == null || !until.isAfter(from)) {
+            return;
+        }
+        // Moved first, so bookings committed while we query are scheduled by their message instead
+        loadedUntil = until;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate firstDate = from.plusMinutes(leadMinutes).toLocalDate();
+        LocalDate lastDate = until.plusMinutes(leadMinutes).toLocalDate();
+        List<AppointmentRepository.PendingReminder> pending = new ArrayList<>();
+        shardRouter.scatter(shard -> appointmentRepository.findPendingRemindersBetween(firstDate, lastDate))
+                .forEach(pending::addAll);
+        for (AppointmentRepository.PendingReminder reminder : pending) {
+            LocalDateTime start = LocalDateTime.of(reminder.getAppointmentDate(), reminder.getAppointmentTime());
+            LocalDateTime remindAt = start.minusMinutes(leadMinutes);
+            if (start.isAfter(now) && remindAt.isAfter(from) && !remindAt.isAfter(until)) {
+                wheel.schedule(reminder.getId(), toEpochMillis(remindAt));
+            }
+        }
+    }
+
+    private void onMessage(String message) {
+        if (!leader) {
+            return;
+        }
+        if (ClusterCoordinator.ALL_KEYS.equals(message)) {
+            // Messages may have been missed
+            reload();
+            return;
+        }
+        if (message.startsWith("C")) {
+            wheel.cancel(Long.parseLong(message.substring(1)));
+            return;
+        }
+        String[] parts = message.substring(1).split("\\|");
+        LocalDateTime remindAt = reminderTime(LocalDate.parse(parts[1]), LocalTime.parse(parts[2]));
+        LocalDateTime until = loadedUntil;
+        // Beyond the window it is picked up when the window is extended
+        if (until != null && !remindAt.isAfter(until)) {
+            wheel.schedule(Long.parseLong(parts[0]), toEpochMillis(remindAt));
+        }
+    }
+
+    private LocalDateTime reminderTime(LocalDate date, LocalTime time) {
+        return LocalDateTime.of(date, time).minusMinutes(leadMinutes);
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -1,20 +1,28 @@
 package com.appointment.repository;
 
+import com.appointment.dto.AdminAppointmentDTO;
 import com.appointment.entity.Appointment;
 import com.appointment.entity.Doctor;
 import com.appointment.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+public interface AppointmentRepository extends JpaRepository<Appointment, Long>, AppointmentRepositoryCustom {
     @Query("SELECT a FROM Appointment a JOIN FETCH a.user JOIN FETCH a.doctor WHERE a.user = :user ORDER BY a.appointmentDate DESC, a.appointmentTime DESC")
     List<Appointment> findByUserOrderByAppointmentDateDescAppointmentTimeDesc(@Param("user") User user);
 
@@ -28,8 +36,10 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     List<Appointment> findBookedAppointmentsByDoctorAndDate(
             @Param("doctor") Doctor doctor, @Param("date") LocalDate date);
 
-    @Query("SELECT a FROM Appointment a JOIN FETCH a.user JOIN FETCH a.doctor WHERE a.user = :user AND a.status = 'BOOKED' ORDER BY a.appointmentDate ASC, a.appointmentTime ASC")
-    List<Appointment> findActiveAppointmentsByUser(@Param("user") User user);
+    // The lower date bound lets PostgreSQL skip past partitions of the appointments table
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.user JOIN FETCH a.doctor WHERE a.user = :user AND a.status = 'BOOKED' " +
+           "AND a.appointmentDate >= :from ORDER BY a.appointmentDate ASC, a.appointmentTime ASC")
+    List<Appointment> findActiveAppointmentsByUser(@Param("user") User user, @Param("from") LocalDate from);
 
     @Query("SELECT a FROM Appointment a JOIN FETCH a.user JOIN FETCH a.doctor WHERE a.id = :id")
     Optional<Appointment> findByIdWithUserAndDoctor(@Param("id") Long id);
@@ -37,5 +47,49 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     @Query("SELECT a FROM Appointment a JOIN FETCH a.user JOIN FETCH a.doctor ORDER BY a.appointmentDate DESC, a.appointmentTime DESC")
     List<Appointment> findAllWithUserAndDoctor();
 
+    // Straight into DTOs, so streaming a large listing does not fill the persistence context
+    @Query("SELECT new com.appointment.dto.AdminAppointmentDTO(a.id, u.firstName, u.lastName, u.email, d.name, " +
+           "d.specialty, a.appointmentDate, a.appointmentTime, a.status, d.id) " +
+           "FROM Appointment a JOIN a.user u JOIN a.doctor d WHERE a.appointmentDate >= :from " +
+           "ORDER BY a.appointmentDate DESC, a.appointmentTime DESC")
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    Stream<AdminAppointmentDTO> streamAdminListingFrom(@Param("from") LocalDate from);
+
     long countByStatus(Appointment.AppointmentStatus status);
+
+    @Query("SELECT a.doctor.id AS doctorId, a.appointmentDate AS appointmentDate, a.appointmentTime AS appointmentTime " +
+           "FROM Appointment a WHERE a.status = 'BOOKED' AND a.appointmentDate BETWEEN :from AND :to")
+    List<BookedSlot> findBookedSlotsBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT a.doctor.id AS doctorId, a.appointmentDate AS appointmentDate, a.appointmentTime AS appointmentTime " +
+           "FROM Appointment a WHERE a.doctor.id IN :doctorIds AND a.status = 'BOOKED' AND a.appointmentDate BETWEEN :from AND :to")
+    List<BookedSlot> findBookedSlotsOfDoctorsBetween(@Param("doctorIds") Collection<Long> doctorIds,
+                                                     @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("SELECT a.id AS id, a.appointmentDate AS appointmentDate, a.appointmentTime AS appointmentTime " +
+           "FROM Appointment a WHERE a.status = 'BOOKED' AND a.reminderSentAt IS NULL " +
+           "AND a.appointmentDate BETWEEN :from AND :to")
+    List<PendingReminder> findPendingRemindersBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Claims the reminders for sending; ids cancelled or already sent (e.g. by a previous leader) are left out
+    @Transactional
+    @Query(value = "UPDATE appointments SET reminder_sent_at = :sentAt " +
+           "WHERE id IN (:ids) AND appointment_date >= CURRENT_DATE AND status = 'BOOKED' AND reminder_sent_at IS NULL " +
+           "RETURNING id", nativeQuery = true)
+    List<Long> claimReminders(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.user JOIN FETCH a.doctor WHERE a.id IN :ids")
+    List<Appointment> findAllWithUserAndDoctorByIdIn(@Param("ids") Collection<Long> ids);
+
+    interface PendingReminder {
+        Long getId();
+        LocalDate getAppointmentDate();
+        LocalTime getAppointmentTime();
+    }
+
+    interface BookedSlot {
+        Long getDoctorId();
+        LocalDate getAppointmentDate();
+        LocalTime getAppointmentTime();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.appointment.repository;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public interface AppointmentRepositoryCustom {
+
+    /** Fields of {@code ?fields=} on the appointment listing, with their select expressions. */
+    Map<String, String> FIELDS = fields();
+
+    /** Same rows and order as {@code findByUserOrderByAppointmentDateDescAppointmentTimeDesc}. */
+    List<Map<String, Object>> findByUserSelecting(Long userId, FieldSelection fields);
+
+    private static Map<String, String> fields() {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("id", "a.id");
+        // Foreign keys, read without a join
+        fields.put("userId", "a.user.id");
+        fields.put("doctorId", "a.doctor.id");
+        fields.put("userFirstName", "u.firstName");
+        fields.put("userLastName", "u.lastName");
+        fields.put("userEmail", "u.email");
+        fields.put("doctorName", "d.name");
+        fields.put("doctorSpecialty", "d.specialty");
+        fields.put("doctorAddress", "d.address");
+        fields.put("doctorPhone", "d.phone");
+        fields.put("appointmentDate", "a.appointmentDate");
+        fields.put("appointmentTime", "a.appointmentTime");
+        fields.put("status", "a.status");
+        fields.put("createdAt", "a.createdAt");
+        return Collections.unmodifiableMap(fields);
+    }
+}
@@ -0,0 +1,27 @@
+package com.appointment.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+
+import java.util.List;
+import java.util.Map;
+
+class AppointmentRepositoryCustomImpl implements AppointmentRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findByUserSelecting(Long userId, FieldSelection fields) {
+        // Only join what the selected fields read
+        String jpql = "SELECT " + fields.selectList() + " FROM Appointment a" +
+                (fields.uses("u") ? " JOIN a.user u" : "") +
+                (fields.uses("d") ? " JOIN a.doctor d" : "") +
+                " WHERE a.user.id = :userId ORDER BY a.appointmentDate DESC, a.appointmentTime DESC";
+        List<Tuple> tuples = entityManager.createQuery(jpql, Tuple.class)
+                .setParameter("userId", userId)
+                .getResultList();
+        return fields.toRows(tuples);
+    }
+}
@@ -0,0 +1,25 @@
+package com.appointment.repository;
+
+import com.appointment.entity.CalendarFeedVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface CalendarFeedVersionRepository extends JpaRepository<CalendarFeedVersion, String> {
+
+    @Query("SELECT v.version FROM CalendarFeedVersion v WHERE v.feedKey = :feedKey")
+    Optional<Long> findVersion(@Param("feedKey") String feedKey);
+
+    // Joins the booking transaction, so the new version becomes visible together with the booking
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO calendar_feed_versions (feed_key, version) VALUES (:feedKey, 1) " +
+           "ON CONFLICT (feed_key) DO UPDATE SET version = calendar_feed_versions.version + 1", nativeQuery = true)
+    int bump(@Param("feedKey") String feedKey);
+}
@@ -10,20 +10,52 @@ import java.math.BigDecimal;
 import java.util.List;
 
 @Repository
-public interface DoctorRepository extends JpaRepository<Doctor, Long> {
+public interface DoctorRepository extends JpaRepository<Doctor, Long>, DoctorRepositoryCustom {
     List<Doctor> findBySpecialtyContainingIgnoreCase(String specialty);
 
+    // Served by idx_doctors_location
+    List<Doctor> findByLatitudeBetweenAndLongitudeBetween(BigDecimal minLatitude, BigDecimal maxLatitude,
+                                                         BigDecimal minLongitude, BigDecimal maxLongitude);
+
     @Query("SELECT d FROM Doctor d WHERE " +
            "(:specialty IS NULL OR LOWER(d.specialty) LIKE LOWER(CONCAT('%', :specialty, '%')))")
     List<Doctor> findDoctorsBySpecialty(@Param("specialty") String specialty);
 
+    // LEAST clamps rounding error above 1.0, which makes acos fail for a point exactly on a doctor
     @Query(value = "SELECT *, " +
-           "(6371 * acos(cos(radians(:latitude)) * cos(radians(d.latitude)) * " +
+           "(6371 * acos(LEAST(1.0, cos(radians(:latitude)) * cos(radians(d.latitude)) * " +
            "cos(radians(d.longitude) - radians(:longitude)) + " +
-           "sin(radians(:latitude)) * sin(radians(d.latitude)))) AS distance " +
+           "sin(radians(:latitude)) * sin(radians(d.latitude))))) AS distance " +
            "FROM doctors d ORDER BY distance ASC " +
            "LIMIT :limit", nativeQuery = true)
     List<Doctor> findNearbyDoctors(@Param("latitude") BigDecimal latitude,
                                    @Param("longitude") BigDecimal longitude,
                                    @Param("limit") int limit);
+
+    // The bounding box lets idx_doctors_location narrow the scan before the exact distance is computed
+    @Query(value = "SELECT * FROM (SELECT d.id AS id, d.name AS name, d.specialty AS specialty, d.address AS address, " +
+           "(6371 * acos(LEAST(1.0, cos(radians(:latitude)) * cos(radians(d.latitude)) * " +
+           "cos(radians(d.longitude) - radians(:longitude)) + " +
+           "sin(radians(:latitude)) * sin(radians(d.latitude))))) AS distance " +
+           "FROM doctors d WHERE d.latitude BETWEEN :minLatitude AND :maxLatitude " +
+           "AND d.longitude BETWEEN :minLongitude AND :maxLongitude " +
+           "AND (CAST(:specialty AS text) IS NULL OR LOWER(d.specialty) LIKE LOWER(CONCAT('%', CAST(:specialty AS text), '%')))) c " +
+           "WHERE c.distance <= :radiusKm ORDER BY c.distance ASC LIMIT :limit", nativeQuery = true)
+    List<DoctorDistance> findWithinRadius(@Param("specialty") String specialty,
+                                          @Param("latitude") double latitude,
+                                          @Param("longitude") double longitude,
+                                          @Param("minLatitude") double minLatitude,
+                                          @Param("maxLatitude") double maxLatitude,
+                                          @Param("minLongitude") double minLongitude,
+                                          @Param("maxLongitude") double maxLongitude,
+                                          @Param("radiusKm") double radiusKm,
+                                          @Param("limit") int limit);
+
+    interface DoctorDistance {
+        Long getId();
+        String getName();
+        String getSpecialty();
+        String getAddress();
+        Double getDistance();
+    }
 }
\ No newline at end of file
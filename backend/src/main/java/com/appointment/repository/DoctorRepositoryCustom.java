@@ -0,0 +1,39 @@
+package com.appointment.repository;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public interface DoctorRepositoryCustom {
+
+    String DISTANCE = "(6371 * acos(least(1.0, cos(radians(:latitude)) * cos(radians(d.latitude)) * " +
+            "cos(radians(d.longitude) - radians(:longitude)) + sin(radians(:latitude)) * sin(radians(d.latitude)))))";
+
+    /** Fields of {@code ?fields=} on the doctor listing, with their select expressions. */
+    Map<String, String> FIELDS = fields(false);
+
+    /** As {@link #FIELDS}, plus {@code distance}. */
+    Map<String, String> NEARBY_FIELDS = fields(true);
+
+    List<Map<String, Object>> findAllSelecting(FieldSelection fields);
+
+    /** Same order as {@code findNearbyDoctors}. */
+    List<Map<String, Object>> findNearbySelecting(FieldSelection fields, double latitude, double longitude, int limit);
+
+    private static Map<String, String> fields(boolean nearby) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("id", "d.id");
+        fields.put("name", "d.name");
+        fields.put("specialty", "d.specialty");
+        fields.put("latitude", "d.latitude");
+        fields.put("longitude", "d.longitude");
+        fields.put("address", "d.address");
+        fields.put("phone", "d.phone");
+        fields.put("createdAt", "d.createdAt");
+        if (nearby) {
+            fields.put("distance", DISTANCE);
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+}
@@ -0,0 +1,34 @@
+package com.appointment.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+
+import java.util.List;
+import java.util.Map;
+
+class DoctorRepositoryCustomImpl implements DoctorRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findAllSelecting(FieldSelection fields) {
+        List<Tuple> tuples = entityManager.createQuery(
+                "SELECT " + fields.selectList() + " FROM Doctor d ORDER BY d.id", Tuple.class)
+                .getResultList();
+        return fields.toRows(tuples);
+    }
+
+    @Override
+    public List<Map<String, Object>> findNearbySelecting(FieldSelection fields, double latitude, double longitude,
+                                                         int limit) {
+        List<Tuple> tuples = entityManager.createQuery(
+                "SELECT " + fields.selectList() + " FROM Doctor d ORDER BY " + DISTANCE, Tuple.class)
+                .setParameter("latitude", latitude)
+                .setParameter("longitude", longitude)
+                .setMaxResults(limit)
+                .getResultList();
+        return fields.toRows(tuples);
+    }
+}
@@ -0,0 +1,104 @@
+package com.appointment.repository;
+
+import jakarta.persistence.Tuple;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The fields a client asked for with {@code ?fields=}, resolved against the fields a query can select.
+ * Only the selected expressions go into the select list, so narrow requests read narrow rows.
+ */
+public final class FieldSelection {
+
+    private final Map<String, String> available;
+    private final Map<String, String> expressions;
+
+    private FieldSelection(Map<String, String> available, Map<String, String> expressions) {
+        this.available = available;
+        this.expressions = expressions;
+    }
+
+    /**
+     * Parses a comma separated field list; {@code available} maps field names to select expressions.
+     * Fields come out in the order of {@code available}, whatever order they were asked in.
+     *
+     * @throws IllegalArgumentException for unknown or missing fields
+     */
+    public static FieldSelection parse(String fields, Map<String, String> available) {
+        Set<String> requested = new HashSet<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (!available.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown field '" + name + "', expected any of " + available.keySet());
+            }
+            requested.add(name);
+        }
+        if (requested.isEmpty()) {
+            throw new IllegalArgumentException("No fields selected");
+        }
+        return select(available, requested);
+    }
+
+    private static FieldSelection select(Map<String, String> available, Set<String> requested) {
+        Map<String, String> selected = new LinkedHashMap<>();
+        available.forEach((name, expression) -> {
+            if (requested.contains(name)) {
+                selected.put(name, expression);
+            }
+        });
+        return new FieldSelection(available, selected);
+    }
+
+    /** This selection plus {@code names}, e.g. the fields a caller needs to post-process the rows. */
+    public FieldSelection with(String... names) {
+        Set<String> requested = new HashSet<>(expressions.keySet());
+        requested.addAll(List.of(names));
+        return select(available, requested);
+    }
+
+    /** Drops the fields of {@code row} this selection did not ask for. */
+    public Map<String, Object> project(Map<String, Object> row) {
+        if (row.size() == expressions.size()) {
+            return row;
+        }
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (String name : expressions.keySet()) {
+            projected.put(name, row.get(name));
+        }
+        return projected;
+    }
+
+    /** The same for every spelling of the same selection, e.g. for cache keys. */
+    public String key() {
+        return String.join(",", expressions.keySet());
+    }
+
+    boolean uses(String alias) {
+        return expressions.values().stream().anyMatch(expression -> expression.startsWith(alias + "."));
+    }
+
+    String selectList() {
+        return String.join(", ", expressions.values());
+    }
+
+    List<Map<String, Object>> toRows(List<Tuple> tuples) {
+        List<Map<String, Object>> rows = new ArrayList<>(tuples.size());
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            int i = 0;
+            for (String name : expressions.keySet()) {
+                row.put(name, tuple.get(i++));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,51 @@
+package com.appointment.repository;
+
+import com.appointment.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Read-write so that it always hits the primary, a replica may not have seen the claim yet
+    @Override
+    @Transactional
+    Optional<IdempotencyRecord> findById(String key);
+
+    // Claims the key atomically; returns 0 when another request (on any node) already owns it. An
+    // IN_FLIGHT claim of the same request made before staleBefore is taken over, its owner is presumed dead
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, request_fingerprint, status, created_at, claimed_at) " +
+           "VALUES (:key, :fingerprint, 'IN_FLIGHT', :claimedAt, :claimedAt) ON CONFLICT (idempotency_key) DO UPDATE " +
+           "SET claimed_at = EXCLUDED.claimed_at WHERE idempotency_keys.status = 'IN_FLIGHT' " +
+           "AND idempotency_keys.request_fingerprint = EXCLUDED.request_fingerprint " +
+           "AND COALESCE(idempotency_keys.claimed_at, idempotency_keys.created_at) < :staleBefore", nativeQuery = true)
+    int claim(@Param("key") String key, @Param("fingerprint") String fingerprint,
+              @Param("claimedAt") LocalDateTime claimedAt, @Param("staleBefore") LocalDateTime staleBefore);
+
+    // The claimedAt of the claim guards against finishing a claim that was taken over meanwhile
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'COMPLETED', r.responseBody = :responseBody " +
+           "WHERE r.key = :key AND r.claimedAt = :claimedAt")
+    int complete(@Param("key") String key, @Param("claimedAt") LocalDateTime claimedAt,
+                 @Param("responseBody") String responseBody);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.key = :key AND r.claimedAt = :claimedAt AND r.status = 'IN_FLIGHT'")
+    int release(@Param("key") String key, @Param("claimedAt") LocalDateTime claimedAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
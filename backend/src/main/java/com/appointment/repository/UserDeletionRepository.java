@@ -0,0 +1,47 @@
+package com.appointment.repository;
+
+import com.appointment.entity.UserDeletion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserDeletionRepository extends JpaRepository<UserDeletion, Long> {
+
+    // Read-write so that it always hits the primary, progress on a replica lags behind
+    @Override
+    @Transactional
+    Optional<UserDeletion> findById(Long userId);
+
+    @Transactional
+    @Query("SELECT d.userId FROM UserDeletion d WHERE d.status <> 'COMPLETED' ORDER BY d.requestedAt")
+    List<Long> findUnfinishedUserIds();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserDeletion d SET d.status = 'RUNNING' WHERE d.userId = :userId AND d.status = 'PENDING'")
+    int markRunning(@Param("userId") Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserDeletion d SET d.appointmentsDeleted = d.appointmentsDeleted + :deleted WHERE d.userId = :userId")
+    int addDeleted(@Param("userId") Long userId, @Param("deleted") long deleted);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserDeletion d SET d.error = :error WHERE d.userId = :userId")
+    int recordError(@Param("userId") Long userId, @Param("error") String error);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserDeletion d SET d.status = 'COMPLETED', d.completedAt = :completedAt, d.error = null " +
+           "WHERE d.userId = :userId")
+    int markCompleted(@Param("userId") Long userId, @Param("completedAt") LocalDateTime completedAt);
+}
@@ -0,0 +1,26 @@
+package com.appointment.repository;
+
+import com.appointment.dto.AdminUserDTO;
+import com.appointment.entity.User;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Looks the user up by its natural id, so repeated lookups are served from the second-level cache
+     * instead of running a query.
+     */
+    @Transactional(readOnly = true)
+    Optional<User> findByEmail(String email);
+
+    /**
+     * One page of the admin user directory: live users with an id above {@code afterId}, in id order,
+     * optionally only those with {@code role} and those whose email, first or last name starts with
+     * {@code prefix}, ignoring case.
+     */
+    @Transactional(readOnly = true)
+    List<AdminUserDTO> findDirectoryPage(String prefix, User.Role role, long afterId, int limit);
+}
@@ -0,0 +1,92 @@
+package com.appointment.repository;
+
+import com.appointment.dto.AdminUserDTO;
+import com.appointment.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+class UserRepositoryCustomImpl implements UserRepositoryCustom {
+
+    private static final String DIRECTORY_SQL =
+            "SELECT id, first_name, last_name, email, role, city, created_at, last_login FROM users " +
+            "WHERE deleted_at IS NULL AND id > ?";
+
+    // Shorter prefixes match many users, walking the id order finds a page of them soonest
+    private static final int INDEXED_PREFIX_CHARS = 3;
+
+    // Same expressions as the indexes of db/patches/003_users_directory_indexes.sql
+    private static final String PREFIX_SQL =
+            " AND (lower(email) COLLATE \"C\" >= ? AND lower(email) COLLATE \"C\" < ?" +
+            " OR lower(last_name) COLLATE \"C\" >= ? AND lower(last_name) COLLATE \"C\" < ?" +
+            " OR lower(first_name) COLLATE \"C\" >= ? AND lower(first_name) COLLATE \"C\" < ?)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(User.class)
+                .loadOptional(email);
+    }
+
+    @Override
+    public List<AdminUserDTO> findDirectoryPage(String prefix, User.Role role, long afterId, int limit) {
+        StringBuilder sql = new StringBuilder(DIRECTORY_SQL);
+        List<Object> args = new ArrayList<>();
+        args.add(afterId);
+        if (role != null) {
+            sql.append(" AND role = ?");
+            args.add(role.name());
+        }
+        if (prefix != null && !prefix.isBlank()) {
+            // A range rather than LIKE, so the plan does not depend on the prefix being known
+            String from = prefix.trim().toLowerCase(Locale.ROOT);
+            String to = prefixEnd(from);
+            sql.append(PREFIX_SQL);
+            for (int column = 0; column < 3; column++) {
+                args.add(from);
+                args.add(to);
+            }
+            // PostgreSQL has no statistics for the prefix ranges and would walk the id order for any
+            // prefix, reading the whole table for a rare one. OFFSET 0 keeps the subquery from being
+            // flattened, so its matches come from the prefix indexes and only they are sorted.
+            if (from.codePointCount(0, from.length()) >= INDEXED_PREFIX_CHARS) {
+                sql.insert(0, "SELECT * FROM (").append(" OFFSET 0) matches");
+            }
+        }
+        sql.append(" ORDER BY id LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new AdminUserDTO(
+                rs.getLong("id"),
+                rs.getString("first_name"),
+                rs.getString("last_name"),
+                rs.getString("email"),
+                rs.getString("role"),
+                rs.getString("city"),
+                rs.getObject("created_at", LocalDateTime.class),
+                rs.getObject("last_login", LocalDateTime.class)), args.toArray());
+    }
+
+    // The first string in code point order after all strings starting with prefix
+    private static String prefixEnd(String prefix) {
+        int last = prefix.codePointBefore(prefix.length());
+        int next = last + 1 == Character.MIN_SURROGATE ? Character.MAX_SURROGATE + 1 : last + 1;
+        return prefix.substring(0, prefix.length() - Character.charCount(last)) + Character.toString(next);
+    }
+}
@@ -1,22 +1,45 @@
 package com.appointment.service;
 
+import com.appointment.audit.AuditAction;
+import com.appointment.audit.AuditLog;
 import com.appointment.dto.AppointmentDTO;
 import com.appointment.dto.CreateAppointmentRequest;
+import com.appointment.calendar.CalendarFeedService;
+import com.appointment.cluster.ClusterCoordinator;
+import com.appointment.config.ReadYourWritesTracker;
 import com.appointment.entity.Appointment;
 import com.appointment.entity.Doctor;
 import com.appointment.entity.User;
+import com.appointment.reminder.ReminderScheduler;
 import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.FieldSelection;
+import com.appointment.shard.ShardContext;
+import com.appointment.shard.ShardRouter;
+import com.appointment.waitingroom.WaitingRoom;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+/**
+ * Appointment use cases. Transactions are opened through {@link ShardRouter}: bookings and cancellations
+ * on the shard of the doctor, a patient's listings on every shard.
+ */
 @Service
 public class AppointmentService {
 
+    private static final Comparator<AppointmentDTO> NEWEST_FIRST = Comparator
+            .comparing(AppointmentDTO::appointmentDate)
+            .thenComparing(AppointmentDTO::appointmentTime)
+            .reversed();
+
     @Autowired
     private AppointmentRepository appointmentRepository;
 
@@ -26,12 +49,39 @@ public class AppointmentService {
     @Autowired
     private AuthService authService;
 
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Autowired
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Autowired
+    private ReminderScheduler reminderScheduler;
+
+    @Autowired
+    private CalendarFeedService calendarFeedService;
+
+    @Autowired
+    private WaitingRoom waitingRoom;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private AuditLog auditLog;
+
     public AppointmentDTO createAppointment(CreateAppointmentRequest request, String userEmail) {
         Long doctorId = request.getDoctorId();
         if (doctorId == null) {
             throw new RuntimeException("Doctor ID cannot be null");
         }
+        AppointmentDTO booked = shardRouter.writeForDoctor(doctorId, () -> book(request, doctorId, userEmail));
+        auditLog.record(AuditAction.BOOK, userEmail, booked.id(), "doctor=" + doctorId + " at="
+                + booked.appointmentDate() + "T" + booked.appointmentTime());
+        return booked;
+    }
 
+    private AppointmentDTO book(CreateAppointmentRequest request, Long doctorId, String userEmail) {
         User user = authService.getCurrentUser(userEmail);
         Doctor doctor = doctorService.getDoctorEntityById(doctorId);
 
@@ -39,6 +89,9 @@ public class AppointmentService {
             throw new RuntimeException("Cannot book appointment in the past");
         }
 
+        // Serialize concurrent bookings of the same slot, across nodes when clustered
+        clusterCoordinator.lockSlot(doctorId, request.getAppointmentDate(), request.getAppointmentTime());
+
         Optional<Appointment> existingAppointment = appointmentRepository.findByDoctorAndAppointmentDateAndAppointmentTime(
                 doctor, request.getAppointmentDate(), request.getAppointmentTime()
         );
@@ -55,29 +108,73 @@ public class AppointmentService {
         appointment.setStatus(Appointment.AppointmentStatus.BOOKED);
 
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        readYourWritesTracker.markWrite(userEmail);
+        reminderScheduler.appointmentBooked(savedAppointment);
+        calendarFeedService.appointmentChanged(user.getId(), doctorId);
         return new AppointmentDTO(savedAppointment);
     }
 
     public List<AppointmentDTO> getUserAppointments(String userEmail) {
         User user = authService.getCurrentUser(userEmail);
-        return appointmentRepository.findByUserOrderByAppointmentDateDescAppointmentTimeDesc(user)
-                .stream()
-                .map(AppointmentDTO::new)
-                .collect(Collectors.toList());
+        List<AppointmentDTO> appointments = shardRouter.readAll(
+                () -> appointmentRepository.findByUserOrderByAppointmentDateDescAppointmentTimeDesc(user)
+                        .stream()
+                        .map(AppointmentDTO::new)
+                        .collect(Collectors.toList()),
+                AppointmentDTO::doctorId);
+        if (shardRouter.isSharded()) {
+            appointments.sort(NEWEST_FIRST);
+        }
+        auditLog.record(AuditAction.LIST, userEmail, user.getId(), "count=" + appointments.size());
+        return appointments;
+    }
+
+    public List<Map<String, Object>> getUserAppointments(String userEmail, FieldSelection fields) {
+        User user = authService.getCurrentUser(userEmail);
+        if (!shardRouter.isSharded()) {
+            List<Map<String, Object>> rows = shardRouter.inTransaction(ShardContext.HOME, true,
+                    () -> appointmentRepository.findByUserSelecting(user.getId(), fields));
+            auditLog.record(AuditAction.LIST, userEmail, user.getId(), "count=" + rows.size());
+            return rows;
+        }
+        // Selected as well to drop rows of buckets being moved and to merge the shards in order
+        FieldSelection query = fields.with("doctorId", "appointmentDate", "appointmentTime");
+        List<Map<String, Object>> rows = shardRouter.readAll(
+                () -> appointmentRepository.findByUserSelecting(user.getId(), query),
+                row -> (Long) row.get("doctorId"));
+        rows.sort(Comparator.<Map<String, Object>, LocalDate>comparing(row -> (LocalDate) row.get("appointmentDate"))
+                .thenComparing(row -> (LocalTime) row.get("appointmentTime"))
+                .reversed());
+        auditLog.record(AuditAction.LIST, userEmail, user.getId(), "count=" + rows.size());
+        return rows.stream().map(fields::project).collect(Collectors.toList());
     }
 
     public List<AppointmentDTO> getActiveUserAppointments(String userEmail) {
         User user = authService.getCurrentUser(userEmail);
-        return appointmentRepository.findActiveAppointmentsByUser(user)
-                .stream()
-                .map(AppointmentDTO::new)
-                .collect(Collectors.toList());
+        // Anything older is completed by AppointmentCompletionJob
+        List<AppointmentDTO> appointments = shardRouter.readAll(
+                () -> appointmentRepository.findActiveAppointmentsByUser(user, LocalDate.now().minusDays(1))
+                        .stream()
+                        .map(AppointmentDTO::new)
+                        .collect(Collectors.toList()),
+                AppointmentDTO::doctorId);
+        if (shardRouter.isSharded()) {
+            appointments.sort(NEWEST_FIRST.reversed());
+        }
+        auditLog.record(AuditAction.LIST, userEmail, user.getId(), "active count=" + appointments.size());
+        return appointments;
     }
 
     public AppointmentDTO cancelAppointment(Long appointmentId, String userEmail) {
         if (appointmentId == null) {
             throw new RuntimeException("Appointment ID cannot be null");
         }
+        AppointmentDTO cancelled = shardRouter.writeForAppointment(appointmentId, () -> cancel(appointmentId, userEmail));
+        auditLog.record(AuditAction.CANCEL, userEmail, appointmentId, "doctor=" + cancelled.doctorId());
+        return cancelled;
+    }
+
+    private AppointmentDTO cancel(Long appointmentId, String userEmail) {
         User user = authService.getCurrentUser(userEmail);
         Appointment appointment = appointmentRepository.findByIdWithUserAndDoctor(appointmentId)
                 .orElseThrow(() -> new RuntimeException("Appointment not found"));
@@ -92,6 +189,11 @@ public class AppointmentService {
 
         appointment.setStatus(Appointment.AppointmentStatus.CANCELLED);
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        readYourWritesTracker.markWrite(userEmail);
+        reminderScheduler.appointmentCancelled(savedAppointment.getId());
+        calendarFeedService.appointmentChanged(user.getId(), appointment.getDoctor().getId());
+        waitingRoom.slotReleased(appointment.getDoctor().getId(), appointment.getAppointmentDate(),
+                appointment.getAppointmentTime());
         return new AppointmentDTO(savedAppointment);
     }
 
@@ -99,14 +201,18 @@ public class AppointmentService {
         if (appointmentId == null) {
             throw new RuntimeException("Appointment ID cannot be null");
         }
-        User user = authService.getCurrentUser(userEmail);
-        Appointment appointment = appointmentRepository.findByIdWithUserAndDoctor(appointmentId)
-                .orElseThrow(() -> new RuntimeException("Appointment not found"));
-
-        if (!appointment.getUser().getId().equals(user.getId())) {
-            throw new RuntimeException("You can only view your own appointments");
-        }
-
-        return new AppointmentDTO(appointment);
+        AppointmentDTO viewed = shardRouter.readForAppointment(appointmentId, () -> {
+            User user = authService.getCurrentUser(userEmail);
+            Appointment appointment = appointmentRepository.findByIdWithUserAndDoctor(appointmentId)
+                    .orElseThrow(() -> new RuntimeException("Appointment not found"));
+
+            if (!appointment.getUser().getId().equals(user.getId())) {
+                throw new RuntimeException("You can only view your own appointments");
+            }
+
+            return new AppointmentDTO(appointment);
+        });
+        auditLog.record(AuditAction.VIEW, userEmail, appointmentId, null);
+        return viewed;
     }
 }
\ No newline at end of file
@@ -3,6 +3,8 @@ package com.appointment.service;
 import com.appointment.dto.LoginRequest;
 import com.appointment.dto.LoginResponse;
 import com.appointment.entity.User;
+import com.appointment.location.LocationWriteBuffer;
+import com.appointment.location.UserLocation;
 import com.appointment.repository.UserRepository;
 import com.appointment.security.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +13,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class AuthService {
@@ -27,6 +30,11 @@ public class AuthService {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private LocationWriteBuffer locationWriteBuffer;
+
+    // Read-write on purpose: a user logging in right after registering must be found on the primary
+    @Transactional
     public LoginResponse login(LoginRequest loginRequest) {
         try {
             authenticationManager.authenticate(
@@ -75,18 +83,22 @@ public class AuthService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
     }
 
+    /** The current user as they last saw themselves, including a location that is not written yet. */
+    public User getProfile(String email) {
+        User user = getCurrentUser(email);
+        locationWriteBuffer.pending(user.getId()).ifPresent(location -> location.applyTo(user));
+        return user;
+    }
+
+    // Buffered, see LocationWriteBuffer; the returned user is detached and shows the new location
     public User updateUserLocation(String email, Double latitude, Double longitude, String address, String city, String state, String country) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        user.setLatitude(latitude);
-        user.setLongitude(longitude);
-        user.setAddress(address);
-        user.setCity(city);
-        user.setState(state);
-        user.setCountry(country);
-
-        return userRepository.save(user);
+        UserLocation location = new UserLocation(latitude, longitude, address, city, state, country);
+        locationWriteBuffer.update(user.getId(), location);
+        location.applyTo(user);
+        return user;
     }
 
     @SuppressWarnings("null")
@@ -98,6 +110,7 @@ public class AuthService {
             user.setPhone(phone);
         }
         if (address != null && !address.isEmpty()) {
+            locationWriteBuffer.addressChanged(user.getId(), address);
             user.setAddress(address);
         }
 
@@ -2,13 +2,23 @@ package com.appointment.service;
 
 import com.appointment.dto.DoctorDTO;
 import com.appointment.entity.Doctor;
+import com.appointment.nearby.Geohash;
+import com.appointment.nearby.NearbyDoctorCache;
 import com.appointment.repository.DoctorRepository;
+import com.appointment.repository.FieldSelection;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,6 +27,22 @@ public class DoctorService {
     @Autowired
     private DoctorRepository doctorRepository;
 
+    @Autowired
+    private NearbyDoctorCache nearbyDoctorCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Transactional(readOnly = true)
+    @Cacheable("doctors")
     public List<DoctorDTO> getAllDoctors() {
         return doctorRepository.findAll()
                 .stream()
@@ -24,12 +50,22 @@ public class DoctorService {
                 .collect(Collectors.toList());
     }
 
+    // Shares the "doctors" cache, so clearing the directory also drops the narrow variants
+    @Transactional(readOnly = true)
+    @Cacheable(value = "doctors", key = "'fields:' + #fields.key()")
+    public List<Map<String, Object>> getAllDoctors(FieldSelection fields) {
+        return doctorRepository.findAllSelecting(fields);
+    }
+
+    @Transactional(readOnly = true)
+    @Cacheable(value = "doctor", key = "#id")
     public DoctorDTO getDoctorById(@NonNull Long id) {
         Doctor doctor = doctorRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Doctor not found with id: " + id));
         return new DoctorDTO(doctor);
     }
 
+    @Transactional(readOnly = true)
     public List<DoctorDTO> searchDoctorsBySpecialty(String specialty) {
         return doctorRepository.findDoctorsBySpecialty(specialty)
                 .stream()
@@ -38,38 +74,31 @@ public class DoctorService {
     }
 
     public List<DoctorDTO> getNearbyDoctors(BigDecimal latitude, BigDecimal longitude, int limit) {
-        List<Doctor> doctors = doctorRepository.findNearbyDoctors(latitude, longitude, limit);
-        return doctors.stream()
-                .map(doctor -> {
-                    DoctorDTO dto = new DoctorDTO(doctor);
-                    // Calculate distance using Haversine formula
-                    double distance = calculateDistance(
-                        latitude.doubleValue(),
-                        longitude.doubleValue(),
-                        doctor.getLatitude().doubleValue(),
-                        doctor.getLongitude().doubleValue()
-                    );
-                    dto.setDistance(distance);
-                    return dto;
-                })
-                .collect(Collectors.toList());
+        double lat = latitude.doubleValue();
+        double lon = longitude.doubleValue();
+        if (nearbyDoctorCache.covers(limit)) {
+            // Candidates are shared by the whole geohash cell, the ranking is for this exact point
+            return nearbyDoctorCache.candidates(lat, lon, limit).stream()
+                    .map(doctor -> doctor.withDistance(Geohash.distanceKm(lat, lon,
+                            doctor.latitude().doubleValue(), doctor.longitude().doubleValue())))
+                    .sorted(Comparator.comparingDouble(DoctorDTO::distance).thenComparing(DoctorDTO::id))
+                    .limit(limit)
+                    .collect(Collectors.toList());
+        }
+        return readOnlyTransaction.execute(status -> doctorRepository.findNearbyDoctors(latitude, longitude, limit)
+                .stream()
+                .map(doctor -> new DoctorDTO(doctor).withDistance(Geohash.distanceKm(lat, lon,
+                        doctor.getLatitude().doubleValue(), doctor.getLongitude().doubleValue())))
+                .collect(Collectors.toList()));
     }
 
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int EARTH_RADIUS = 6371; // Radius of the Earth in kilometers
-
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-
-        return EARTH_RADIUS * c; // Distance in kilometers
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getNearbyDoctors(BigDecimal latitude, BigDecimal longitude, int limit,
+                                                      FieldSelection fields) {
+        return doctorRepository.findNearbySelecting(fields, latitude.doubleValue(), longitude.doubleValue(), limit);
     }
 
+    @Transactional(readOnly = true)
     public Doctor getDoctorEntityById(@NonNull Long id) {
         return doctorRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Doctor not found with id: " + id));
@@ -0,0 +1,291 @@
+package com.appointment.service;
+
+import com.appointment.dto.AvailableSlotDTO;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.DoctorRepository;
+import com.appointment.shard.ShardMap;
+import com.appointment.shard.ShardRouter;
+import com.appointment.tracing.Tracer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds the earliest free slots among the doctors near a point.
+ * <p>
+ * The candidates within the radius are read once. The date window is then searched in chunks that
+ * start at {@code initial-chunk-days} and double: the booked slots of a chunk are loaded for batches
+ * of candidates in parallel, every candidate gets a cursor over its free slots in the chunk and the
+ * cursors are merged through a heap ordered by time, then distance. As every slot of a chunk is
+ * earlier than any slot of the next one, the search stops in the first chunk that fills the limit.
+ */
+@Service
+public class FirstAvailableSlotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FirstAvailableSlotService.class);
+    private static final double KM_PER_DEGREE = 111.32;
+
+    private static final Comparator<SlotCursor> EARLIEST_FIRST = Comparator
+            .comparing((SlotCursor cursor) -> cursor.current)
+            .thenComparingDouble(cursor -> cursor.distance)
+            .thenComparingLong(cursor -> cursor.doctorId);
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private Tracer tracer;
+
+    // Same grid as TIME_SLOTS in the frontend
+    @Value("${app.slots.first-time:09:00}")
+    private String firstSlotTime;
+
+    @Value("${app.slots.last-time:18:30}")
+    private String lastSlotTime;
+
+    @Value("${app.slots.minutes:30}")
+    private int slotMinutes;
+
+    @Value("${app.first-available.max-radius-km:50}")
+    private double maxRadiusKm;
+
+    @Value("${app.first-available.max-days:60}")
+    private int maxDays;
+
+    @Value("${app.first-available.max-results:50}")
+    private int maxResults;
+
+    @Value("${app.first-available.max-candidates:500}")
+    private int maxCandidates;
+
+    @Value("${app.first-available.initial-chunk-days:1}")
+    private int initialChunkDays;
+
+    @Value("${app.first-available.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.first-available.parallelism:8}")
+    private int parallelism;
+
+    private List<LocalTime> slotTimes;
+    private ExecutorService executor;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    void init() {
+        List<LocalTime> times = new ArrayList<>();
+        LocalTime last = LocalTime.parse(lastSlotTime);
+        for (LocalTime time = LocalTime.parse(firstSlotTime); !time.isAfter(last); time = time.plusMinutes(slotMinutes)) {
+            times.add(time);
+            if (time.plusMinutes(slotMinutes).isBefore(time)) {
+                break;
+            }
+        }
+        slotTimes = Collections.unmodifiableList(times);
+
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "first-available-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Read-only so the lookups can go to the replica
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public List<AvailableSlotDTO> findFirstAvailable(String specialty, double latitude, double longitude,
+                                                     double radiusKm, LocalDate from, int days, int limit) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new RuntimeException("Invalid coordinates");
+        }
+        if (radiusKm <= 0 || radiusKm > maxRadiusKm) {
+            throw new RuntimeException("Radius must be between 0 and " + maxRadiusKm + " km");
+        }
+        if (days < 1 || days > maxDays) {
+            throw new RuntimeException("Days must be between 1 and " + maxDays);
+        }
+        if (limit < 1 || limit > maxResults) {
+            throw new RuntimeException("Limit must be between 1 and " + maxResults);
+        }
+
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate start = from == null || from.isBefore(now.toLocalDate()) ? now.toLocalDate() : from;
+        LocalDate end = start.plusDays(days - 1L);
+        String specialtyFilter = specialty == null || specialty.isBlank() ? null : specialty.trim();
+
+        List<DoctorRepository.DoctorDistance> candidates = findCandidates(specialtyFilter, latitude, longitude, radiusKm);
+        List<AvailableSlotDTO> results = new ArrayList<>();
+        int chunks = 0;
+        int chunkDays = Math.max(1, initialChunkDays);
+        LocalDate chunkStart = start;
+        while (!candidates.isEmpty() && !chunkStart.isAfter(end) && results.size() < limit) {
+            LocalDate chunkEnd = chunkStart.plusDays(chunkDays - 1L);
+            if (chunkEnd.isAfter(end)) {
+                chunkEnd = end;
+            }
+            Map<Long, Set<LocalDateTime>> booked = findBooked(candidates, chunkStart, chunkEnd);
+
+            PriorityQueue<SlotCursor> heap = new PriorityQueue<>(candidates.size(), EARLIEST_FIRST);
+            for (DoctorRepository.DoctorDistance candidate : candidates) {
+                SlotCursor cursor = new SlotCursor(candidate, booked.getOrDefault(candidate.getId(), Set.of()),
+                        chunkStart, chunkEnd, now);
+                if (cursor.advance()) {
+                    heap.add(cursor);
+                }
+            }
+            while (results.size() < limit && !heap.isEmpty()) {
+                SlotCursor cursor = heap.poll();
+                results.add(cursor.toSlot());
+                if (cursor.advance()) {
+                    heap.add(cursor);
+                }
+            }
+
+            chunks++;
+            chunkStart = chunkEnd.plusDays(1);
+            chunkDays *= 2;
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("First available search: {} candidates, {} chunks, {} slots in {} ms", candidates.size(),
+                    chunks, results.size(), (System.nanoTime() - started) / 1_000_000);
+        }
+        return results;
+    }
+
+    private List<DoctorRepository.DoctorDistance> findCandidates(String specialty, double latitude, double longitude,
+                                                                 double radiusKm) {
+        double latitudeDelta = radiusKm / KM_PER_DEGREE;
+        double cosLatitude = Math.cos(Math.toRadians(Math.min(90, Math.abs(latitude) + latitudeDelta)));
+        double longitudeDelta = cosLatitude < 0.01 ? 180 : radiusKm / (KM_PER_DEGREE * cosLatitude);
+        // Widen to the whole longitude range near the poles and across the antimeridian
+        boolean allLongitudes = longitude - longitudeDelta < -180 || longitude + longitudeDelta > 180;
+        double minLongitude = allLongitudes ? -180 : longitude - longitudeDelta;
+        double maxLongitude = allLongitudes ? 180 : longitude + longitudeDelta;
+        return readOnlyTransaction.execute(status -> doctorRepository.findWithinRadius(specialty, latitude, longitude,
+                latitude - latitudeDelta, latitude + latitudeDelta, minLongitude, maxLongitude, radiusKm,
+                maxCandidates));
+    }
+
+    private Map<Long, Set<LocalDateTime>> findBooked(List<DoctorRepository.DoctorDistance> candidates,
+                                                     LocalDate from, LocalDate to) {
+        // Batches never span shards, each is looked up where its doctors' appointments are
+        Map<Integer, List<Long>> doctorsByShard = new HashMap<>();
+        for (DoctorRepository.DoctorDistance candidate : candidates) {
+            doctorsByShard.computeIfAbsent(shardMap.shardOf(candidate.getId()), shard -> new ArrayList<>())
+                    .add(candidate.getId());
+        }
+        List<CompletableFuture<List<AppointmentRepository.BookedSlot>>> lookups = new ArrayList<>();
+        doctorsByShard.forEach((shard, shardDoctorIds) -> {
+            for (int i = 0; i < shardDoctorIds.size(); i += batchSize) {
+                List<Long> doctorIds = shardDoctorIds.subList(i, Math.min(i + batchSize, shardDoctorIds.size()));
+                lookups.add(CompletableFuture.supplyAsync(tracer.wrap(() -> shardRouter.inTransaction(shard, true, () ->
+                        appointmentRepository.findBookedSlotsOfDoctorsBetween(doctorIds, from, to))), executor));
+            }
+        });
+
+        Map<Long, Set<LocalDateTime>> booked = new HashMap<>();
+        try {
+            for (CompletableFuture<List<AppointmentRepository.BookedSlot>> lookup : lookups) {
+                for (AppointmentRepository.BookedSlot slot : lookup.join()) {
+                    booked.computeIfAbsent(slot.getDoctorId(), id -> new HashSet<>())
+                            .add(LocalDateTime.of(slot.getAppointmentDate(), slot.getAppointmentTime()));
+                }
+            }
+        } catch (CompletionException e) {
+            lookups.forEach(lookup -> lookup.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return booked;
+    }
+
+    // Walks the free slots of one doctor in a chunk, in time order
+    private final class SlotCursor {
+        private final long doctorId;
+        private final double distance;
+        private final DoctorRepository.DoctorDistance doctor;
+        private final Set<LocalDateTime> booked;
+        private final LocalDate lastDate;
+        private final LocalDateTime notBefore;
+        private LocalDate date;
+        private int slot = -1;
+        private LocalDateTime current;
+
+        private SlotCursor(DoctorRepository.DoctorDistance doctor, Set<LocalDateTime> booked, LocalDate firstDate,
+                           LocalDate lastDate, LocalDateTime notBefore) {
+            this.doctorId = doctor.getId();
+            this.distance = doctor.getDistance();
+            this.doctor = doctor;
+            this.booked = booked;
+            this.date = firstDate;
+            this.lastDate = lastDate;
+            this.notBefore = notBefore;
+        }
+
+        private boolean advance() {
+            while (!date.isAfter(lastDate)) {
+                while (++slot < slotTimes.size()) {
+                    LocalDateTime candidate = LocalDateTime.of(date, slotTimes.get(slot));
+                    if (candidate.isAfter(notBefore) && !booked.contains(candidate)) {
+                        current = candidate;
+                        return true;
+                    }
+                }
+                date = date.plusDays(1);
+                slot = -1;
+            }
+            return false;
+        }
+
+        private AvailableSlotDTO toSlot() {
+            return new AvailableSlotDTO(doctorId, doctor.getName(), doctor.getSpecialty(), doctor.getAddress(),
+                    distance, current.toLocalDate(), current.toLocalTime());
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.appointment.service;
+
+import com.appointment.dto.AppointmentDTO;
+import com.appointment.dto.CreateAppointmentRequest;
+import com.appointment.entity.IdempotencyRecord;
+import com.appointment.exception.CustomExceptions;
+import com.appointment.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates appointment creation by client supplied Idempotency-Key.
+ * <p>
+ * Keys are scoped to the authenticated user. Results live in a bounded LRU map so that replays
+ * are answered from memory; concurrent duplicates wait on the first execution instead of running
+ * the booking again. With {@code app.idempotency.persistent=true} keys are also claimed in the
+ * {@code idempotency_keys} table so duplicates landing on another node are coalesced too; a claim whose
+ * request has not finished within {@code lease-ms} can be taken over by a retry.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final int MAX_KEY_LENGTH = 128;
+
+    @Value("${app.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.idempotency.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${app.idempotency.wait-timeout-ms:10000}")
+    private long waitTimeoutMs;
+
+    // How long a claim in idempotency_keys protects a request that has not finished, e.g. because its node died
+    @Value("${app.idempotency.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${app.idempotency.persistent:false}")
+    private boolean persistent;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * The result of an earlier request with this key, waited for if it is still running on this node, or
+     * empty if the key is new or its request is running on another node. Lets a retry be answered before
+     * the booking goes through admission control.
+     */
+    public Optional<AppointmentDTO> replay(String userEmail, String idempotencyKey, CreateAppointmentRequest request) {
+        checkKey(idempotencyKey);
+        String storeKey = userEmail + ":" + idempotencyKey;
+        String fingerprint = fingerprint(request);
+        Entry existing;
+        synchronized (entries) {
+            existing = entries.get(storeKey);
+        }
+        if (existing != null && !isExpired(existing)) {
+            checkFingerprint(existing.fingerprint, fingerprint);
+            return Optional.of(await(existing.result));
+        }
+        if (persistent) {
+            Optional<IdempotencyRecord> record = idempotencyRecordRepository.findById(storeKey);
+            if (record.isPresent() && record.get().getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                checkFingerprint(record.get().getRequestFingerprint(), fingerprint);
+                return Optional.of(readResult(record.get()));
+            }
+        }
+        return Optional.empty();
+    }
+
+    public AppointmentDTO execute(String userEmail, String idempotencyKey, CreateAppointmentRequest request,
+                                  Supplier<AppointmentDTO> action) {
+        checkKey(idempotencyKey);
+
+        String storeKey = userEmail + ":" + idempotencyKey;
+        String fingerprint = fingerprint(request);
+        Entry entry = new Entry(fingerprint, System.currentTimeMillis());
+        Entry existing;
+
+        synchronized (entries) {
+            existing = entries.get(storeKey);
+            if (existing != null && isExpired(existing)) {
+                entries.remove(storeKey);
+                existing = null;
+            }
+            if (existing == null) {
+                entries.put(storeKey, entry);
+            }
+        }
+
+        if (existing != null) {
+            checkFingerprint(existing.fingerprint, fingerprint);
+            return await(existing.result);
+        }
+
+        try {
+            AppointmentDTO result = persistent ? executePersistent(storeKey, fingerprint, action) : action.get();
+            entry.result.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            // Failed attempts are not remembered so that the client can retry with the same key
+            synchronized (entries) {
+                entries.remove(storeKey, entry);
+            }
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private AppointmentDTO executePersistent(String storeKey, String fingerprint, Supplier<AppointmentDTO> action) {
+        // Truncated to what the column stores, so that complete and release find the claim again
+        LocalDateTime claimedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        if (idempotencyRecordRepository.claim(storeKey, fingerprint, claimedAt, claimedAt.minus(leaseMs, ChronoUnit.MILLIS)) == 0) {
+            return awaitPersisted(storeKey, fingerprint);
+        }
+
+        AppointmentDTO result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            idempotencyRecordRepository.release(storeKey, claimedAt);
+            throw e;
+        }
+
+        int completed;
+        try {
+            completed = idempotencyRecordRepository.complete(storeKey, claimedAt, objectMapper.writeValueAsString(result));
+        } catch (JsonProcessingException | RuntimeException e) {
+            // Released rather than left IN_FLIGHT, which would answer every retry with a conflict
+            idempotencyRecordRepository.release(storeKey, claimedAt);
+            throw new RuntimeException("Could not store idempotent result for key " + storeKey, e);
+        }
+        if (completed == 0) {
+            logger.warn("Idempotency key {} was taken over after its lease expired, its result was not stored", storeKey);
+        }
+        return result;
+    }
+
+    private AppointmentDTO awaitPersisted(String storeKey, String fingerprint) {
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+        long backoff = 20;
+
+        while (true) {
+            Optional<IdempotencyRecord> record = idempotencyRecordRepository.findById(storeKey);
+            if (record.isEmpty()) {
+                // The owner failed and released the key
+                throw new CustomExceptions.AppointmentConflictException(
+                        "A previous request with this Idempotency-Key failed, please retry");
+            }
+
+            checkFingerprint(record.get().getRequestFingerprint(), fingerprint);
+            if (record.get().getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                return readResult(record.get());
+            }
+
+            if (System.currentTimeMillis() >= deadline) {
+                throw new CustomExceptions.AppointmentConflictException(
+                        "A request with this Idempotency-Key is still being processed");
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for idempotent request", e);
+            }
+            backoff = Math.min(backoff * 2, 500);
+        }
+    }
+
+    private AppointmentDTO readResult(IdempotencyRecord record) {
+        try {
+            return objectMapper.readValue(record.getResponseBody(), AppointmentDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Stored idempotent response is unreadable", e);
+        }
+    }
+
+    private AppointmentDTO await(CompletableFuture<AppointmentDTO> result) {
+        try {
+            return result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new CustomExceptions.AppointmentConflictException(
+                    "A request with this Idempotency-Key is still being processed");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for idempotent request", e);
+        }
+    }
+
+    private void checkKey(String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+    }
+
+    private void checkFingerprint(String stored, String fingerprint) {
+        if (!stored.equals(fingerprint)) {
+            throw new CustomExceptions.AppointmentConflictException(
+                    "Idempotency-Key was already used for a different appointment request");
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        return System.currentTimeMillis() - entry.createdAt > TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+    private String fingerprint(CreateAppointmentRequest request) {
+        return request.getDoctorId() + "|" + request.getAppointmentDate() + "|" + request.getAppointmentTime();
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        synchronized (entries) {
+            entries.values().removeIf(entry -> entry.result.isDone() && isExpired(entry));
+        }
+        if (persistent) {
+            int purged = idempotencyRecordRepository.deleteOlderThan(LocalDateTime.now().minusMinutes(ttlMinutes));
+            if (purged > 0) {
+                logger.info("Purged {} expired idempotency keys", purged);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+        private final long createdAt;
+        private final CompletableFuture<AppointmentDTO> result = new CompletableFuture<>();
+
+        private Entry(String fingerprint, long createdAt) {
+            this.fingerprint = fingerprint;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.appointment.service;
+
+import com.appointment.audit.AuditAction;
+import com.appointment.audit.AuditLog;
+import com.appointment.calendar.CalendarFeedService;
+import com.appointment.cluster.ClusterCoordinator;
+import com.appointment.entity.Appointment;
+import com.appointment.entity.UserDeletion;
+import com.appointment.reminder.ReminderScheduler;
+import com.appointment.repository.UserDeletionRepository;
+import com.appointment.repository.UserRepository;
+import com.appointment.shard.ShardRouter;
+import com.appointment.waitingroom.WaitingRoom;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes users without loading their history.
+ * <p>
+ * A deletion first turns the user into an anonymized tombstone ({@code deleted_at} set, personal data
+ * overwritten) and records a {@link UserDeletion}, in one short transaction. Their appointments are then
+ * deleted set-based, {@code chunk-size} rows per statement on each shard: right away for accounts with
+ * up to {@code inline-max-appointments}, otherwise by a job on the cluster leader that pauses between
+ * chunks and reports progress in the {@code user_deletions} row. Rows locked by a booking or a shard move
+ * are skipped; a deletion completes once a count finds no appointment of the user on any shard.
+ */
+@Service
+public class UserDeletionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDeletionService.class);
+
+    private static final String LEADER_ROLE = "user-deletion";
+
+    private static final String DELETE_CHUNK_SQL =
+            "DELETE FROM appointments WHERE id IN (" +
+            "SELECT id FROM appointments WHERE user_id = ? LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, doctor_id, appointment_date, appointment_time, status";
+
+    private static final String COUNT_SQL = "SELECT count(*) FROM appointments WHERE user_id = ?";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserDeletionRepository userDeletionRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Autowired
+    private CalendarFeedService calendarFeedService;
+
+    @Autowired
+    private ReminderScheduler reminderScheduler;
+
+    @Autowired
+    private WaitingRoom waitingRoom;
+
+    @Autowired
+    private AuditLog auditLog;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.user-deletion.inline-max-appointments:1000}")
+    private long inlineMaxAppointments;
+
+    @Value("${app.user-deletion.chunk-size:1000}")
+    private int chunkSize;
+
+    // Per deletion and run of the job; the rest waits for the next run
+    @Value("${app.user-deletion.max-chunks:200}")
+    private int maxChunks;
+
+    @Value("${app.user-deletion.throttle-ms:100}")
+    private long throttleMs;
+
+    private TransactionTemplate transaction;
+    private final AtomicLong pending = new AtomicLong();
+    private Counter deletedCounter;
+
+    @PostConstruct
+    void init() {
+        transaction = new TransactionTemplate(transactionManager);
+        Gauge.builder("users.deletion.pending", pending, AtomicLong::get)
+                .description("User deletions whose appointments are not all deleted yet")
+                .register(meterRegistry);
+        deletedCounter = Counter.builder("users.deletion.appointments.deleted").register(meterRegistry);
+    }
+
+    /**
+     * Deletes a user; empty when there is no such user. Asking again for a deleted user returns the
+     * progress of the first request.
+     */
+    public Optional<UserDeletion> deleteUser(Long userId, String requestedBy) {
+        Optional<UserDeletion> existing = userDeletionRepository.findById(userId);
+        if (existing.isPresent()) {
+            return existing;
+        }
+        long total = countAppointments(userId);
+        // The row lock makes a concurrent request for the same user wait and then find the tombstone
+        String email = transaction.execute(status -> userRepository.findByIdForUpdate(userId)
+                .filter(user -> !user.isDeleted())
+                .map(user -> {
+                    String original = user.getEmail();
+                    user.setEmail("deleted-" + userId + "@deleted.invalid");
+                    // Not a BCrypt hash, so no password matches it
+                    user.setPassword("!" + UUID.randomUUID());
+                    user.setFirstName("Deleted");
+                    user.setLastName("User");
+                    user.setPhone(null);
+                    user.setAddress(null);
+                    user.setLatitude(null);
+                    user.setLongitude(null);
+                    user.setCity(null);
+                    user.setState(null);
+                    user.setCountry(null);
+                    user.setDeletedAt(LocalDateTime.now());
+                    userDeletionRepository.save(new UserDeletion(userId, requestedBy, total));
+                    return original;
+                })
+                .orElse(null));
+        if (email == null) {
+            return userDeletionRepository.findById(userId);
+        }
+        auditLog.record(AuditAction.USER_DELETE, requestedBy, userId, email);
+        if (total <= inlineMaxAppointments) {
+            try {
+                deleteAppointments(userId, false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return userDeletionRepository.findById(userId);
+    }
+
+    public Optional<UserDeletion> getDeletion(Long userId) {
+        return userDeletionRepository.findById(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.user-deletion.interval-ms:10000}",
+               initialDelayString = "${app.user-deletion.initial-delay-ms:30000}")
+    public void run() {
+        if (!clusterCoordinator.isLeader(LEADER_ROLE)) {
+            return;
+        }
+        List<Long> unfinished = userDeletionRepository.findUnfinishedUserIds();
+        pending.set(unfinished.size());
+        for (Long userId : unfinished) {
+            try {
+                if (deleteAppointments(userId, true)) {
+                    pending.decrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("Deleting the appointments of user {} failed, retrying on the next run", userId, e);
+                userDeletionRepository.recordError(userId, String.valueOf(e.getMessage()));
+            }
+        }
+    }
+
+    /** Deletes up to {@code max-chunks} chunks of the user's appointments; true once none are left. */
+    private boolean deleteAppointments(Long userId, boolean throttle) throws InterruptedException {
+        userDeletionRepository.markRunning(userId);
+        long started = System.currentTimeMillis();
+        long deleted = 0;
+        int chunks = 0;
+        for (int shard = 0; shard < shardRouter.shardCount() && chunks < maxChunks; shard++) {
+            JdbcTemplate jdbc = shardRouter.jdbc(shard);
+            while (chunks < maxChunks) {
+                List<DeletedAppointment> rows = jdbc.query(DELETE_CHUNK_SQL, (rs, rowNum) -> new DeletedAppointment(
+                        rs.getLong(1), rs.getLong(2), rs.getObject(3, LocalDate.class), rs.getObject(4, LocalTime.class),
+                        rs.getString(5)), userId, chunkSize);
+                chunks++;
+                if (rows.isEmpty()) {
+                    break;
+                }
+                released(userId, rows);
+                userDeletionRepository.addDeleted(userId, rows.size());
+                deletedCounter.increment(rows.size());
+                deleted += rows.size();
+                if (rows.size() < chunkSize) {
+                    break;
+                }
+                if (throttle) {
+                    Thread.sleep(throttleMs);
+                }
+            }
+        }
+        // Rows skipped as locked, or copied to another shard by a move meanwhile, are found by the count
+        boolean done = chunks < maxChunks && countAppointments(userId) == 0;
+        if (done) {
+            userDeletionRepository.markCompleted(userId, LocalDateTime.now());
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} appointments of user {} in {} chunks ({} ms){}", deleted, userId, chunks,
+                    System.currentTimeMillis() - started, done ? ", deletion complete" : "");
+        }
+        return done;
+    }
+
+    // What cancelling each appointment would have done, once the delete has committed
+    private void released(Long userId, List<DeletedAppointment> rows) {
+        LocalDate feedStart = calendarFeedService.feedStart();
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> feedDoctors = new HashSet<>();
+        for (DeletedAppointment row : rows) {
+            if (Appointment.AppointmentStatus.BOOKED.name().equals(row.status())
+                    && row.date().atTime(row.time()).isAfter(now)) {
+                reminderScheduler.appointmentCancelled(row.id());
+                waitingRoom.slotReleased(row.doctorId(), row.date(), row.time());
+            }
+            if (!row.date().isBefore(feedStart)) {
+                feedDoctors.add(row.doctorId());
+            }
+        }
+        calendarFeedService.appointmentsRemoved(userId, feedDoctors);
+    }
+
+    private long countAppointments(Long userId) {
+        return shardRouter.scatter(shard -> shardRouter.jdbc(shard).queryForObject(COUNT_SQL, Long.class, userId))
+                .stream().mapToLong(Long::longValue).sum();
+    }
+
+    private record DeletedAppointment(long id, long doctorId, LocalDate date, LocalTime time, String status) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.appointment.shard;
+
+/**
+ * The shard the statements of the current thread go to, {@link #HOME} unless {@link ShardRouter} set
+ * another one.
+ */
+public final class ShardContext {
+
+    /** The main database, which also holds everything that is not sharded. */
+    public static final int HOME = 0;
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard != null ? shard : HOME;
+    }
+
+    public static boolean isHome() {
+        return current() == HOME;
+    }
+
+    static Integer set(int shard) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void restore(Integer previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
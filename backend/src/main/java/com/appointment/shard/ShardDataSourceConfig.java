@@ -0,0 +1,100 @@
+package com.appointment.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Puts a {@link ShardRoutingDataSource} in front of the application's data source, which becomes shard 0,
+ * with a pool per database in {@code app.sharding.urls} as shards 1..n. Enabled with
+ * {@code app.sharding.enabled=true}. Wrapping rather than replacing the {@code dataSource} bean keeps
+ * the replica routing of shard 0 when that is enabled too.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sharding.enabled", havingValue = "true")
+public class ShardDataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public ShardDataSources shardDataSources(DataSourceProperties properties,
+                                             @Value("${app.sharding.urls}") List<String> urls,
+                                             @Value("${app.sharding.username:}") String username,
+                                             @Value("${app.sharding.password:}") String password,
+                                             @Value("${app.sharding.hikari.maximum-pool-size:20}") int maximumPoolSize,
+                                             @Value("${app.sharding.hikari.minimum-idle:2}") int minimumIdle) {
+        List<HikariDataSource> pools = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource pool = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(username.isEmpty() ? properties.determineUsername() : username)
+                    .password(password.isEmpty() ? properties.determinePassword() : password)
+                    .build();
+            pool.setPoolName("shard-" + (pools.size() + 1));
+            pool.setMaximumPoolSize(maximumPoolSize);
+            pool.setMinimumIdle(minimumIdle);
+            pools.add(pool);
+        }
+        if (pools.isEmpty()) {
+            throw new IllegalStateException("app.sharding.enabled is set but app.sharding.urls lists no databases");
+        }
+        return new ShardDataSources(pools);
+    }
+
+    @Bean
+    public static BeanPostProcessor shardRoutingDataSourcePostProcessor(ObjectProvider<ShardDataSources> shardDataSources) {
+        return new ShardRoutingPostProcessor(shardDataSources);
+    }
+
+    // Ordered, so it runs before unordered post-processors that wrap the routed data source (tracing)
+    private static final class ShardRoutingPostProcessor implements BeanPostProcessor, Ordered {
+
+        private final ObjectProvider<ShardDataSources> shardDataSources;
+
+        ShardRoutingPostProcessor(ObjectProvider<ShardDataSources> shardDataSources) {
+            this.shardDataSources = shardDataSources;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!"dataSource".equals(beanName) || !(bean instanceof DataSource home)) {
+                return bean;
+            }
+            ShardDataSources shards = shardDataSources.getObject();
+            Map<Object, Object> targets = new HashMap<>();
+            targets.put(ShardContext.HOME, home);
+            for (int shard = 1; shard < shards.count(); shard++) {
+                targets.put(shard, shards.get(shard));
+            }
+            ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource();
+            routingDataSource.setTargetDataSources(targets);
+            routingDataSource.setDefaultTargetDataSource(home);
+            // An unknown shard is a bug, not something to quietly send home
+            routingDataSource.setLenientFallback(false);
+            routingDataSource.afterPropertiesSet();
+            return new LazyConnectionDataSourceProxy(routingDataSource);
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.appointment.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.util.List;
+
+/**
+ * Pools of the shard databases other than {@link ShardContext#HOME}, shard {@code n} at index {@code n - 1}.
+ */
+public class ShardDataSources implements AutoCloseable {
+
+    private final List<HikariDataSource> pools;
+
+    public ShardDataSources(List<HikariDataSource> pools) {
+        this.pools = List.copyOf(pools);
+    }
+
+    /** Number of shards, home included. */
+    public int count() {
+        return pools.size() + 1;
+    }
+
+    public HikariDataSource get(int shard) {
+        if (shard <= ShardContext.HOME || shard > pools.size()) {
+            throw new IllegalArgumentException("No pool for shard " + shard);
+        }
+        return pools.get(shard - 1);
+    }
+
+    @Override
+    public void close() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,100 @@
+package com.appointment.shard;
+
+import com.appointment.cluster.ClusterCoordinator;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+/**
+ * Which shard holds the appointments of a doctor.
+ * <p>
+ * Doctors fall into a fixed number of buckets by id ({@code doctor_id % buckets}, so SQL can compute it
+ * too) and {@code shard_buckets} on the home database assigns every bucket to a shard. The map is read
+ * into memory at startup and again whenever a node announces a change. A bucket with a target shard is
+ * being moved by the {@link ShardRebalancer}; its doctors cannot be booked until the move is done.
+ */
+@Component
+@DependsOn("shardSchemaManager")
+public class ShardMap {
+
+    static final String REGION = "shard-map";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Value("${app.sharding.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.sharding.buckets:1024}")
+    private int buckets;
+
+    private volatile Assignment assignment;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            assignment = new Assignment(new int[buckets], new int[buckets]);
+            Arrays.fill(assignment.targets, -1);
+            return;
+        }
+        reload();
+        clusterCoordinator.onInvalidation(REGION, key -> reload());
+    }
+
+    public int buckets() {
+        return buckets;
+    }
+
+    public int bucketOf(long doctorId) {
+        return (int) Math.floorMod(doctorId, (long) buckets);
+    }
+
+    public int shardOf(long doctorId) {
+        return assignment.shards[bucketOf(doctorId)];
+    }
+
+    public boolean isMoving(long doctorId) {
+        return assignment.targets[bucketOf(doctorId)] >= 0;
+    }
+
+    /** Shard of every bucket, indexed by bucket. */
+    public int[] shards() {
+        return assignment.shards.clone();
+    }
+
+    /** Target shard of every bucket being moved, -1 for the others. */
+    public int[] targets() {
+        return assignment.targets.clone();
+    }
+
+    /** Must be called in the home transaction that changed {@code shard_buckets}; every node reloads after commit. */
+    void changed() {
+        clusterCoordinator.broadcastInvalidation(REGION, ClusterCoordinator.ALL_KEYS);
+    }
+
+    void reload() {
+        int[] shards = new int[buckets];
+        int[] targets = new int[buckets];
+        Arrays.fill(targets, -1);
+        jdbcTemplate.query("SELECT bucket, shard, target_shard FROM shard_buckets", rs -> {
+            int bucket = rs.getInt(1);
+            shards[bucket] = rs.getInt(2);
+            int target = rs.getInt(3);
+            if (!rs.wasNull()) {
+                targets[bucket] = target;
+            }
+        });
+        assignment = new Assignment(shards, targets);
+    }
+
+    private record Assignment(int[] shards, int[] targets) {
+    }
+}
@@ -0,0 +1,304 @@
+package com.appointment.shard;
+
+import com.appointment.cluster.ClusterCoordinator;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Moves buckets of doctors between shards until the shards hold about the same number of appointments.
+ * <p>
+ * The plan is greedy: while it narrows the gap, the bucket of the fullest shard that best halves its gap
+ * to the emptiest shard moves there. Every bucket also weighs one row, so an empty system spreads its
+ * buckets evenly. Moves run one after another on a background thread of the node that leads the
+ * {@code shard-rebalancer} role:
+ * <ol>
+ * <li>mark the bucket as moving in {@code shard_buckets}, which stops bookings for it on every node,</li>
+ * <li>fence it on the old shard (waiting for the writes in flight) and unfence it on the new one,</li>
+ * <li>copy its appointments, ids included, in batches,</li>
+ * <li>point the bucket at the new shard,</li>
+ * <li>delete the copied rows from the old shard.</li>
+ * </ol>
+ * Every step can be repeated, so a move cut short by a restart is finished by the next run.
+ */
+@Component
+public class ShardRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final String LEADER_ROLE = "shard-rebalancer";
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Value("${app.sharding.rebalance.batch-size:5000}")
+    private int batchSize;
+
+    private final Object lock = new Object();
+    private Thread worker;
+    private volatile Progress progress = new Progress(false, 0, 0, -1, 0, null);
+
+    public record Move(int bucket, int from, int to, long rows) {
+    }
+
+    public record Progress(boolean running, int planned, int done, int currentBucket, long rowsCopied, String error) {
+    }
+
+    @PreDestroy
+    void shutdown() {
+        synchronized (lock) {
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+    }
+
+    /** Buckets, appointment rows and moves in progress per shard, plus the progress of the last run on this node. */
+    public Map<String, Object> status() {
+        List<Map<Integer, Long>> rows = countRowsPerBucket();
+        int[] shards = shardMap.shards();
+        int[] targets = shardMap.targets();
+        List<Map<String, Object>> perShard = new ArrayList<>();
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            int buckets = 0;
+            int movingOut = 0;
+            long owned = 0;
+            for (int bucket = 0; bucket < shards.length; bucket++) {
+                if (shards[bucket] == shard) {
+                    buckets++;
+                    owned += rows.get(shard).getOrDefault(bucket, 0L);
+                    if (targets[bucket] >= 0) {
+                        movingOut++;
+                    }
+                }
+            }
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("shard", shard);
+            entry.put("buckets", buckets);
+            entry.put("appointments", owned);
+            entry.put("movingOut", movingOut);
+            perShard.add(entry);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("shards", perShard);
+        result.put("rebalance", progress);
+        return result;
+    }
+
+    /** The moves a rebalance would make now, at most {@code maxMoves}. */
+    public List<Move> plan(int maxMoves) {
+        List<Map<Integer, Long>> rows = countRowsPerBucket();
+        int[] shards = shardMap.shards();
+        long[] load = new long[shardRouter.shardCount()];
+        long[] weight = new long[shards.length];
+        for (int bucket = 0; bucket < shards.length; bucket++) {
+            weight[bucket] = rows.get(shards[bucket]).getOrDefault(bucket, 0L) + 1;
+            load[shards[bucket]] += weight[bucket];
+        }
+
+        List<Move> moves = new ArrayList<>();
+        while (moves.size() < maxMoves) {
+            int fullest = 0;
+            int emptiest = 0;
+            for (int shard = 1; shard < load.length; shard++) {
+                if (load[shard] > load[fullest]) {
+                    fullest = shard;
+                }
+                if (load[shard] < load[emptiest]) {
+                    emptiest = shard;
+                }
+            }
+            long gap = load[fullest] - load[emptiest];
+            // Moving w changes the gap to |gap - 2w|, which is smaller for any 0 < w < gap
+            int best = -1;
+            for (int bucket = 0; bucket < shards.length; bucket++) {
+                if (shards[bucket] == fullest && weight[bucket] < gap
+                        && (best < 0 || Math.abs(gap - 2 * weight[bucket]) < Math.abs(gap - 2 * weight[best]))) {
+                    best = bucket;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            shards[best] = emptiest;
+            load[fullest] -= weight[best];
+            load[emptiest] += weight[best];
+            moves.add(new Move(best, fullest, emptiest, weight[best] - 1));
+        }
+        return moves;
+    }
+
+    /**
+     * Finishes interrupted moves, then starts the moves of {@link #plan} in the background.
+     *
+     * @throws IllegalStateException if not sharded, not the leader or already running
+     */
+    public List<Move> start(int maxMoves) {
+        if (!shardRouter.isSharded()) {
+            throw new IllegalStateException("Sharding is not enabled");
+        }
+        if (!clusterCoordinator.isLeader(LEADER_ROLE)) {
+            throw new IllegalStateException("Another node leads the shard rebalancer");
+        }
+        synchronized (lock) {
+            if (worker != null && worker.isAlive()) {
+                throw new IllegalStateException("A rebalance is already running");
+            }
+            List<Move> moves = new ArrayList<>(interruptedMoves());
+            moves.addAll(plan(maxMoves));
+            progress = new Progress(true, moves.size(), 0, -1, 0, null);
+            worker = new Thread(() -> run(moves), "shard-rebalancer");
+            worker.setDaemon(true);
+            worker.start();
+            return moves;
+        }
+    }
+
+    public Progress progress() {
+        return progress;
+    }
+
+    private void run(List<Move> moves) {
+        long started = System.currentTimeMillis();
+        int done = 0;
+        long copied = 0;
+        try {
+            for (Move move : moves) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IllegalStateException("Rebalance interrupted");
+                }
+                progress = new Progress(true, moves.size(), done, move.bucket(), copied, null);
+                copied += move(move);
+                done++;
+            }
+            progress = new Progress(false, moves.size(), done, -1, copied, null);
+            logger.info("Rebalance moved {} buckets and {} appointments in {} ms", done, copied,
+                    System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            logger.error("Rebalance stopped after {} of {} moves", done, moves.size(), e);
+            progress = new Progress(false, moves.size(), done, -1, copied, e.getMessage());
+        }
+    }
+
+    private long move(Move move) {
+        int bucket = move.bucket();
+        boolean marked = shardRouter.inTransaction(ShardContext.HOME, false, () -> {
+            int updated = jdbcTemplate.update("UPDATE shard_buckets SET target_shard = ? WHERE bucket = ? AND shard = ? " +
+                    "AND (target_shard IS NULL OR target_shard = ?)", move.to(), bucket, move.from(), move.to());
+            if (updated > 0) {
+                shardMap.changed();
+            }
+            return updated > 0;
+        });
+        if (!marked) {
+            logger.warn("Bucket {} is no longer on shard {}, skipped", bucket, move.from());
+            return 0;
+        }
+
+        JdbcTemplate from = shardRouter.jdbc(move.from());
+        JdbcTemplate to = shardRouter.jdbc(move.to());
+        from.update(ShardRouter.FENCE_SQL, bucket, bucket);
+        to.update("DELETE FROM shard_bucket_fences WHERE bucket = ?", bucket);
+
+        long[] doctorIds = jdbcTemplate.queryForList("SELECT id FROM doctors WHERE id % ? = ?", Long.class,
+                        shardMap.buckets(), bucket)
+                .stream().mapToLong(Long::longValue).toArray();
+        long copied = copy(from, to, doctorIds);
+
+        shardRouter.inTransaction(ShardContext.HOME, false, () -> {
+            jdbcTemplate.update("UPDATE shard_buckets SET shard = ?, target_shard = NULL WHERE bucket = ?", move.to(), bucket);
+            shardMap.changed();
+            return null;
+        });
+        int deleted = from.update("DELETE FROM appointments WHERE doctor_id = ANY (?)", (Object) doctorIds);
+        logger.debug("Moved bucket {} from shard {} to {}: {} copied, {} deleted", bucket, move.from(), move.to(),
+                copied, deleted);
+        return copied;
+    }
+
+    private long copy(JdbcTemplate from, JdbcTemplate to, long[] doctorIds) {
+        long copied = 0;
+        long lastId = 0;
+        while (true) {
+            List<String> columns = new ArrayList<>();
+            List<Object[]> batch = new ArrayList<>();
+            long after = lastId;
+            from.query("SELECT * FROM appointments WHERE doctor_id = ANY (?) AND id > ? ORDER BY id LIMIT ?", rs -> {
+                ResultSetMetaData meta = rs.getMetaData();
+                if (columns.isEmpty()) {
+                    for (int i = 1; i <= meta.getColumnCount(); i++) {
+                        columns.add(meta.getColumnName(i));
+                    }
+                }
+                Object[] row = new Object[columns.size()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = rs.getObject(i + 1);
+                }
+                batch.add(row);
+            }, doctorIds, after, batchSize);
+            if (batch.isEmpty()) {
+                return copied;
+            }
+            StringJoiner names = new StringJoiner(", ");
+            StringJoiner values = new StringJoiner(", ");
+            columns.forEach(column -> {
+                names.add(column);
+                values.add("?");
+            });
+            // Repeated moves find their rows already there
+            to.batchUpdate("INSERT INTO appointments (" + names + ") VALUES (" + values + ") ON CONFLICT (id) DO NOTHING", batch);
+            copied += batch.size();
+            lastId = ((Number) batch.get(batch.size() - 1)[columns.indexOf("id")]).longValue();
+            progress = new Progress(true, progress.planned(), progress.done(), progress.currentBucket(),
+                    progress.rowsCopied() + batch.size(), null);
+            if (batch.size() < batchSize) {
+                return copied;
+            }
+        }
+    }
+
+    private List<Move> interruptedMoves() {
+        int[] shards = shardMap.shards();
+        int[] targets = shardMap.targets();
+        List<Move> moves = new ArrayList<>();
+        for (int bucket = 0; bucket < shards.length; bucket++) {
+            if (targets[bucket] >= 0) {
+                moves.add(new Move(bucket, shards[bucket], targets[bucket], 0));
+            }
+        }
+        return moves;
+    }
+
+    // Appointment rows per bucket, for every shard (index) the buckets it holds rows of
+    private List<Map<Integer, Long>> countRowsPerBucket() {
+        return shardRouter.scatter(shard -> {
+            Map<Integer, Long> counts = new HashMap<>();
+            shardRouter.jdbc(shard).query("SELECT doctor_id % ? AS bucket, count(*) FROM appointments GROUP BY 1",
+                    rs -> {
+                        counts.put(rs.getInt(1), rs.getLong(2));
+                    }, shardMap.buckets());
+            return counts;
+        });
+    }
+}
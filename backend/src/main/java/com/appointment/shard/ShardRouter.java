@@ -0,0 +1,445 @@
+package com.appointment.shard;
+
+import com.appointment.exception.CustomExceptions;
+import com.appointment.tracing.Tracer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Runs appointment work on the right shard.
+ * <p>
+ * Writes go to the shard of the doctor, in a transaction opened there. Reads by user or over all
+ * appointments are scattered to every shard in parallel and gathered; rows a shard holds for a bucket it
+ * does not own (briefly, while the {@link ShardRebalancer} moves the bucket) are dropped, so every row
+ * is seen once. Without sharding everything runs on {@link ShardContext#HOME} on the calling thread, as
+ * plain transactions did before.
+ * <p>
+ * A write first takes a shared advisory lock on the doctor's bucket and checks that the shard has not
+ * fenced the bucket off. Moving a bucket fences it under the exclusive lock, which waits for the writes
+ * in flight, so no write can land on the old shard once the copy has started.
+ */
+@Component
+public class ShardRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRouter.class);
+
+    private static final int FENCE_LOCK_NAMESPACE = 6;
+    static final String FENCE_SQL = "WITH fence_lock AS (SELECT pg_advisory_xact_lock(" + FENCE_LOCK_NAMESPACE + ", ?)) " +
+            "INSERT INTO shard_bucket_fences (bucket) SELECT ? FROM fence_lock ON CONFLICT DO NOTHING";
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectProvider<ShardDataSources> shardDataSources;
+
+    @Autowired
+    private Tracer tracer;
+
+    @Value("${app.sharding.scatter-threads:8}")
+    private int scatterThreads;
+
+    // Rows buffered per shard while a merged stream waits for the slowest shard
+    @Value("${app.sharding.stream-buffer:1000}")
+    private int streamBuffer;
+
+    @Value("${app.sharding.move-retry-after-seconds:5}")
+    private long moveRetryAfterSeconds;
+
+    private final List<JdbcTemplate> shardJdbc = new ArrayList<>();
+    private ExecutorService scatterExecutor;
+    private ExecutorService streamExecutor;
+    private TransactionTemplate readTransaction;
+    private TransactionTemplate writeTransaction;
+    private TransactionTemplate afterCommitTransaction;
+
+    @PostConstruct
+    void init() {
+        shardJdbc.add(jdbcTemplate);
+        ShardDataSources shards = shardDataSources.getIfAvailable();
+        if (shards != null) {
+            for (int shard = 1; shard < shards.count(); shard++) {
+                shardJdbc.add(new JdbcTemplate(shards.get(shard)));
+            }
+        }
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        // afterCommit callbacks still see the finished transaction, so they need a new one
+        afterCommitTransaction = new TransactionTemplate(transactionManager);
+        afterCommitTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        if (isSharded()) {
+            AtomicInteger threads = new AtomicInteger();
+            scatterExecutor = Executors.newFixedThreadPool(scatterThreads, runnable -> {
+                Thread thread = new Thread(runnable, "shard-scatter-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Unbounded: a merged stream needs a reader per shard at once, a fixed pool could deadlock them
+            streamExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "shard-stream-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scatterExecutor != null) {
+            scatterExecutor.shutdownNow();
+            streamExecutor.shutdownNow();
+        }
+    }
+
+    public int shardCount() {
+        return shardJdbc.size();
+    }
+
+    public boolean isSharded() {
+        return shardJdbc.size() > 1;
+    }
+
+    /**
+     * Plain JDBC on one shard. For shards other than home it does not take part in the caller's
+     * transaction, so it can be used while one is open on home.
+     */
+    public JdbcTemplate jdbc(int shard) {
+        return shardJdbc.get(shard);
+    }
+
+    /** Runs {@code work} with its statements going to {@code shard}; cannot switch shards inside a transaction. */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        if (shard < 0 || shard >= shardCount()) {
+            throw new IllegalArgumentException("No shard " + shard);
+        }
+        if (ShardContext.current() != shard && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot switch to shard " + shard + " inside a transaction on shard "
+                    + ShardContext.current());
+        }
+        Integer previous = ShardContext.set(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    /** Runs {@code work} in a transaction on {@code shard}, joining one already open there. */
+    public <T> T inTransaction(int shard, boolean readOnly, Supplier<T> work) {
+        TransactionTemplate transaction = readOnly ? readTransaction : writeTransaction;
+        return onShard(shard, () -> transaction.execute(status -> work.get()));
+    }
+
+    /**
+     * Runs a write to a doctor's appointments in a transaction on the doctor's shard.
+     *
+     * @throws CustomExceptions.ShardMovingException if the doctor's bucket is being moved
+     */
+    public <T> T writeForDoctor(long doctorId, Supplier<T> work) {
+        if (!isSharded()) {
+            return inTransaction(ShardContext.HOME, false, work);
+        }
+        if (shardMap.isMoving(doctorId)) {
+            throw moving();
+        }
+        return inTransaction(shardMap.shardOf(doctorId), false, () -> {
+            checkFence(doctorId);
+            return work.get();
+        });
+    }
+
+    /** Like {@link #writeForDoctor} for the doctor of an existing appointment; {@code work} runs on home if it does not exist. */
+    public <T> T writeForAppointment(long appointmentId, Supplier<T> work) {
+        Long doctorId = isSharded() ? findDoctorOfAppointment(appointmentId) : null;
+        return doctorId != null ? writeForDoctor(doctorId, work) : inTransaction(ShardContext.HOME, false, work);
+    }
+
+    /** Runs a read of an existing appointment on its shard; {@code work} runs on home if it does not exist. */
+    public <T> T readForAppointment(long appointmentId, Supplier<T> work) {
+        Long doctorId = isSharded() ? findDoctorOfAppointment(appointmentId) : null;
+        return inTransaction(doctorId != null ? shardMap.shardOf(doctorId) : ShardContext.HOME, true, work);
+    }
+
+    /** Runs {@code query} in a read-only transaction on every shard and concatenates the rows each shard owns. */
+    public <T> List<T> readAll(Supplier<List<T>> query, ToLongFunction<T> doctorIdOf) {
+        if (!isSharded()) {
+            return inTransaction(ShardContext.HOME, true, query);
+        }
+        List<T> rows = new ArrayList<>();
+        for (List<T> shardRows : scatter(shard -> owned(shard, inTransaction(shard, true, query), doctorIdOf))) {
+            rows.addAll(shardRows);
+        }
+        return rows;
+    }
+
+    /**
+     * Runs {@code work} on every shard, in parallel with home on the calling thread, and returns the
+     * results in shard order. {@code work} opens its own transactions, if any.
+     */
+    public <T> List<T> scatter(IntFunction<T> work) {
+        if (!isSharded()) {
+            return List.of(onShard(ShardContext.HOME, () -> work.apply(ShardContext.HOME)));
+        }
+        List<CompletableFuture<T>> others = new ArrayList<>();
+        for (int shard = 1; shard < shardCount(); shard++) {
+            int target = shard;
+            others.add(CompletableFuture.supplyAsync(tracer.wrap(() -> onShard(target, () -> work.apply(target))), scatterExecutor));
+        }
+        List<T> results = new ArrayList<>();
+        try {
+            results.add(onShard(ShardContext.HOME, () -> work.apply(ShardContext.HOME)));
+            for (CompletableFuture<T> other : others) {
+                results.add(other.join());
+            }
+        } catch (CompletionException e) {
+            others.forEach(other -> other.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Streams {@code query} from every shard in a read-only transaction and hands {@code consumer} one
+     * iterator over the rows each shard owns, merged by {@code order} (which every shard's stream must
+     * follow). Each shard is read on a thread of its own into a buffer of {@code stream-buffer} rows.
+     */
+    public <T> void streamAll(Supplier<Stream<T>> query, Comparator<? super T> order, ToLongFunction<T> doctorIdOf,
+                              Consumer<Iterator<T>> consumer) {
+        if (!isSharded()) {
+            inTransaction(ShardContext.HOME, true, () -> {
+                try (Stream<T> rows = query.get()) {
+                    consumer.accept(rows.iterator());
+                }
+                return null;
+            });
+            return;
+        }
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<ShardFeed<T>> feeds = new ArrayList<>();
+        for (int shard = 0; shard < shardCount(); shard++) {
+            ShardFeed<T> feed = new ShardFeed<>(shard, new ArrayBlockingQueue<>(streamBuffer));
+            feeds.add(feed);
+            streamExecutor.execute(() -> feed.fill(query, doctorIdOf, cancelled));
+        }
+        try {
+            consumer.accept(new MergingIterator<>(feeds, order));
+        } finally {
+            cancelled.set(true);
+            // Unblocks readers waiting for room
+            feeds.forEach(feed -> feed.rows.clear());
+        }
+    }
+
+    /** Runs {@code work} in a home transaction after the current transaction commits, right away without one. */
+    public void afterCommitOnHome(Runnable work) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            inTransaction(ShardContext.HOME, false, () -> {
+                work.run();
+                return null;
+            });
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                Integer previous = ShardContext.set(ShardContext.HOME);
+                try {
+                    afterCommitTransaction.executeWithoutResult(status -> work.run());
+                } catch (RuntimeException e) {
+                    // The shard transaction is committed, failing the request now would only mislead the caller
+                    logger.error("Home update after a shard commit failed", e);
+                } finally {
+                    ShardContext.restore(previous);
+                }
+            }
+        });
+    }
+
+    /** Whether the rows {@code shard} holds for {@code doctorId} count, see {@link ShardMap}. */
+    public boolean owns(int shard, long doctorId) {
+        return shardMap.shardOf(doctorId) == shard;
+    }
+
+    private <T> List<T> owned(int shard, List<T> rows, ToLongFunction<T> doctorIdOf) {
+        List<T> kept = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            if (owns(shard, doctorIdOf.applyAsLong(row))) {
+                kept.add(row);
+            }
+        }
+        return kept;
+    }
+
+    private Long findDoctorOfAppointment(long appointmentId) {
+        List<List<Long>> found = scatter(shard -> jdbc(shard).queryForList(
+                "SELECT doctor_id FROM appointments WHERE id = ?", Long.class, appointmentId));
+        for (int shard = 0; shard < found.size(); shard++) {
+            for (Long doctorId : found.get(shard)) {
+                if (owns(shard, doctorId)) {
+                    return doctorId;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void checkFence(long doctorId) {
+        int bucket = shardMap.bucketOf(doctorId);
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock_shared(?, ?)", rs -> {}, FENCE_LOCK_NAMESPACE, bucket);
+        // A separate statement, so it sees a fence committed while we waited for the lock
+        Boolean fenced = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM shard_bucket_fences WHERE bucket = ?)", Boolean.class, bucket);
+        if (Boolean.TRUE.equals(fenced)) {
+            throw moving();
+        }
+    }
+
+    private CustomExceptions.ShardMovingException moving() {
+        return new CustomExceptions.ShardMovingException(
+                "This doctor's schedule is being moved, please try again shortly", moveRetryAfterSeconds);
+    }
+
+    // The rows of one shard on their way to a merged stream, END once the shard is done
+    private final class ShardFeed<T> {
+        private final int shard;
+        private final BlockingQueue<Object> rows;
+        private volatile RuntimeException failure;
+
+        private ShardFeed(int shard, BlockingQueue<Object> rows) {
+            this.shard = shard;
+            this.rows = rows;
+        }
+
+        private void fill(Supplier<Stream<T>> query, ToLongFunction<T> doctorIdOf, AtomicBoolean cancelled) {
+            try {
+                inTransaction(shard, true, () -> {
+                    try (Stream<T> stream = query.get()) {
+                        Iterator<T> iterator = stream.iterator();
+                        while (iterator.hasNext() && !cancelled.get()) {
+                            T row = iterator.next();
+                            if (owns(shard, doctorIdOf.applyAsLong(row))) {
+                                put(row, cancelled);
+                            }
+                        }
+                    }
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                put(END, cancelled);
+            }
+        }
+
+        private void put(Object row, AtomicBoolean cancelled) {
+            try {
+                while (!cancelled.get()) {
+                    if (rows.offer(row, 100, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled.set(true);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private T take() {
+            Object row;
+            try {
+                row = rows.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while reading shard " + shard, e);
+            }
+            if (row == END) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return null;
+            }
+            return (T) row;
+        }
+    }
+
+    private static final Object END = new Object();
+
+    private static final class MergingIterator<T> implements Iterator<T> {
+        private final PriorityQueue<Head<T>> heads;
+
+        private MergingIterator(List<ShardFeed<T>> feeds, Comparator<? super T> order) {
+            heads = new PriorityQueue<>(feeds.size(), (a, b) -> order.compare(a.row, b.row));
+            for (ShardFeed<T> feed : feeds) {
+                T first = feed.take();
+                if (first != null) {
+                    heads.add(new Head<>(feed, first));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Head<T> head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            T next = head.feed.take();
+            if (next != null) {
+                heads.add(new Head<>(head.feed, next));
+            }
+            return head.row;
+        }
+    }
+
+    private record Head<T>(ShardRouter.ShardFeed<T> feed, T row) {
+    }
+}
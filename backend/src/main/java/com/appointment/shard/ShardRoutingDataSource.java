@@ -0,0 +1,18 @@
+package com.appointment.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * Sends connections to the data source of {@link ShardContext#current()}.
+ * <p>
+ * Like the replica router it must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, so the shard is picked
+ * when the first statement of a transaction runs.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
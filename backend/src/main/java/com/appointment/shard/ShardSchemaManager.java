@@ -0,0 +1,216 @@
+package com.appointment.shard;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Prepares the databases for sharding at startup, under an advisory lock on the home database.
+ * <p>
+ * Home gets the bucket map ({@code shard_buckets}, every bucket on home at first). Every other shard gets
+ * an {@code appointments} table with the columns Hibernate gave the home one, read through
+ * {@code postgres_fdw}, and foreign tables for {@code users} and {@code doctors}, so the JPA queries of a
+ * booking run unchanged on any shard. The foreign tables are imported again on every start to follow
+ * schema changes. Every shard, home included, gets {@code shard_bucket_fences} (see {@link ShardRouter}).
+ * <p>
+ * Appointment ids stay unique across shards: all sequences step by {@code id-stride}, shard {@code n}
+ * handing out the ids that are {@code n} modulo the stride. The home sequence is switched over on the
+ * first start, which leaves a gap after the existing ids.
+ */
+@Component("shardSchemaManager")
+@DependsOn("entityManagerFactory")
+public class ShardSchemaManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardSchemaManager.class);
+
+    private static final int SCHEMA_LOCK_NAMESPACE = 5;
+    private static final String HOME_SERVER = "appointment_home";
+    // Where the home appointments table is imported to compare columns
+    private static final String HOME_SCHEMA = "appointment_home";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectProvider<ShardDataSources> shardDataSources;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Value("${app.sharding.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.sharding.buckets:1024}")
+    private int buckets;
+
+    @Value("${app.sharding.id-stride:16}")
+    private int idStride;
+
+    // How the shard databases reach home, defaults to the host of spring.datasource.url
+    @Value("${app.sharding.home-host:}")
+    private String homeHost;
+
+    @Value("${app.sharding.home-port:0}")
+    private int homePort;
+
+    @PostConstruct
+    void prepare() {
+        if (!enabled) {
+            return;
+        }
+        int shards = shardDataSources.getObject().count();
+        if (shards > idStride) {
+            throw new IllegalStateException("app.sharding.id-stride (" + idStride + ") must be at least the number of shards ("
+                    + shards + ")");
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) lockConnection -> {
+            try (Statement statement = lockConnection.createStatement()) {
+                statement.execute("SELECT pg_advisory_lock(" + SCHEMA_LOCK_NAMESPACE + ", 0)");
+            }
+            try {
+                prepareHome(shards);
+                for (int shard = 1; shard < shards; shard++) {
+                    prepareShard(shard);
+                }
+            } finally {
+                try (Statement statement = lockConnection.createStatement()) {
+                    statement.execute("SELECT pg_advisory_unlock(" + SCHEMA_LOCK_NAMESPACE + ", 0)");
+                }
+            }
+            return null;
+        });
+        logger.info("Prepared {} shards with {} buckets", shards, buckets);
+    }
+
+    private void prepareHome(int shards) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS shard_buckets (bucket integer PRIMARY KEY, " +
+                "shard integer NOT NULL, target_shard integer)");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS shard_bucket_fences (bucket integer PRIMARY KEY)");
+        Integer existing = jdbcTemplate.queryForObject("SELECT count(*) FROM shard_buckets", Integer.class);
+        if (existing == 0) {
+            jdbcTemplate.update("INSERT INTO shard_buckets (bucket, shard) SELECT b, 0 FROM generate_series(0, ? - 1) b", buckets);
+        } else if (existing != buckets) {
+            throw new IllegalStateException("shard_buckets has " + existing + " buckets but app.sharding.buckets is "
+                    + buckets + "; the bucket count cannot change once data is sharded");
+        }
+        Integer stray = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM shard_buckets WHERE shard >= ? OR target_shard >= ?", Integer.class,
+                shards, shards);
+        if (stray > 0) {
+            throw new IllegalStateException(stray + " buckets belong to shards missing from app.sharding.urls");
+        }
+
+        String sequence = jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence('appointments', 'id')", String.class);
+        Long increment = jdbcTemplate.queryForObject("SELECT increment_by FROM pg_sequences " +
+                "WHERE format('%I.%I', schemaname, sequencename) = ?", Long.class, sequence);
+        if (increment == null || increment != idStride) {
+            long start = nextIdBase();
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + idStride + " RESTART WITH " + start);
+            logger.info("Home appointment ids now step by {} from {}", idStride, start);
+        }
+    }
+
+    private void prepareShard(int shard) {
+        JdbcTemplate shardJdbc = new JdbcTemplate(shardDataSources.getObject().get(shard));
+        shardJdbc.execute("CREATE EXTENSION IF NOT EXISTS postgres_fdw");
+        Integer servers = shardJdbc.queryForObject("SELECT count(*) FROM pg_foreign_server WHERE srvname = ?",
+                Integer.class, HOME_SERVER);
+        if (servers == 0) {
+            URI home = URI.create(dataSourceProperties.determineUrl().substring("jdbc:".length()));
+            String host = homeHost.isEmpty() ? home.getHost() : homeHost;
+            int port = homePort > 0 ? homePort : home.getPort() > 0 ? home.getPort() : 5432;
+            String database = home.getPath().substring(1);
+            // Remote estimates let the planner look up users and doctors by id instead of reading them whole
+            shardJdbc.execute("CREATE SERVER " + HOME_SERVER + " FOREIGN DATA WRAPPER postgres_fdw OPTIONS (" +
+                    "host " + literal(host) + ", port " + literal(String.valueOf(port)) + ", dbname " + literal(database) +
+                    ", use_remote_estimate 'true', fetch_size '1000')");
+            shardJdbc.execute("CREATE USER MAPPING IF NOT EXISTS FOR CURRENT_USER SERVER " + HOME_SERVER + " OPTIONS (" +
+                    "user " + literal(dataSourceProperties.determineUsername()) +
+                    ", password " + literal(dataSourceProperties.determinePassword()) + ")");
+        }
+        shardJdbc.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP FOREIGN TABLE IF EXISTS users, doctors");
+                statement.execute("IMPORT FOREIGN SCHEMA public LIMIT TO (users, doctors) FROM SERVER " + HOME_SERVER + " INTO public");
+                statement.execute("CREATE SCHEMA IF NOT EXISTS " + HOME_SCHEMA);
+                statement.execute("DROP FOREIGN TABLE IF EXISTS " + HOME_SCHEMA + ".appointments");
+                statement.execute("IMPORT FOREIGN SCHEMA public LIMIT TO (appointments) FROM SERVER " + HOME_SERVER + " INTO " + HOME_SCHEMA);
+                connection.commit();
+            } catch (RuntimeException | SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+
+        if (shardJdbc.queryForObject("SELECT to_regclass('public.appointments') IS NULL", Boolean.class)) {
+            long start = nextIdBase() + shard;
+            shardJdbc.execute("CREATE TABLE appointments (LIKE " + HOME_SCHEMA + ".appointments)");
+            shardJdbc.execute("ALTER TABLE appointments ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY " +
+                    "(START WITH " + start + " INCREMENT BY " + idStride + ")");
+            shardJdbc.execute("ALTER TABLE appointments ADD PRIMARY KEY (id)");
+            logger.info("Created appointments on shard {}, ids from {}", shard, start);
+        } else {
+            addMissingColumns(shardJdbc, shard);
+        }
+        // Same as the @Table indexes of Appointment; db/patches are applied to every shard by SchemaPatchRunner
+        shardJdbc.execute("CREATE INDEX IF NOT EXISTS idx_appointments_status_date ON appointments (status, appointment_date)");
+        shardJdbc.execute("CREATE INDEX IF NOT EXISTS idx_appointments_user_date ON appointments (user_id, appointment_date)");
+        shardJdbc.execute("CREATE INDEX IF NOT EXISTS idx_appointments_doctor_slot ON appointments (doctor_id, appointment_date, appointment_time)");
+        shardJdbc.execute("CREATE TABLE IF NOT EXISTS shard_bucket_fences (bucket integer PRIMARY KEY)");
+    }
+
+    private void addMissingColumns(JdbcTemplate shardJdbc, int shard) {
+        List<String> missing = shardJdbc.queryForList(
+                "SELECT format('ALTER TABLE appointments ADD COLUMN %I %s', a.attname, format_type(a.atttypid, a.atttypmod)) " +
+                "FROM pg_attribute a WHERE a.attrelid = to_regclass(?) AND a.attnum > 0 AND NOT a.attisdropped " +
+                "AND NOT EXISTS (SELECT 1 FROM pg_attribute s WHERE s.attrelid = 'public.appointments'::regclass " +
+                "AND s.attname = a.attname AND NOT s.attisdropped)", String.class, HOME_SCHEMA + ".appointments");
+        for (String statement : missing) {
+            logger.info("Shard {}: {}", shard, statement);
+            shardJdbc.execute(statement);
+        }
+    }
+
+    // First multiple of the stride above every id handed out so far on any shard
+    private long nextIdBase() {
+        long max = highestId(jdbcTemplate);
+        ShardDataSources shards = shardDataSources.getObject();
+        for (int shard = 1; shard < shards.count(); shard++) {
+            JdbcTemplate shardJdbc = new JdbcTemplate(shards.get(shard));
+            if (!shardJdbc.queryForObject("SELECT to_regclass('public.appointments') IS NULL", Boolean.class)) {
+                max = Math.max(max, highestId(shardJdbc));
+            }
+        }
+        return (max / idStride + 1) * idStride;
+    }
+
+    private static long highestId(JdbcTemplate jdbc) {
+        String sequence = jdbc.queryForObject("SELECT pg_get_serial_sequence('appointments', 'id')", String.class);
+        Long lastValue = jdbc.queryForObject("SELECT last_value FROM pg_sequences " +
+                "WHERE format('%I.%I', schemaname, sequencename) = ?", Long.class, sequence);
+        Long maxId = jdbc.queryForObject("SELECT max(id) FROM appointments", Long.class);
+        return Math.max(lastValue != null ? lastValue : 0, maxId != null ? maxId : 0);
+    }
+
+    private static String literal(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
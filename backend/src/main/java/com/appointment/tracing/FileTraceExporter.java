@@ -0,0 +1,47 @@
+package com.appointment.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Appends one JSON line per trace to {@code app.tracing.file}, e.g. for {@code jq} or a log shipper. */
+@Component
+@ConditionalOnProperty(name = "app.tracing.exporter", havingValue = "file")
+public class FileTraceExporter implements TraceExporter {
+
+    @Value("${app.tracing.file:traces.jsonl}")
+    private Path file;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ObjectWriter writer;
+
+    @PostConstruct
+    void init() {
+        writer = objectMapper.writerFor(TraceData.class);
+    }
+
+    @Override
+    public synchronized void export(TraceData trace) {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            out.write(writer.writeValueAsString(trace));
+            out.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write trace to " + file, e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.appointment.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+/** Keeps the last {@code app.tracing.memory-capacity} traces for {@code /api/admin/traces}. */
+@Component
+@ConditionalOnProperty(name = "app.tracing.exporter", havingValue = "memory", matchIfMissing = true)
+public class InMemoryTraceExporter implements TraceExporter {
+
+    @Value("${app.tracing.memory-capacity:200}")
+    private int capacity;
+
+    private final ArrayDeque<TraceData> traces = new ArrayDeque<>();
+
+    @Override
+    public synchronized void export(TraceData trace) {
+        if (traces.size() >= capacity) {
+            traces.removeFirst();
+        }
+        traces.addLast(trace);
+    }
+
+    /** Newest first, at least {@code minDurationMs} long. */
+    public synchronized List<TraceData> recent(double minDurationMs, int limit) {
+        List<TraceData> matches = new ArrayList<>();
+        Iterator<TraceData> newestFirst = traces.descendingIterator();
+        while (newestFirst.hasNext() && matches.size() < limit) {
+            TraceData trace = newestFirst.next();
+            if (trace.durationMs() >= minDurationMs) {
+                matches.add(trace);
+            }
+        }
+        return matches;
+    }
+
+    public synchronized Optional<TraceData> find(String traceId) {
+        return traces.stream().filter(trace -> trace.traceId().equals(traceId)).reduce((first, second) -> second);
+    }
+}
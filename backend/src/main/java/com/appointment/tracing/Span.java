@@ -0,0 +1,105 @@
+package com.appointment.tracing;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A timed operation within a trace. Spans are started by {@link Tracer} and must be ended exactly once,
+ * on any thread; outside a trace {@link #NOOP} is handed out and every call on it does nothing.
+ */
+public final class Span {
+
+    static final Span NOOP = new Span(null, null, null, null);
+
+    private final TraceBuffer trace;
+    private final String spanId;
+    private final Span parent;
+    private volatile String name;
+    private final long startNanos;
+    private Map<String, Object> attributes;
+    private volatile String error;
+    private boolean ended;
+
+    Span(TraceBuffer trace, String spanId, Span parent, String name) {
+        this.trace = trace;
+        this.spanId = spanId;
+        this.parent = parent;
+        this.name = name;
+        this.startNanos = System.nanoTime();
+    }
+
+    public Span attribute(String key, Object value) {
+        if (trace != null && value != null) {
+            synchronized (this) {
+                if (attributes == null) {
+                    attributes = new LinkedHashMap<>();
+                }
+                attributes.put(key, value);
+            }
+        }
+        return this;
+    }
+
+    public void error(Throwable failure) {
+        error(failure.getClass().getSimpleName() + ": " + failure.getMessage());
+    }
+
+    public void error(String message) {
+        if (trace != null) {
+            error = message;
+        }
+    }
+
+    public void end() {
+        if (trace == null) {
+            return;
+        }
+        synchronized (this) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+        }
+        trace.finished(this, System.nanoTime());
+    }
+
+    boolean isRecording() {
+        return trace != null;
+    }
+
+    TraceBuffer trace() {
+        return trace;
+    }
+
+    String spanId() {
+        return spanId;
+    }
+
+    Span parent() {
+        return parent;
+    }
+
+    String name() {
+        return name;
+    }
+
+    void rename(String name) {
+        this.name = name;
+    }
+
+    long startNanos() {
+        return startNanos;
+    }
+
+    synchronized Object attribute(String key) {
+        return attributes == null ? null : attributes.get(key);
+    }
+
+    synchronized Map<String, Object> attributes() {
+        return attributes == null ? Map.of() : new LinkedHashMap<>(attributes);
+    }
+
+    String errorMessage() {
+        return error;
+    }
+}
@@ -0,0 +1,73 @@
+package com.appointment.tracing;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Collects the finished spans of one trace until its root span ends. */
+final class TraceBuffer {
+
+    private final Tracer tracer;
+    private final String traceId;
+    private final String remoteParentId;
+    private final boolean sampledUpstream;
+    private final Instant startedAt = Instant.now();
+    private final long startNanos = System.nanoTime();
+    private final int maxSpans;
+    private final List<TraceData.SpanData> spans = new ArrayList<>();
+    private int droppedSpans;
+    private Span root;
+
+    TraceBuffer(Tracer tracer, String traceId, String remoteParentId, boolean sampledUpstream, int maxSpans) {
+        this.tracer = tracer;
+        this.traceId = traceId;
+        this.remoteParentId = remoteParentId;
+        this.sampledUpstream = sampledUpstream;
+        this.maxSpans = maxSpans;
+    }
+
+    void setRoot(Span root) {
+        this.root = root;
+    }
+
+    String traceId() {
+        return traceId;
+    }
+
+    boolean isSampledUpstream() {
+        return sampledUpstream;
+    }
+
+    void finished(Span span, long endNanos) {
+        TraceData.SpanData data = new TraceData.SpanData(
+                span.spanId(),
+                span.parent() != null ? span.parent().spanId() : remoteParentId,
+                span.name(),
+                (span.startNanos() - startNanos) / 1000,
+                (endNanos - span.startNanos()) / 1000,
+                span.attributes(),
+                span.errorMessage());
+        tracer.ended(span);
+        if (span != root) {
+            synchronized (this) {
+                if (spans.size() < maxSpans) {
+                    spans.add(data);
+                } else {
+                    droppedSpans++;
+                }
+            }
+            return;
+        }
+        List<TraceData.SpanData> all;
+        int dropped;
+        synchronized (this) {
+            all = new ArrayList<>(spans.size() + 1);
+            all.add(data);
+            all.addAll(spans);
+            dropped = droppedSpans;
+        }
+        tracer.completed(new TraceData(traceId, span.name(), startedAt, data.durationMicros() / 1000.0,
+                span.errorMessage() != null, dropped, Collections.unmodifiableList(all)), this);
+    }
+}
@@ -0,0 +1,30 @@
+package com.appointment.tracing;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A finished trace as exported: the root span first, span start times relative to the start of the trace.
+ */
+public record TraceData(
+        String traceId,
+        String name,
+        Instant startedAt,
+        double durationMs,
+        boolean error,
+        int droppedSpans,
+        List<SpanData> spans
+) {
+
+    public record SpanData(
+            String spanId,
+            String parentSpanId,
+            String name,
+            long startMicros,
+            long durationMicros,
+            Map<String, Object> attributes,
+            String error
+    ) {
+    }
+}
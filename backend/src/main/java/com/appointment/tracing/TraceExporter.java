@@ -0,0 +1,10 @@
+package com.appointment.tracing;
+
+/**
+ * Receives the traces {@link Tracer} keeps. Chosen with {@code app.tracing.exporter}; an OTLP exporter
+ * plugs in here as a further implementation. Called on the request thread once the response is done.
+ */
+public interface TraceExporter {
+
+    void export(TraceData trace);
+}
@@ -0,0 +1,170 @@
+package com.appointment.tracing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Records traces of requests: {@link TracingFilter} starts one per request, and spans started on the
+ * same thread while it runs (services, repositories, JDBC statements) become part of it. Work handed to
+ * other threads joins the trace through {@link #wrap}. Outside a trace spans cost a thread-local lookup.
+ * <p>
+ * Every span of a request is kept in memory until the request ends; the trace is then exported if the
+ * caller's {@code traceparent} asked for it, it failed, it took at least {@code slow-threshold-ms}, or
+ * it falls within {@code sample-rate}. Deciding at the end is what lets slow requests always be kept.
+ */
+@Component
+public class Tracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(Tracer.class);
+
+    private static final HexFormat HEX = HexFormat.of();
+    // W3C trace context: version-traceid-parentid-flags
+    private static final Pattern TRACEPARENT = Pattern.compile("00-[0-9a-f]{32}-[0-9a-f]{16}-[0-9a-f]{2}");
+
+    @Autowired
+    private TraceExporter exporter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.tracing.sample-rate:0.01}")
+    private double sampleRate;
+
+    @Value("${app.tracing.slow-threshold-ms:500}")
+    private long slowThresholdMs;
+
+    // Further spans of a trace are only counted
+    @Value("${app.tracing.max-spans:2000}")
+    private int maxSpans;
+
+    private final ThreadLocal<Span> current = new ThreadLocal<>();
+    private Counter keptCounter;
+    private Counter discardedCounter;
+
+    @PostConstruct
+    void init() {
+        keptCounter = Counter.builder("tracing.traces").tag("outcome", "kept").register(meterRegistry);
+        discardedCounter = Counter.builder("tracing.traces").tag("outcome", "discarded").register(meterRegistry);
+    }
+
+    /**
+     * Starts a trace with a root span that becomes current, continuing the caller's trace if
+     * {@code traceparent} is a valid W3C header.
+     */
+    public Span startTrace(String name, String traceparent) {
+        TraceBuffer trace;
+        if (traceparent != null && TRACEPARENT.matcher(traceparent).matches()) {
+            boolean sampled = (Integer.parseInt(traceparent.substring(53, 55), 16) & 1) == 1;
+            trace = new TraceBuffer(this, traceparent.substring(3, 35), traceparent.substring(36, 52), sampled, maxSpans);
+        } else {
+            trace = new TraceBuffer(this, randomHex(32), null, false, maxSpans);
+        }
+        Span root = new Span(trace, randomHex(16), null, name);
+        trace.setRoot(root);
+        current.set(root);
+        return root;
+    }
+
+    /** Starts a child of the current span that is current until it ends; a no-op outside a trace. */
+    public Span startSpan(String name) {
+        Span parent = current.get();
+        if (parent == null) {
+            return Span.NOOP;
+        }
+        Span span = new Span(parent.trace(), randomHex(16), parent, name);
+        current.set(span);
+        return span;
+    }
+
+    /** Starts a child of the current span that never becomes current, e.g. one that ends on another call. */
+    public Span startLeaf(String name) {
+        Span parent = current.get();
+        if (parent == null) {
+            return Span.NOOP;
+        }
+        return new Span(parent.trace(), randomHex(16), parent, name);
+    }
+
+    public boolean isTracing() {
+        return current.get() != null;
+    }
+
+    /** The current span, {@link Span#NOOP} outside a trace. */
+    public Span currentSpan() {
+        Span span = current.get();
+        return span != null ? span : Span.NOOP;
+    }
+
+    /** Runs {@code work}, wherever it runs, as part of the trace that is current now. */
+    public <T> Supplier<T> wrap(Supplier<T> work) {
+        Span captured = current.get();
+        if (captured == null) {
+            return work;
+        }
+        return () -> {
+            Span previous = current.get();
+            current.set(captured);
+            try {
+                return work.get();
+            } finally {
+                if (previous != null) {
+                    current.set(previous);
+                } else {
+                    current.remove();
+                }
+            }
+        };
+    }
+
+    /** Response header value continuing the trace of {@code span}. */
+    public String traceparent(Span span) {
+        if (!span.isRecording()) {
+            return null;
+        }
+        return "00-" + span.trace().traceId() + "-" + span.spanId() + "-" + (span.trace().isSampledUpstream() ? "01" : "00");
+    }
+
+    void ended(Span span) {
+        if (current.get() == span) {
+            if (span.parent() != null) {
+                current.set(span.parent());
+            } else {
+                current.remove();
+            }
+        }
+    }
+
+    void completed(TraceData trace, TraceBuffer buffer) {
+        boolean keep = buffer.isSampledUpstream()
+                || trace.error()
+                || trace.durationMs() >= slowThresholdMs
+                || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        if (!keep) {
+            discardedCounter.increment();
+            return;
+        }
+        keptCounter.increment();
+        try {
+            exporter.export(trace);
+        } catch (RuntimeException e) {
+            logger.warn("Could not export trace {}: {}", trace.traceId(), e.getMessage());
+        }
+    }
+
+    private static String randomHex(int digits) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String hex = HEX.toHexDigits(random.nextLong());
+        return digits == 16 ? hex : hex + HEX.toHexDigits(random.nextLong());
+    }
+}
@@ -0,0 +1,117 @@
+package com.appointment.tracing;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Instruments the application for {@link Tracer}: every public method of a {@code @Service} and of a
+ * Spring Data repository gets a span ({@code AppointmentService.createAppointment},
+ * {@code UserRepository.findByEmail}, ...), and the {@code dataSource} bean is wrapped in a
+ * {@link TracingDataSource} for the JDBC statements. Repository spans carry the method as
+ * {@code db.query} and the number of entities returned as {@code db.rows}.
+ * <p>
+ * The data source is wrapped after the shard and replica routing, so statements on every pool are seen.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingConfig {
+
+    static final String QUERY_ATTRIBUTE = "db.query";
+
+    @Bean
+    public static BeanPostProcessor tracingPostProcessor(ObjectProvider<Tracer> tracer) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+                    return new TracingDataSource(dataSource, tracer.getObject());
+                }
+                Class<?> repository = repositoryInterface(bean);
+                if (repository != null) {
+                    return advise(bean, new SpanInterceptor(tracer.getObject(), repository.getSimpleName(), true));
+                }
+                Class<?> target = AopUtils.getTargetClass(bean);
+                if (target.getName().startsWith("com.appointment.") && AnnotatedElementUtils.hasAnnotation(target, Service.class)) {
+                    return advise(bean, new SpanInterceptor(tracer.getObject(), target.getSimpleName(), false));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static Class<?> repositoryInterface(Object bean) {
+        if (!(bean instanceof Advised advised)) {
+            return null;
+        }
+        for (Class<?> type : advised.getProxiedInterfaces()) {
+            if (Repository.class.isAssignableFrom(type) && type.getName().startsWith("com.appointment.")) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    // Outermost, so the span includes transactions and caching of the bean
+    private static Object advise(Object bean, MethodInterceptor interceptor) {
+        if (bean instanceof Advised advised && !advised.isFrozen()) {
+            advised.addAdvice(0, interceptor);
+            return bean;
+        }
+        ProxyFactory factory = new ProxyFactory(bean);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(interceptor);
+        return factory.getProxy(bean.getClass().getClassLoader());
+    }
+
+    private record SpanInterceptor(Tracer tracer, String owner, boolean repository) implements MethodInterceptor {
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            if (!tracer.isTracing() || invocation.getMethod().getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            String name = owner + "." + invocation.getMethod().getName();
+            Span span = tracer.startSpan(name);
+            if (repository) {
+                span.attribute(QUERY_ATTRIBUTE, name);
+            }
+            try {
+                Object result = invocation.proceed();
+                if (repository) {
+                    span.attribute("db.rows", rows(result));
+                }
+                return result;
+            } catch (Throwable e) {
+                span.error(e);
+                throw e;
+            } finally {
+                span.end();
+            }
+        }
+
+        private static Integer rows(Object result) {
+            if (result instanceof Collection<?> collection) {
+                return collection.size();
+            }
+            if (result instanceof Optional<?> optional) {
+                return optional.isPresent() ? 1 : 0;
+            }
+            return null;
+        }
+    }
+}
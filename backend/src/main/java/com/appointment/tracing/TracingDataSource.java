@@ -0,0 +1,226 @@
+package com.appointment.tracing;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Gives every JDBC statement run within a trace a span named after its operation and table, with the
+ * SQL, the row count and the repository method that issued it ({@code db.query}). A query's span lasts
+ * until its result set is closed, so it includes fetching the rows.
+ * <p>
+ * Connections taken outside a trace, e.g. by scheduled jobs, are handed out unwrapped.
+ */
+final class TracingDataSource extends DelegatingDataSource {
+
+    private static final int MAX_STATEMENT_CHARS = 1000;
+    private static final Pattern TABLE = Pattern.compile("\\b(?:from|into|update|join)\\s+([\\w.\"]+)", Pattern.CASE_INSENSITIVE);
+
+    private final Tracer tracer;
+
+    TracingDataSource(DataSource target, Tracer tracer) {
+        super(target);
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        if (!tracer.isTracing()) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection));
+    }
+
+    static String spanName(String sql) {
+        String trimmed = sql.stripLeading();
+        int end = 0;
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+        String operation = trimmed.substring(0, end).toUpperCase(Locale.ROOT);
+        Matcher table = TABLE.matcher(trimmed);
+        return table.find() ? operation + " " + table.group(1) : operation;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "commit":
+                case "rollback":
+                    return endTransaction(method, args);
+                default:
+                    break;
+            }
+            Object result = TracingDataSource.invoke(target, method, args);
+            if (result instanceof Statement
+                    && (method.getName().startsWith("prepare") || method.getName().equals("createStatement"))) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+                Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                        : result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+                return Proxy.newProxyInstance(TracingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                        new StatementHandler((Statement) result, sql));
+            }
+            return result;
+        }
+
+        private Object endTransaction(Method method, Object[] args) throws Throwable {
+            Span span = tracer.startLeaf(method.getName().toUpperCase(Locale.ROOT));
+            try {
+                return TracingDataSource.invoke(target, method, args);
+            } catch (Throwable e) {
+                span.error(e);
+                throw e;
+            } finally {
+                span.end();
+            }
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final String sql;
+        // Span of the query whose result set is still open
+        private Span open;
+        private long rows;
+
+        StatementHandler(Statement target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    endOpen();
+                    return TracingDataSource.invoke(target, method, args);
+                default:
+                    break;
+            }
+            if (!name.startsWith("execute") || !tracer.isTracing()) {
+                return TracingDataSource.invoke(target, method, args);
+            }
+            endOpen();
+            String statementSql = sql != null ? sql : args != null && args.length > 0 && args[0] instanceof String text ? text : "";
+            Span span = tracer.startLeaf(spanName(statementSql));
+            span.attribute("db.statement", statementSql.length() > MAX_STATEMENT_CHARS
+                    ? statementSql.substring(0, MAX_STATEMENT_CHARS) : statementSql);
+            span.attribute("db.query", tracer.currentSpan().attribute(TracingConfig.QUERY_ATTRIBUTE));
+            Object result;
+            try {
+                result = TracingDataSource.invoke(target, method, args);
+            } catch (Throwable e) {
+                span.error(e);
+                span.end();
+                throw e;
+            }
+            if (result instanceof ResultSet resultSet) {
+                open = span;
+                rows = 0;
+                return Proxy.newProxyInstance(TracingDataSource.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                        new ResultSetHandler(resultSet, this));
+            }
+            if (result instanceof Integer count) {
+                span.attribute("db.rows", count);
+            } else if (result instanceof Long count) {
+                span.attribute("db.rows", count);
+            } else if (result instanceof int[] counts) {
+                span.attribute("db.rows", Arrays.stream(counts).filter(count -> count > 0).sum());
+                span.attribute("db.batch_size", counts.length);
+            }
+            span.end();
+            return result;
+        }
+
+        void endOpen() {
+            if (open != null) {
+                open.attribute("db.rows", rows);
+                open.end();
+                open = null;
+            }
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet target;
+        private final StatementHandler statement;
+
+        ResultSetHandler(ResultSet target, StatementHandler statement) {
+            this.target = target;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "next": {
+                    Object hasRow = TracingDataSource.invoke(target, method, args);
+                    if (Boolean.TRUE.equals(hasRow)) {
+                        statement.rows++;
+                    }
+                    return hasRow;
+                }
+                case "close":
+                    statement.endOpen();
+                    return TracingDataSource.invoke(target, method, args);
+                default:
+                    return TracingDataSource.invoke(target, method, args);
+            }
+        }
+    }
+}
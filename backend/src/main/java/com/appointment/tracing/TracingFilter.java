@@ -0,0 +1,58 @@
+package com.appointment.tracing;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Starts a trace per request ahead of the security filter chain, so authentication is part of it.
+ * The trace id goes back in {@code traceparent} and {@code X-Trace-Id} to find the trace later.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "app.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private Tracer tracer;
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Span root = tracer.startTrace(request.getMethod() + " " + request.getRequestURI(), request.getHeader("traceparent"));
+        root.attribute("http.method", request.getMethod());
+        root.attribute("http.target", request.getRequestURI());
+        String traceparent = tracer.traceparent(root);
+        response.setHeader("traceparent", traceparent);
+        response.setHeader("X-Trace-Id", traceparent.substring(3, 35));
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            root.error(e);
+            throw e;
+        } finally {
+            // Named by route rather than path so traces of one endpoint group together
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (route != null) {
+                root.attribute("http.route", route);
+                root.rename(request.getMethod() + " " + route);
+            }
+            root.attribute("http.status_code", response.getStatus());
+            if (response.getStatus() >= 500 && root.errorMessage() == null) {
+                root.error("HTTP " + response.getStatus());
+            }
+            root.end();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.appointment.waitingroom;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Admission state of one doctor: the FIFO of waiting tickets, a token bucket for the admission rate,
+ * the bookings in flight and the slots booked through it. Guarded by its own monitor.
+ */
+final class DoctorQueue {
+
+    final ArrayDeque<WaitingRoomTicket> waiting = new ArrayDeque<>();
+    // Waiting tickets by user and slot, so a resubmitted request gets its ticket back
+    final Map<String, WaitingRoomTicket> waitingByRequest = new HashMap<>();
+    final Set<String> bookedSlots = new HashSet<>();
+    long enqueued;
+    long dequeued;
+    int inFlight;
+    long lastActivity;
+    private double tokens;
+    private long refilledAt;
+
+    DoctorQueue(double burst, long now) {
+        tokens = burst;
+        refilledAt = now;
+        lastActivity = now;
+    }
+
+    boolean tryTakeToken(double ratePerSecond, double burst, long now) {
+        tokens = Math.min(burst, tokens + (now - refilledAt) * ratePerSecond / 1000.0);
+        refilledAt = now;
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /** 1-based position of a waiting ticket. */
+    long positionOf(WaitingRoomTicket ticket) {
+        return ticket.getSequence() - dequeued + 1;
+    }
+
+    boolean isIdle() {
+        return waiting.isEmpty() && inFlight == 0;
+    }
+
+    static String slotKey(LocalDate date, LocalTime time) {
+        return date + "|" + time;
+    }
+
+    static String requestKey(String userEmail, LocalDate date, LocalTime time) {
+        return userEmail + "|" + slotKey(date, time);
+    }
+}
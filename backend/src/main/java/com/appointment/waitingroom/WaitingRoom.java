@@ -0,0 +1,307 @@
+package com.appointment.waitingroom;
+
+import com.appointment.cluster.ClusterCoordinator;
+import com.appointment.dto.AppointmentDTO;
+import com.appointment.dto.CreateAppointmentRequest;
+import com.appointment.exception.CustomExceptions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for bookings of busy doctors.
+ * <p>
+ * Every doctor admits bookings at {@code admission-rate} per second with at most
+ * {@code max-concurrent-per-doctor} running at once. A booking within those limits runs right away on
+ * the request thread; otherwise it joins the doctor's FIFO queue (at most {@code max-depth} deep) and
+ * the caller gets a ticket whose state is polled from memory. Queued bookings run on a small worker
+ * pool, so a release of popular slots holds at most {@code workers} database connections. Slots booked
+ * through a queue are remembered while the doctor is busy, and later tickets for them fail without
+ * touching the database.
+ * <p>
+ * Queues and tickets are per node; the slot lock in the booking transaction still guards across nodes.
+ */
+@Component
+public class WaitingRoom {
+
+    private static final Logger logger = LoggerFactory.getLogger(WaitingRoom.class);
+
+    private static final String REGION = "waiting-room";
+
+    @Autowired
+    private ClusterCoordinator clusterCoordinator;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.waiting-room.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.waiting-room.admission-rate:20}")
+    private double admissionRate;
+
+    @Value("${app.waiting-room.max-concurrent-per-doctor:2}")
+    private int maxConcurrentPerDoctor;
+
+    @Value("${app.waiting-room.max-depth:2000}")
+    private int maxDepth;
+
+    @Value("${app.waiting-room.workers:8}")
+    private int workers;
+
+    @Value("${app.waiting-room.tick-ms:50}")
+    private long tickMs;
+
+    @Value("${app.waiting-room.result-ttl-seconds:300}")
+    private long resultTtlSeconds;
+
+    @Value("${app.waiting-room.idle-seconds:60}")
+    private long idleSeconds;
+
+    private final Map<Long, DoctorQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, WaitingRoomTicket> tickets = new ConcurrentHashMap<>();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+    private ExecutorService bookingWorkers;
+    private ScheduledExecutorService ticker;
+    private Counter queuedCounter;
+    private Counter rejectedCounter;
+    private Counter shortCircuitedCounter;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threads = new AtomicInteger();
+        bookingWorkers = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "waiting-room-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Own thread rather than @Scheduled, long maintenance jobs must not hold up admissions
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "waiting-room-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        clusterCoordinator.onInvalidation(REGION, this::onSlotReleased);
+
+        Gauge.builder("waiting_room.waiting", waitingCount, AtomicInteger::get)
+                .description("Bookings waiting for admission on this node")
+                .register(meterRegistry);
+        Gauge.builder("waiting_room.doctors", queues, Map::size)
+                .description("Doctors with admission state on this node")
+                .register(meterRegistry);
+        queuedCounter = Counter.builder("waiting_room.queued").register(meterRegistry);
+        rejectedCounter = Counter.builder("waiting_room.rejected").register(meterRegistry);
+        shortCircuitedCounter = Counter.builder("waiting_room.short_circuited")
+                .description("Bookings refused because the slot was already booked through the waiting room")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        ticker.shutdownNow();
+        bookingWorkers.shutdown();
+    }
+
+    /**
+     * Runs {@code booking} right away if the doctor has capacity and returns a BOOKED ticket without a
+     * token (failures are thrown as is); otherwise queues it and returns the WAITING ticket.
+     *
+     * @throws CustomExceptions.WaitingRoomFullException if the doctor's queue is full
+     */
+    public WaitingRoomTicket enter(String userEmail, CreateAppointmentRequest request, Supplier<AppointmentDTO> booking) {
+        if (!enabled) {
+            return immediate(userEmail, request, booking);
+        }
+        Long doctorId = request.getDoctorId();
+        long now = System.currentTimeMillis();
+        while (true) {
+            DoctorQueue queue = queues.computeIfAbsent(doctorId, id -> new DoctorQueue(burst(), now));
+            synchronized (queue) {
+                // Dropped by the ticker between lookup and lock
+                if (queues.get(doctorId) != queue) {
+                    continue;
+                }
+                queue.lastActivity = now;
+                if (queue.bookedSlots.contains(DoctorQueue.slotKey(request.getAppointmentDate(), request.getAppointmentTime()))) {
+                    shortCircuitedCounter.increment();
+                    throw new RuntimeException("This time slot is already booked");
+                }
+                if (!queue.waiting.isEmpty() || queue.inFlight >= maxConcurrentPerDoctor
+                        || !queue.tryTakeToken(admissionRate, burst(), now)) {
+                    return enqueue(queue, userEmail, request, booking);
+                }
+                queue.inFlight++;
+            }
+            try {
+                WaitingRoomTicket ticket = immediate(userEmail, request, booking);
+                synchronized (queue) {
+                    queue.bookedSlots.add(DoctorQueue.slotKey(request.getAppointmentDate(), request.getAppointmentTime()));
+                }
+                return ticket;
+            } finally {
+                synchronized (queue) {
+                    queue.inFlight--;
+                }
+            }
+        }
+    }
+
+    private WaitingRoomTicket immediate(String userEmail, CreateAppointmentRequest request, Supplier<AppointmentDTO> booking) {
+        WaitingRoomTicket ticket = new WaitingRoomTicket(null, userEmail, request, -1, booking);
+        ticket.booked(booking.get());
+        return ticket;
+    }
+
+    private WaitingRoomTicket enqueue(DoctorQueue queue, String userEmail, CreateAppointmentRequest request,
+                                      Supplier<AppointmentDTO> booking) {
+        String requestKey = DoctorQueue.requestKey(userEmail, request.getAppointmentDate(), request.getAppointmentTime());
+        WaitingRoomTicket existing = queue.waitingByRequest.get(requestKey);
+        if (existing != null) {
+            return existing;
+        }
+        if (queue.waiting.size() >= maxDepth) {
+            rejectedCounter.increment();
+            throw new CustomExceptions.WaitingRoomFullException("Too many patients are booking with this doctor, please try again shortly",
+                    Math.max(1, Math.round(queue.waiting.size() / admissionRate)));
+        }
+        WaitingRoomTicket ticket = new WaitingRoomTicket(UUID.randomUUID().toString(), userEmail, request,
+                queue.enqueued++, booking);
+        queue.waiting.addLast(ticket);
+        queue.waitingByRequest.put(requestKey, ticket);
+        tickets.put(ticket.getToken(), ticket);
+        waitingCount.incrementAndGet();
+        queuedCounter.increment();
+        return ticket;
+    }
+
+    /** Returns the ticket if it exists and belongs to {@code userEmail}. */
+    public WaitingRoomTicket getTicket(String token, String userEmail) {
+        WaitingRoomTicket ticket = tickets.get(token);
+        return ticket != null && ticket.getUserEmail().equals(userEmail) ? ticket : null;
+    }
+
+    /** 1-based queue position of a waiting ticket, 0 once it has been admitted. */
+    public long positionOf(WaitingRoomTicket ticket) {
+        DoctorQueue queue = queues.get(ticket.getDoctorId());
+        if (queue == null || ticket.getState() != WaitingRoomTicket.State.WAITING) {
+            return 0;
+        }
+        synchronized (queue) {
+            return ticket.getState() == WaitingRoomTicket.State.WAITING ? queue.positionOf(ticket) : 0;
+        }
+    }
+
+    public long estimatedWaitSeconds(long position) {
+        return (long) Math.ceil(position / admissionRate);
+    }
+
+    /** Must be called in the transaction that cancels a booking; frees the slot on every node after commit. */
+    public void slotReleased(Long doctorId, LocalDate date, LocalTime time) {
+        if (enabled) {
+            clusterCoordinator.broadcastInvalidation(REGION, doctorId + "|" + DoctorQueue.slotKey(date, time));
+        }
+    }
+
+    private void onSlotReleased(String key) {
+        if (ClusterCoordinator.ALL_KEYS.equals(key)) {
+            queues.values().forEach(queue -> {
+                synchronized (queue) {
+                    queue.bookedSlots.clear();
+                }
+            });
+            return;
+        }
+        int separator = key.indexOf('|');
+        DoctorQueue queue = queues.get(Long.valueOf(key.substring(0, separator)));
+        if (queue != null) {
+            synchronized (queue) {
+                queue.bookedSlots.remove(key.substring(separator + 1));
+            }
+        }
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            for (Iterator<Map.Entry<Long, DoctorQueue>> it = queues.entrySet().iterator(); it.hasNext(); ) {
+                DoctorQueue queue = it.next().getValue();
+                synchronized (queue) {
+                    admit(queue, now);
+                    if (queue.isIdle() && now - queue.lastActivity > idleSeconds * 1000) {
+                        it.remove();
+                    }
+                }
+            }
+            long expiredBefore = now - resultTtlSeconds * 1000;
+            tickets.values().removeIf(ticket -> ticket.getFinishedAt() != 0 && ticket.getFinishedAt() < expiredBefore);
+        } catch (RuntimeException e) {
+            logger.error("Waiting room tick failed", e);
+        }
+    }
+
+    // Caller holds the queue's monitor
+    private void admit(DoctorQueue queue, long now) {
+        while (!queue.waiting.isEmpty() && queue.inFlight < maxConcurrentPerDoctor
+                && queue.tryTakeToken(admissionRate, burst(), now)) {
+            WaitingRoomTicket ticket = queue.waiting.pollFirst();
+            CreateAppointmentRequest request = ticket.getRequest();
+            queue.dequeued++;
+            queue.waitingByRequest.remove(DoctorQueue.requestKey(ticket.getUserEmail(),
+                    request.getAppointmentDate(), request.getAppointmentTime()));
+            waitingCount.decrementAndGet();
+            queue.lastActivity = now;
+
+            String slot = DoctorQueue.slotKey(request.getAppointmentDate(), request.getAppointmentTime());
+            if (queue.bookedSlots.contains(slot)) {
+                shortCircuitedCounter.increment();
+                ticket.failed(new RuntimeException("This time slot is already booked"));
+                continue;
+            }
+            queue.inFlight++;
+            ticket.admitted();
+            bookingWorkers.execute(() -> run(queue, ticket, slot));
+        }
+    }
+
+    private void run(DoctorQueue queue, WaitingRoomTicket ticket, String slot) {
+        try {
+            AppointmentDTO appointment = ticket.getBooking().get();
+            synchronized (queue) {
+                queue.bookedSlots.add(slot);
+            }
+            ticket.booked(appointment);
+        } catch (RuntimeException e) {
+            ticket.failed(e);
+        } finally {
+            synchronized (queue) {
+                queue.inFlight--;
+                queue.lastActivity = System.currentTimeMillis();
+            }
+        }
+    }
+
+    private double burst() {
+        return Math.max(1, admissionRate);
+    }
+}
@@ -0,0 +1,91 @@
+package com.appointment.waitingroom;
+
+import com.appointment.dto.AppointmentDTO;
+import com.appointment.dto.CreateAppointmentRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * A booking request waiting in a doctor's queue, looked up by its token until the result expires.
+ */
+public class WaitingRoomTicket {
+
+    public enum State {
+        WAITING, ADMITTED, BOOKED, FAILED
+    }
+
+    private final String token;
+    private final String userEmail;
+    private final CreateAppointmentRequest request;
+    private final long sequence;
+    private final Supplier<AppointmentDTO> booking;
+    private volatile State state = State.WAITING;
+    private volatile AppointmentDTO appointment;
+    private volatile RuntimeException failure;
+    private volatile long finishedAt;
+
+    WaitingRoomTicket(String token, String userEmail, CreateAppointmentRequest request, long sequence,
+                      Supplier<AppointmentDTO> booking) {
+        this.token = token;
+        this.userEmail = userEmail;
+        this.request = request;
+        this.sequence = sequence;
+        this.booking = booking;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getUserEmail() {
+        return userEmail;
+    }
+
+    public Long getDoctorId() {
+        return request.getDoctorId();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public AppointmentDTO getAppointment() {
+        return appointment;
+    }
+
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    CreateAppointmentRequest getRequest() {
+        return request;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    Supplier<AppointmentDTO> getBooking() {
+        return booking;
+    }
+
+    long getFinishedAt() {
+        return finishedAt;
+    }
+
+    void admitted() {
+        state = State.ADMITTED;
+    }
+
+    void booked(AppointmentDTO appointment) {
+        this.appointment = appointment;
+        finishedAt = System.currentTimeMillis();
+        state = State.BOOKED;
+    }
+
+    void failed(RuntimeException failure) {
+        this.failure = failure;
+        finishedAt = System.currentTimeMillis();
+        state = State.FAILED;
+    }
+}
@@ -0,0 +1,5 @@
+-- Past BOOKED appointments in date order, for the completion job and BOOKED-only lookups.
+-- Rows leave the index once they are completed or cancelled, so it stays small.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_appointments_booked_date
+    ON appointments (appointment_date, id)
+    WHERE status = 'BOOKED';
@@ -0,0 +1,10 @@
+-- home-only
+-- Deleted users stay as anonymized tombstones (see UserDeletionService); listings only want the live ones.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_live_id
+    ON users (id)
+    WHERE deleted_at IS NULL;
+
+-- Deletions still deleting appointments, polled by the deletion job; completed ones are kept as a record.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_deletions_unfinished
+    ON user_deletions (requested_at)
+    WHERE status <> 'COMPLETED';
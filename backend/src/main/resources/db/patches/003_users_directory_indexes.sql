@@ -0,0 +1,19 @@
+-- home-only
+-- Case-insensitive prefix search of the admin user directory (UserRepositoryCustom.findDirectoryPage).
+-- "C" collation orders by code point, so a prefix is one range scan whatever the database collation.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_live_email_prefix
+    ON users ((lower(email) COLLATE "C"))
+    WHERE deleted_at IS NULL;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_live_last_name_prefix
+    ON users ((lower(last_name) COLLATE "C"))
+    WHERE deleted_at IS NULL;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_live_first_name_prefix
+    ON users ((lower(first_name) COLLATE "C"))
+    WHERE deleted_at IS NULL;
+
+-- Role filter, in the id order of the listing
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_live_role_id
+    ON users (role, id)
+    WHERE deleted_at IS NULL;
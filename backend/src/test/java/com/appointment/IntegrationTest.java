@@ -0,0 +1,42 @@
+package com.appointment;
+
+import com.appointment.security.JwtUtil;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Base of the tests running the whole application with MockMvc against {@link TestDatabase}, seeded
+ * from data.sql (john.doe@email.com is ADMIN, jane.smith@email.com a patient).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@ExtendWith(TestDatabase.class)
+public abstract class IntegrationTest {
+
+    protected static final String ADMIN = "john.doe@email.com";
+    protected static final String PATIENT = "jane.smith@email.com";
+
+    @Autowired
+    protected MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", TestDatabase::url);
+        registry.add("spring.datasource.username", TestDatabase::username);
+        registry.add("spring.datasource.password", TestDatabase::password);
+    }
+
+    protected String bearer(String email) {
+        return "Bearer " + jwtUtil.generateToken(email);
+    }
+}
@@ -0,0 +1,57 @@
+package com.appointment;
+
+import org.junit.jupiter.api.extension.ConditionEvaluationResult;
+import org.junit.jupiter.api.extension.ExecutionCondition;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * PostgreSQL for the integration tests: the database at {@code -Dtest.database.url} (or
+ * {@code TEST_DATABASE_URL}) if set, otherwise a container started once per test JVM. As an extension it
+ * skips the tests when there is neither. The database is recreated by every application context.
+ */
+public final class TestDatabase implements ExecutionCondition {
+
+    private static final String URL = setting("test.database.url", "TEST_DATABASE_URL", null);
+    private static final String USERNAME = setting("test.database.username", "TEST_DATABASE_USERNAME", "postgres");
+    private static final String PASSWORD = setting("test.database.password", "TEST_DATABASE_PASSWORD", "password");
+
+    private static PostgreSQLContainer<?> container;
+
+    @Override
+    public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
+        return URL != null || DockerClientFactory.instance().isDockerAvailable()
+                ? ConditionEvaluationResult.enabled("Test database available")
+                : ConditionEvaluationResult.disabled("No test database, set -Dtest.database.url or start Docker");
+    }
+
+    public static synchronized String url() {
+        if (URL != null) {
+            return URL;
+        }
+        if (container == null) {
+            container = new PostgreSQLContainer<>("postgres:15-alpine");
+            container.start();
+        }
+        return container.getJdbcUrl();
+    }
+
+    public static String username() {
+        return URL != null ? USERNAME : container().getUsername();
+    }
+
+    public static String password() {
+        return URL != null ? PASSWORD : container().getPassword();
+    }
+
+    private static synchronized PostgreSQLContainer<?> container() {
+        url();
+        return container;
+    }
+
+    private static String setting(String property, String variable, String defaultValue) {
+        String value = System.getProperty(property, System.getenv(variable));
+        return value != null && !value.isBlank() ? value : defaultValue;
+    }
+}
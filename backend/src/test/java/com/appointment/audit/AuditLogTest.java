@@ -0,0 +1,121 @@
+package com.appointment.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class AuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AuditLog auditLog;
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        auditLog.shutdown();
+    }
+
+    @Test
+    void recordTooLargeForASegmentIsDroppedAndLaterOnesAreWritten() throws Exception {
+        auditLog = auditLog(directory, 256);
+        auditLog.init();
+
+        auditLog.record(AuditAction.BOOK, "jane.smith@email.com", 1, "x".repeat(500));
+        auditLog.record(AuditAction.BOOK, "jane.smith@email.com", 2, null);
+
+        List<AuditRecord> records = awaitRecords(1);
+        assertEquals(2, records.get(0).targetId());
+        assertEquals(1, meterRegistry.counter("audit.dropped").count());
+    }
+
+    @Test
+    void callerWaitingForSyncIsNotReleasedByASegmentThatFailedToForce() throws Exception {
+        auditLog = new AuditLog() {
+            private boolean failed;
+
+            @Override
+            AuditSegmentWriter newWriter(Path file, long now) throws IOException {
+                if (failed) {
+                    return super.newWriter(file, now);
+                }
+                failed = true;
+                return new AuditSegmentWriter(file, 1 << 16, now) {
+                    @Override
+                    void force() {
+                        throw new UncheckedIOException(new IOException("device error"));
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        throw new IOException("device error");
+                    }
+                };
+            }
+        };
+        configure(auditLog, directory, 1 << 16);
+        ReflectionTestUtils.setField(auditLog, "waitForSync", true);
+        auditLog.init();
+
+        auditLog.record(AuditAction.CANCEL, "jane.smith@email.com", 7, null);
+
+        assertEquals(1, meterRegistry.counter("audit.syncs").count());
+        List<Path> segments = auditLog.segments();
+        assertEquals(2, segments.size());
+        List<AuditRecord> rewritten = new ArrayList<>();
+        AuditSegment.scan(segments.get(1), (offset, record) -> rewritten.add(record));
+        assertEquals(1, rewritten.size());
+        assertEquals(7, rewritten.get(0).targetId());
+    }
+
+    @Test
+    void unusableDirectoryDisablesTheLogInsteadOfFailingStartup() throws Exception {
+        Path file = Files.createFile(directory.resolve("not-a-directory"));
+        auditLog = auditLog(file.resolve("audit"), 1 << 16);
+
+        auditLog.init();
+
+        assertFalse(auditLog.isEnabled());
+        auditLog.record(AuditAction.BOOK, "jane.smith@email.com", 1, null);
+    }
+
+    private List<AuditRecord> awaitRecords(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        List<AuditRecord> records;
+        do {
+            Thread.sleep(20);
+            records = auditLog.query(Instant.EPOCH, Instant.now().plusSeconds(60), null, null, 100);
+        } while (records.size() < count && System.currentTimeMillis() < deadline);
+        return records;
+    }
+
+    private AuditLog auditLog(Path directory, int segmentBytes) {
+        return configure(new AuditLog(), directory, segmentBytes);
+    }
+
+    private AuditLog configure(AuditLog log, Path directory, int segmentBytes) {
+        ReflectionTestUtils.setField(log, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(log, "enabled", true);
+        ReflectionTestUtils.setField(log, "directory", directory);
+        ReflectionTestUtils.setField(log, "segmentBytes", segmentBytes);
+        ReflectionTestUtils.setField(log, "segmentMaxAgeMinutes", 60L);
+        ReflectionTestUtils.setField(log, "ringCapacity", 16);
+        ReflectionTestUtils.setField(log, "batchSize", 8);
+        ReflectionTestUtils.setField(log, "syncIntervalMs", 1L);
+        return log;
+    }
+}
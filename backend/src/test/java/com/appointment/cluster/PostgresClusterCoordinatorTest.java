@@ -0,0 +1,236 @@
+package com.appointment.cluster;
+
+import com.appointment.AppointmentBookingApplication;
+import com.appointment.TestDatabase;
+import com.appointment.dto.CreateAppointmentRequest;
+import com.appointment.entity.Doctor;
+import com.appointment.repository.DoctorRepository;
+import com.appointment.service.AppointmentService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two application contexts with {@code app.cluster.mode=postgres} on one database, as two nodes would
+ * run. They use a schema of their own, the other tests' context may still be open on the database.
+ */
+@ExtendWith(TestDatabase.class)
+class PostgresClusterCoordinatorTest {
+
+    private static final String SCHEMA = "cluster_test";
+    private static final String PATIENT = "jane.smith@email.com";
+
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+    private static Path cacheConfig;
+
+    @BeforeAll
+    static void startNodes() throws Exception {
+        try (Connection connection = DriverManager.getConnection(TestDatabase.url(), TestDatabase.username(), TestDatabase.password());
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA IF NOT EXISTS " + SCHEMA);
+        }
+        nodeA = start(Map.of(
+                "spring.jpa.hibernate.ddl-auto", "create",
+                "spring.sql.init.mode", "always"));
+        // A JCache manager is shared by URI within a JVM, so the second node gets its own copy of the file
+        cacheConfig = Files.createTempFile("hibernate-cache", ".conf");
+        try (InputStream config = PostgresClusterCoordinatorTest.class.getResourceAsStream("/hibernate-cache.conf")) {
+            Files.copy(config, cacheConfig, StandardCopyOption.REPLACE_EXISTING);
+        }
+        nodeB = start(Map.of(
+                "spring.jpa.hibernate.ddl-auto", "none",
+                "spring.sql.init.mode", "never",
+                "spring.jpa.properties.hibernate.javax.cache.uri", cacheConfig.toUri().toString()));
+    }
+
+    @AfterAll
+    static void stopNodes() throws Exception {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+        if (cacheConfig != null) {
+            Files.deleteIfExists(cacheConfig);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(Map<String, Object> nodeProperties) {
+        String url = TestDatabase.url();
+        Map<String, Object> properties = new HashMap<>(nodeProperties);
+        properties.put("spring.datasource.url", url + (url.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA);
+        properties.put("spring.datasource.username", TestDatabase.username());
+        properties.put("spring.datasource.password", TestDatabase.password());
+        properties.put("app.cluster.mode", "postgres");
+        properties.put("app.audit.enabled", "false");
+        properties.put("server.port", "0");
+        // As arguments, builder properties are defaults that application.yml would override
+        return new SpringApplicationBuilder(AppointmentBookingApplication.class)
+                .profiles("test")
+                .run(properties.entrySet().stream()
+                        .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                        .toArray(String[]::new));
+    }
+
+    @Test
+    void slotLockHeldOnOneNodeBlocksTheOtherNode() throws Exception {
+        LocalDate date = LocalDate.now().plusDays(20);
+        LocalTime time = LocalTime.of(11, 0);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> holder = executor.submit(() -> transaction(nodeA).executeWithoutResult(status -> {
+                nodeA.getBean(ClusterCoordinator.class).lockSlot(1L, date, time);
+                locked.countDown();
+                await(release);
+            }));
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+            Future<?> waiter = executor.submit(() -> transaction(nodeB).executeWithoutResult(status ->
+                    nodeB.getBean(ClusterCoordinator.class).lockSlot(1L, date, time)));
+            assertThrows(TimeoutException.class, () -> waiter.get(500, TimeUnit.MILLISECONDS));
+
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+            waiter.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentBookingsOfOneSlotOnBothNodesBookItOnce() throws Exception {
+        Long doctorId = nodeA.getBean(DoctorRepository.class).findAll().get(0).getId();
+        CreateAppointmentRequest request = new CreateAppointmentRequest(doctorId, LocalDate.now().plusDays(21), LocalTime.of(14, 30));
+
+        int attempts = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(attempts);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < attempts; i++) {
+                AppointmentService service = (i % 2 == 0 ? nodeA : nodeB).getBean(AppointmentService.class);
+                results.add(executor.submit(() -> {
+                    await(start);
+                    try {
+                        service.createAppointment(request, PATIENT);
+                        return true;
+                    } catch (RuntimeException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+            int booked = 0;
+            for (Future<Boolean> result : results) {
+                booked += result.get(30, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            assertEquals(1, booked);
+        } finally {
+            executor.shutdownNow();
+        }
+        Integer rows = nodeB.getBean(JdbcTemplate.class).queryForObject(
+                "SELECT count(*) FROM appointments WHERE doctor_id = ? AND appointment_date = ? AND appointment_time = ?",
+                Integer.class, doctorId, request.getAppointmentDate(), request.getAppointmentTime());
+        assertEquals(1, rows);
+    }
+
+    @Test
+    void invalidationIsDeliveredToTheOtherNodeAfterCommit() throws Exception {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        nodeB.getBean(ClusterCoordinator.class).onInvalidation("cluster-test", received::add);
+        CountDownLatch sent = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        CompletableFuture<Void> transaction = CompletableFuture.runAsync(() ->
+                transaction(nodeA).executeWithoutResult(status -> {
+                    nodeA.getBean(ClusterCoordinator.class).broadcastInvalidation("cluster-test", "42");
+                    sent.countDown();
+                    await(commit);
+                }));
+        assertTrue(sent.await(10, TimeUnit.SECONDS));
+        assertNull(received.poll(500, TimeUnit.MILLISECONDS));
+
+        commit.countDown();
+        transaction.get(10, TimeUnit.SECONDS);
+        assertEquals("42", received.poll(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void doctorChangedOnOneNodeIsEvictedFromTheOtherNodesEntityCache() throws Exception {
+        DoctorRepository repositoryA = nodeA.getBean(DoctorRepository.class);
+        DoctorRepository repositoryB = nodeB.getBean(DoctorRepository.class);
+        Long doctorId = repositoryA.findAll().get(1).getId();
+        repositoryB.findById(doctorId).orElseThrow();
+        jakarta.persistence.Cache cacheB = nodeB.getBean(EntityManagerFactory.class).getCache();
+        assertTrue(cacheB.contains(Doctor.class, doctorId));
+
+        transaction(nodeA).executeWithoutResult(status -> {
+            Doctor doctor = repositoryA.findById(doctorId).orElseThrow();
+            doctor.setName("Dr. Renamed On Node A");
+            repositoryA.save(doctor);
+        });
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (cacheB.contains(Doctor.class, doctorId) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse(cacheB.contains(Doctor.class, doctorId));
+        assertEquals("Dr. Renamed On Node A", repositoryB.findById(doctorId).orElseThrow().getName());
+    }
+
+    private static TransactionTemplate transaction(ConfigurableApplicationContext node) {
+        return new TransactionTemplate(node.getBean("transactionManager", PlatformTransactionManager.class));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(30, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.appointment.controller;
+
+import com.appointment.IntegrationTest;
+import com.appointment.entity.User;
+import com.appointment.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AdminControllerTest extends IntegrationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void statsDoNotCountDeletedUsers() throws Exception {
+        Long userId = newUser().getId();
+        long before = totalUsers();
+
+        mockMvc.perform(delete("/api/users/" + userId).header("Authorization", bearer(ADMIN)))
+                .andExpect(status().is2xxSuccessful());
+
+        assertEquals(before - 1, totalUsers());
+    }
+
+    @Test
+    void concurrentDeletesOfOneUserBothSucceed() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            Long userId = newUser().getId();
+            CountDownLatch start = new CountDownLatch(1);
+            List<CompletableFuture<Integer>> requests = new ArrayList<>();
+            for (int j = 0; j < 2; j++) {
+                requests.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        start.await();
+                        return mockMvc.perform(delete("/api/users/" + userId).header("Authorization", bearer(ADMIN)))
+                                .andReturn().getResponse().getStatus();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+            }
+            start.countDown();
+            for (CompletableFuture<Integer> request : requests) {
+                int status = request.join();
+                assertTrue(status == 200 || status == 202, "status " + status);
+            }
+        }
+    }
+
+    @Test
+    void appointmentListingSendsTheWindowItCovers() throws Exception {
+        mockMvc.perform(get("/api/appointments/all").header("Authorization", bearer(ADMIN)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Listing-From", LocalDate.now().minusMonths(3).toString()));
+        mockMvc.perform(get("/api/appointments/all").param("from", "2020-01-01").header("Authorization", bearer(ADMIN)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Listing-From", "2020-01-01"));
+    }
+
+    private User newUser() {
+        String email = "delete-" + UUID.randomUUID() + "@example.test";
+        return userRepository.save(new User("Delete", "Me", email, "!" + UUID.randomUUID()));
+    }
+
+    private long totalUsers() throws Exception {
+        String body = mockMvc.perform(get("/api/admin/stats").header("Authorization", bearer(ADMIN)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("totalUsers").asLong();
+    }
+}
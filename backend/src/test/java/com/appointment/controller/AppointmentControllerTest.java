@@ -0,0 +1,52 @@
+package com.appointment.controller;
+
+import com.appointment.IntegrationTest;
+import com.appointment.repository.DoctorRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AppointmentControllerTest extends IntegrationTest {
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Test
+    void retryWithTheSameIdempotencyKeyGetsTheFirstBooking() throws Exception {
+        String request = request(doctorRepository.findAll().get(0).getId(), LocalDate.now().plusDays(10), "10:00");
+
+        String first = book(request, "retry-1").andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        // The slot is now booked through the waiting room, which refuses it to anyone else
+        String second = book(request, "retry-1").andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        assertEquals(first, second);
+        book(request, "retry-2").andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void idempotencyKeyOfAnotherSlotIsRefused() throws Exception {
+        Long doctorId = doctorRepository.findAll().get(0).getId();
+        book(request(doctorId, LocalDate.now().plusDays(11), "10:00"), "reused-1").andExpect(status().isOk());
+
+        book(request(doctorId, LocalDate.now().plusDays(11), "10:30"), "reused-1").andExpect(status().isConflict());
+    }
+
+    private ResultActions book(String request, String idempotencyKey) throws Exception {
+        return mockMvc.perform(post("/api/appointments")
+                .header("Authorization", bearer(PATIENT))
+                .header("Idempotency-Key", idempotencyKey)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(request));
+    }
+
+    static String request(Long doctorId, LocalDate date, String time) {
+        return "{\"doctorId\":" + doctorId + ",\"appointmentDate\":\"" + date + "\",\"appointmentTime\":\"" + time + "\"}";
+    }
+}
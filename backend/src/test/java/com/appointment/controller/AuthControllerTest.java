@@ -0,0 +1,46 @@
+package com.appointment.controller;
+
+import com.appointment.IntegrationTest;
+import com.appointment.location.LocationWriteBuffer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Flushed by the test only, so the location is still waiting when the profile is saved
+@TestPropertySource(properties = "app.location.buffer.flush-interval-ms=3600000")
+class AuthControllerTest extends IntegrationTest {
+
+    @Autowired
+    private LocationWriteBuffer locationWriteBuffer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void profileAddressIsNotOverwrittenByAWaitingLocation() throws Exception {
+        mockMvc.perform(post("/api/auth/location")
+                        .header("Authorization", bearer(PATIENT))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"latitude\":28.61,\"longitude\":77.21,\"address\":\"Old Street 1\"," +
+                                "\"city\":\"New Delhi\",\"state\":\"Delhi\",\"country\":\"India\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/auth/profile")
+                        .header("Authorization", bearer(PATIENT))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"address\":\"New Street 2\"}"))
+                .andExpect(status().isOk());
+
+        locationWriteBuffer.flush();
+
+        assertEquals("New Street 2", jdbcTemplate.queryForObject(
+                "SELECT address FROM users WHERE email = ?", String.class, PATIENT));
+        assertEquals("New Delhi", jdbcTemplate.queryForObject(
+                "SELECT city FROM users WHERE email = ?", String.class, PATIENT));
+    }
+}
@@ -0,0 +1,104 @@
+package com.appointment.querystats;
+
+import com.appointment.IntegrationTest;
+import com.appointment.entity.Doctor;
+import com.appointment.nearby.NearbyDoctorCache;
+import com.appointment.repository.DoctorRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Statement budgets of the busiest endpoints; a change that adds queries, e.g. an N+1 over the rows of
+ * a listing, fails here. Every request runs once untimed first so that caches are warm, as they are in
+ * production. Raise a budget only for a statement that is meant to be there.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class StatementBudgetTest extends IntegrationTest {
+
+    private static final int APPOINTMENTS = 6;
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private NearbyDoctorCache nearbyDoctorCache;
+
+    private List<Doctor> doctors;
+
+    @BeforeAll
+    void bookAppointments() throws Exception {
+        doctors = doctorRepository.findAll();
+        for (int i = 0; i < APPOINTMENTS; i++) {
+            mockMvc.perform(booking(doctors.get(i % doctors.size()).getId(), LocalDate.now().plusDays(30 + i), "09:30"))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @Test
+    void booking() throws Exception {
+        Long doctorId = doctors.get(0).getId();
+        mockMvc.perform(booking(doctorId, LocalDate.now().plusDays(40), "12:00")).andExpect(status().isOk());
+
+        // User, doctor, slot check, insert and the patient's and doctor's calendar feed versions
+        try (QueryCount count = QueryCount.start()) {
+            mockMvc.perform(booking(doctorId, LocalDate.now().plusDays(40), "12:30")).andExpect(status().isOk());
+            count.assertAtMost(6);
+        }
+    }
+
+    @Test
+    void listingOwnAppointments() throws Exception {
+        assertAtMost(1, get("/api/appointments").header("Authorization", bearer(PATIENT)));
+    }
+
+    @Test
+    void nearbyDoctors() throws Exception {
+        RequestBuilder nearby = get("/api/doctors/nearby")
+                .param("latitude", "13.0358").param("longitude", "77.6394").param("limit", "5");
+        assertAtMost(0, nearby);
+
+        // Candidates of the cell and the doctors within their radius
+        nearbyDoctorCache.clear();
+        try (QueryCount count = QueryCount.start()) {
+            mockMvc.perform(nearby).andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(5));
+            count.assertAtMost(2);
+        }
+    }
+
+    @Test
+    void adminUserDirectory() throws Exception {
+        assertAtMost(1, get("/api/users").header("Authorization", bearer(ADMIN)));
+    }
+
+    @Test
+    void adminAppointmentListing() throws Exception {
+        assertAtMost(1, get("/api/appointments/all").header("Authorization", bearer(ADMIN)));
+    }
+
+    private void assertAtMost(int statements, RequestBuilder request) throws Exception {
+        mockMvc.perform(request).andExpect(status().isOk());
+        try (QueryCount count = QueryCount.start()) {
+            mockMvc.perform(request).andExpect(status().isOk());
+            count.assertAtMost(statements);
+        }
+    }
+
+    private RequestBuilder booking(Long doctorId, LocalDate date, String time) {
+        return post("/api/appointments")
+                .header("Authorization", bearer(PATIENT))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"doctorId\":" + doctorId + ",\"appointmentDate\":\"" + date + "\",\"appointmentTime\":\"" + time + "\"}");
+    }
+}
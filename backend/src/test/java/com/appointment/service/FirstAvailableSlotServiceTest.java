@@ -0,0 +1,226 @@
+package com.appointment.service;
+
+import com.appointment.dto.AvailableSlotDTO;
+import com.appointment.repository.AppointmentRepository;
+import com.appointment.repository.DoctorRepository;
+import com.appointment.shard.ShardMap;
+import com.appointment.shard.ShardRouter;
+import com.appointment.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FirstAvailableSlotServiceTest {
+
+    private static final LocalDate TOMORROW = LocalDate.now().plusDays(1);
+
+    private final DoctorRepository doctorRepository = mock(DoctorRepository.class);
+    private final AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+    private final ShardRouter shardRouter = mock(ShardRouter.class);
+    private final ShardMap shardMap = mock(ShardMap.class);
+    private final Tracer tracer = mock(Tracer.class);
+    private final List<DoctorRepository.DoctorDistance> doctors = new ArrayList<>();
+    private final Set<LocalDateTime> booked = new HashSet<>();
+    // Date ranges of the booked slot lookups, in call order
+    private final List<List<LocalDate>> chunks = new ArrayList<>();
+    private FirstAvailableSlotService service;
+
+    @BeforeEach
+    void setUp() {
+        when(doctorRepository.findWithinRadius(any(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(),
+                anyDouble(), anyDouble(), anyInt())).thenReturn(doctors);
+        when(appointmentRepository.findBookedSlotsOfDoctorsBetween(any(), any(), any())).thenAnswer(invocation -> {
+            Collection<Long> doctorIds = invocation.getArgument(0);
+            LocalDate from = invocation.getArgument(1);
+            LocalDate to = invocation.getArgument(2);
+            synchronized (chunks) {
+                chunks.add(List.of(from, to));
+            }
+            List<AppointmentRepository.BookedSlot> slots = new ArrayList<>();
+            for (Long doctorId : doctorIds) {
+                booked.stream()
+                        .filter(slot -> !slot.toLocalDate().isBefore(from) && !slot.toLocalDate().isAfter(to))
+                        .forEach(slot -> slots.add(bookedSlot(doctorId, slot)));
+            }
+            return slots;
+        });
+        when(shardMap.shardOf(anyLong())).thenReturn(0);
+        when(shardRouter.inTransaction(anyInt(), anyBoolean(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<?>>getArgument(2).get());
+        when(tracer.wrap(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service = new FirstAvailableSlotService();
+        ReflectionTestUtils.setField(service, "doctorRepository", doctorRepository);
+        ReflectionTestUtils.setField(service, "appointmentRepository", appointmentRepository);
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "shardRouter", shardRouter);
+        ReflectionTestUtils.setField(service, "shardMap", shardMap);
+        ReflectionTestUtils.setField(service, "tracer", tracer);
+        ReflectionTestUtils.setField(service, "firstSlotTime", "09:00");
+        ReflectionTestUtils.setField(service, "lastSlotTime", "18:30");
+        ReflectionTestUtils.setField(service, "slotMinutes", 30);
+        ReflectionTestUtils.setField(service, "maxRadiusKm", 50.0);
+        ReflectionTestUtils.setField(service, "maxDays", 60);
+        ReflectionTestUtils.setField(service, "maxResults", 50);
+        ReflectionTestUtils.setField(service, "maxCandidates", 500);
+        ReflectionTestUtils.setField(service, "initialChunkDays", 1);
+        ReflectionTestUtils.setField(service, "batchSize", 50);
+        ReflectionTestUtils.setField(service, "parallelism", 2);
+        service.init();
+    }
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void slotsComeEarliestFirstWithTheNearerDoctorFirstAtTheSameTime() {
+        doctors.add(doctor(1, 5.0));
+        doctors.add(doctor(2, 2.0));
+
+        List<AvailableSlotDTO> slots = find(TOMORROW, 7, 4);
+
+        assertEquals(List.of("2 09:00", "1 09:00", "2 09:30", "1 09:30"), slots.stream()
+                .map(slot -> slot.doctorId() + " " + slot.appointmentTime())
+                .toList());
+        assertTrue(slots.stream().allMatch(slot -> slot.appointmentDate().equals(TOMORROW)));
+    }
+
+    @Test
+    void bookedAndPastSlotsAreSkipped() {
+        doctors.add(doctor(1, 1.0));
+        booked.add(LocalDateTime.of(TOMORROW, LocalTime.of(9, 30)));
+        LocalDateTime started = LocalDateTime.now();
+
+        List<AvailableSlotDTO> slots = find(null, 2, 50);
+
+        List<LocalDateTime> times = slots.stream()
+                .map(slot -> LocalDateTime.of(slot.appointmentDate(), slot.appointmentTime()))
+                .toList();
+        assertTrue(times.stream().allMatch(time -> time.isAfter(started)));
+        assertFalse(times.contains(LocalDateTime.of(TOMORROW, LocalTime.of(9, 30))));
+        assertEquals(19, times.stream().filter(time -> time.toLocalDate().equals(TOMORROW)).count());
+    }
+
+    @Test
+    void searchStopsInTheFirstChunkThatFillsTheLimit() {
+        doctors.add(doctor(1, 1.0));
+        bookWholeDay(TOMORROW);
+
+        List<AvailableSlotDTO> slots = find(TOMORROW, 30, 3);
+
+        assertEquals(List.of(List.of(TOMORROW, TOMORROW), List.of(TOMORROW.plusDays(1), TOMORROW.plusDays(2))),
+                chunks);
+        assertEquals(List.of(LocalTime.of(9, 0), LocalTime.of(9, 30), LocalTime.of(10, 0)), slots.stream()
+                .map(AvailableSlotDTO::appointmentTime)
+                .toList());
+        assertTrue(slots.stream().allMatch(slot -> slot.appointmentDate().equals(TOMORROW.plusDays(1))));
+    }
+
+    @Test
+    void chunksDoubleUntilTheWindowEnds() {
+        doctors.add(doctor(1, 1.0));
+        for (int day = 0; day < 5; day++) {
+            bookWholeDay(TOMORROW.plusDays(day));
+        }
+
+        List<AvailableSlotDTO> slots = find(TOMORROW, 5, 10);
+
+        assertEquals(List.of(List.of(TOMORROW, TOMORROW), List.of(TOMORROW.plusDays(1), TOMORROW.plusDays(2)),
+                List.of(TOMORROW.plusDays(3), TOMORROW.plusDays(4))), chunks);
+        assertTrue(slots.isEmpty());
+    }
+
+    @Test
+    void boxAcrossTheAntimeridianCoversAllLongitudes() {
+        service.findFirstAvailable(null, -17.0, 179.9, 50, TOMORROW, 1, 1);
+
+        verify(doctorRepository).findWithinRadius(isNull(), eq(-17.0), eq(179.9), anyDouble(), anyDouble(),
+                eq(-180.0), eq(180.0), eq(50.0), eq(500));
+    }
+
+    private List<AvailableSlotDTO> find(LocalDate from, int days, int limit) {
+        return service.findFirstAvailable(null, 28.6, 77.2, 10, from, days, limit);
+    }
+
+    private void bookWholeDay(LocalDate date) {
+        for (LocalTime time = LocalTime.of(9, 0); !time.isAfter(LocalTime.of(18, 30)); time = time.plusMinutes(30)) {
+            booked.add(LocalDateTime.of(date, time));
+        }
+    }
+
+    private static DoctorRepository.DoctorDistance doctor(long id, double distance) {
+        return new DoctorRepository.DoctorDistance() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return "Doctor " + id;
+            }
+
+            @Override
+            public String getSpecialty() {
+                return "Cardiology";
+            }
+
+            @Override
+            public String getAddress() {
+                return "Street " + id;
+            }
+
+            @Override
+            public Double getDistance() {
+                return distance;
+            }
+        };
+    }
+
+    private static AppointmentRepository.BookedSlot bookedSlot(long doctorId, LocalDateTime slot) {
+        return new AppointmentRepository.BookedSlot() {
+            @Override
+            public Long getDoctorId() {
+                return doctorId;
+            }
+
+            @Override
+            public LocalDate getAppointmentDate() {
+                return slot.toLocalDate();
+            }
+
+            @Override
+            public LocalTime getAppointmentTime() {
+                return slot.toLocalTime();
+            }
+        };
+    }
+}
@@ -0,0 +1,91 @@
+package com.appointment.service;
+
+import com.appointment.IntegrationTest;
+import com.appointment.dto.AppointmentDTO;
+import com.appointment.dto.CreateAppointmentRequest;
+import com.appointment.entity.IdempotencyRecord;
+import com.appointment.exception.CustomExceptions;
+import com.appointment.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+
+@TestPropertySource(properties = {
+        "app.idempotency.persistent=true",
+        "app.idempotency.wait-timeout-ms=200",
+        "app.idempotency.lease-ms=60000"})
+class IdempotencyServiceTest extends IntegrationTest {
+
+    private static final CreateAppointmentRequest REQUEST =
+            new CreateAppointmentRequest(1L, LocalDate.now().plusDays(20), LocalTime.of(9, 0));
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @SpyBean
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Test
+    void claimOfADeadRequestIsTakenOverAfterTheLease() {
+        inFlight(PATIENT + ":dead-owner", LocalDateTime.now().minusMinutes(2));
+        AtomicInteger runs = new AtomicInteger();
+
+        AppointmentDTO result = idempotencyService.execute(PATIENT, "dead-owner", REQUEST, () -> {
+            runs.incrementAndGet();
+            return result(41L);
+        });
+
+        assertEquals(41L, result.id());
+        assertEquals(1, runs.get());
+        assertEquals(IdempotencyRecord.Status.COMPLETED,
+                idempotencyRecordRepository.findById(PATIENT + ":dead-owner").orElseThrow().getStatus());
+    }
+
+    @Test
+    void claimWithinTheLeaseIsNotTakenOver() {
+        inFlight(PATIENT + ":live-owner", LocalDateTime.now());
+
+        assertThrows(CustomExceptions.AppointmentConflictException.class, () ->
+                idempotencyService.execute(PATIENT, "live-owner", REQUEST, () -> result(42L)));
+    }
+
+    @Test
+    void failureToStoreTheResultReleasesTheClaim() {
+        doThrow(new DataAccessResourceFailureException("down"))
+                .when(idempotencyRecordRepository).complete(eq(PATIENT + ":store-fails"), any(), any());
+
+        assertThrows(RuntimeException.class, () ->
+                idempotencyService.execute(PATIENT, "store-fails", REQUEST, () -> result(43L)));
+
+        assertTrue(idempotencyRecordRepository.findById(PATIENT + ":store-fails").isEmpty());
+    }
+
+    private void inFlight(String key, LocalDateTime claimedAt) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setKey(key);
+        record.setRequestFingerprint(REQUEST.getDoctorId() + "|" + REQUEST.getAppointmentDate() + "|"
+                + REQUEST.getAppointmentTime());
+        record.setCreatedAt(claimedAt);
+        record.setClaimedAt(claimedAt);
+        idempotencyRecordRepository.save(record);
+    }
+
+    private static AppointmentDTO result(Long id) {
+        return new AppointmentDTO(id, 2L, "Jane", "Smith", PATIENT, REQUEST.getDoctorId(), "Dr", "General", null,
+                null, REQUEST.getAppointmentDate(), REQUEST.getAppointmentTime(), "BOOKED", LocalDateTime.now());
+    }
+}
@@ -0,0 +1,354 @@
+package com.appointment.datagen;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fills the database with a synthetic dataset at production scale, loaded with {@code COPY} through the
+ * JDBC {@link org.postgresql.copy.CopyManager}.
+ * <p>
+ * Users and doctors are spread over Indian cities by population, doctors over specialties by how common
+ * they are. Appointments cover {@code past-days} back to {@code future-days} ahead, written in date order
+ * like real traffic would, with skew on three axes: a Zipf-like popularity per doctor, few users booking
+ * a lot, and quiet weekends. No doctor slot is booked twice. Past appointments are COMPLETED or
+ * CANCELLED, future ones BOOKED or CANCELLED, and reminders that would have gone out are marked sent.
+ * <p>
+ * The schema must exist, so start the backend once with {@code ddl-auto=update} (or the prod profile)
+ * and keep it away from {@code create-drop} and {@code sql.init.mode=always} afterwards. Ids are reserved
+ * from the sequences up front, but run it against an otherwise idle database. All generated users log
+ * in with {@code user-password}.
+ * <p>
+ * Options ({@code --key=value}): {@code url}, {@code db-user}, {@code db-password}, {@code users},
+ * {@code doctors}, {@code appointments}, {@code past-days}, {@code future-days}, {@code doctor-skew}
+ * (Zipf exponent), {@code threads}, {@code seed}, {@code user-password}, {@code skip-fk-checks},
+ * {@code truncate} (empties users, doctors and appointments first).
+ */
+public class DataGenerator {
+
+    private static final int SLOTS_PER_DAY = 20;
+    private static final LocalTime FIRST_SLOT = LocalTime.of(9, 0);
+    // A doctor-day never gets more than this many bookings on average, leaving room for the Poisson tail
+    private static final double MAX_DAILY_RATE = 12;
+    private static final double WEEKEND_FACTOR = 0.35;
+    private static final long REMINDER_LEAD_MINUTES = 1440;
+
+    private final DataGenConfig config;
+    private final String url;
+    private final String dbUser;
+    private final String dbPassword;
+    private final int threads;
+    private final long seed;
+    private volatile boolean fkWarningShown;
+
+    public DataGenerator(DataGenConfig config) {
+        this.config = config;
+        this.url = config.get("url", "jdbc:postgresql://127.0.0.1:5432/appointment_db");
+        this.dbUser = config.get("db-user", "postgres");
+        this.dbPassword = config.get("db-password", "password");
+        this.threads = config.getInt("threads", Math.max(2, Runtime.getRuntime().availableProcessors()));
+        this.seed = config.getLong("seed", 42);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new DataGenerator(new DataGenConfig(args)).run();
+    }
+
+    private void run() throws Exception {
+        long userCount = config.getLong("users", 1_000_000);
+        int doctorCount = config.getInt("doctors", 200_000);
+        long appointmentCount = config.getLong("appointments", 20_000_000);
+
+        try (Connection connection = connect()) {
+            if (config.getBoolean("truncate", false)) {
+                execute(connection, "TRUNCATE appointments, doctors, users RESTART IDENTITY CASCADE");
+                System.out.println("Truncated users, doctors and appointments");
+            }
+            long firstUserId = reserveIds(connection, "users", userCount);
+            long firstDoctorId = reserveIds(connection, "doctors", doctorCount);
+
+            timed("users", () -> loadUsers(firstUserId, userCount));
+            timed("doctors", () -> loadDoctors(firstDoctorId, doctorCount));
+            timed("appointments", () -> loadAppointments(firstUserId, userCount, firstDoctorId, doctorCount, appointmentCount));
+
+            long started = System.currentTimeMillis();
+            execute(connection, "ANALYZE users");
+            execute(connection, "ANALYZE doctors");
+            execute(connection, "ANALYZE appointments");
+            System.out.printf("analyze: %d ms%n", System.currentTimeMillis() - started);
+        }
+    }
+
+    private long loadUsers(long firstId, long count) throws Exception {
+        String passwordHash = new BCryptPasswordEncoder().encode(config.get("user-password", "password123"));
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        return inSlices(count, (from, to, random, connection) -> {
+            try (CopyWriter copy = new CopyWriter(connection, "users",
+                    "id, first_name, last_name, email, password, role, phone, city, state, country, latitude, longitude, created_at")) {
+                for (long id = firstId + from; id < firstId + to; id++) {
+                    SampleData.City city = SampleData.city(random);
+                    double[] point = city.randomPoint(random);
+                    copy.field(id)
+                            .field(SampleData.any(SampleData.FIRST_NAMES, random))
+                            .field(SampleData.any(SampleData.LAST_NAMES, random))
+                            .field("user" + id + "@example.test")
+                            .field(passwordHash)
+                            .raw("USER")
+                            .field(SampleData.phone(random))
+                            .field(city.name)
+                            .field(city.state)
+                            .field("India")
+                            .field(point[0])
+                            .field(point[1])
+                            .raw(now.minusMinutes(random.nextInt(3 * 365 * 24 * 60)))
+                            .endRow();
+                }
+                return copy.rows();
+            }
+        });
+    }
+
+    private long loadDoctors(long firstId, int count) throws Exception {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        return inSlices(count, (from, to, random, connection) -> {
+            try (CopyWriter copy = new CopyWriter(connection, "doctors",
+                    "id, name, specialty, latitude, longitude, address, phone, created_at")) {
+                for (long id = firstId + from; id < firstId + to; id++) {
+                    SampleData.City city = SampleData.city(random);
+                    double[] point = city.randomPoint(random);
+                    copy.field(id)
+                            .field("Dr. " + SampleData.any(SampleData.FIRST_NAMES, random) + " "
+                                    + SampleData.any(SampleData.LAST_NAMES, random))
+                            .field(SampleData.specialty(random))
+                            // numeric(10,8) and numeric(11,8) columns
+                            .raw(BigDecimal.valueOf(point[0]).setScale(8, RoundingMode.HALF_UP))
+                            .raw(BigDecimal.valueOf(point[1]).setScale(8, RoundingMode.HALF_UP))
+                            .field((1 + random.nextInt(400)) + " " + SampleData.any(SampleData.STREETS, random)
+                                    + ", " + city.name + ", " + city.state)
+                            .field(SampleData.phone(random))
+                            .raw(now.minusMinutes(random.nextInt(5 * 365 * 24 * 60)))
+                            .endRow();
+                }
+                return copy.rows();
+            }
+        });
+    }
+
+    private long loadAppointments(long firstUserId, long userCount, long firstDoctorId, int doctorCount,
+                                  long targetCount) throws Exception {
+        LocalDate today = LocalDate.now();
+        LocalDate firstDay = today.minusDays(config.getInt("past-days", 365));
+        LocalDate lastDay = today.plusDays(config.getInt("future-days", 90));
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        double weightedDays = 0;
+        for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+            weightedDays += dayFactor(day);
+        }
+        double[] dailyRates = doctorDailyRates(doctorCount, targetCount / (doctorCount * weightedDays));
+
+        return inSlices(doctorCount, (from, to, random, connection) -> {
+            try (CopyWriter copy = new CopyWriter(connection, "appointments",
+                    "user_id, doctor_id, appointment_date, appointment_time, status, created_at, reminder_sent_at")) {
+                for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+                    double dayFactor = dayFactor(day);
+                    boolean past = day.isBefore(today);
+                    for (int doctor = (int) from; doctor < to; doctor++) {
+                        int bookings = Math.min(poisson(dailyRates[doctor] * dayFactor, random), SLOTS_PER_DAY);
+                        int takenSlots = 0;
+                        for (int i = 0; i < bookings; i++) {
+                            int slot;
+                            do {
+                                slot = random.nextInt(SLOTS_PER_DAY);
+                            } while ((takenSlots & (1 << slot)) != 0);
+                            takenSlots |= 1 << slot;
+
+                            LocalDateTime start = LocalDateTime.of(day, FIRST_SLOT.plusMinutes(30L * slot));
+                            // Booked up to a month ahead, never in the future
+                            LocalDateTime createdAt = start.minusMinutes(60 + random.nextInt(30 * 24 * 60));
+                            if (createdAt.isAfter(now)) {
+                                createdAt = now.minusMinutes(random.nextInt(24 * 60));
+                            }
+                            boolean cancelled = random.nextInt(100) < (past ? 12 : 8);
+                            String status = cancelled ? "CANCELLED" : past ? "COMPLETED" : "BOOKED";
+                            LocalDateTime remindAt = start.minusMinutes(REMINDER_LEAD_MINUTES);
+                            copy.field(firstUserId + skewedUser(userCount, random))
+                                    .field(firstDoctorId + doctor)
+                                    .raw(day)
+                                    .raw(start.toLocalTime())
+                                    .raw(status)
+                                    .raw(createdAt)
+                                    .raw(!cancelled && remindAt.isBefore(now) && remindAt.isAfter(createdAt) ? remindAt : null)
+                                    .endRow();
+                        }
+                    }
+                }
+                return copy.rows();
+            }
+        });
+    }
+
+    // Zipf-like popularity over a random ranking of the doctors, scaled so the mean rate is meanRate
+    private double[] doctorDailyRates(int doctorCount, double meanRate) {
+        double skew = config.getDouble("doctor-skew", 0.8);
+        SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+        int[] ranks = new int[doctorCount];
+        for (int i = 0; i < doctorCount; i++) {
+            int j = random.nextInt(i + 1);
+            ranks[i] = ranks[j];
+            ranks[j] = i;
+        }
+        double[] rates = new double[doctorCount];
+        double sum = 0;
+        for (int i = 0; i < doctorCount; i++) {
+            rates[i] = 1.0 / Math.pow(ranks[i] + 1, skew);
+            sum += rates[i];
+        }
+        // Capping the busiest doctors loses volume, so rescale the others until the mean is met again
+        double target = meanRate * doctorCount;
+        double scale = target / sum;
+        double[] capped = new double[doctorCount];
+        for (int iteration = 0; iteration < 30; iteration++) {
+            double total = 0;
+            for (int i = 0; i < doctorCount; i++) {
+                capped[i] = Math.min(rates[i] * scale, MAX_DAILY_RATE);
+                total += capped[i];
+            }
+            if (total >= target * 0.999 || total >= MAX_DAILY_RATE * doctorCount * 0.999) {
+                break;
+            }
+            scale *= target / total;
+        }
+        rates = capped;
+        return rates;
+    }
+
+    private static double dayFactor(LocalDate day) {
+        DayOfWeek dayOfWeek = day.getDayOfWeek();
+        return dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY ? WEEKEND_FACTOR : 1.0;
+    }
+
+    // About 40% of the bookings come from the 10% most active users
+    private static long skewedUser(long userCount, SplittableRandom random) {
+        return Math.min((long) (userCount * Math.pow(random.nextDouble(), 2.5)), userCount - 1);
+    }
+
+    // Knuth's method, fine for the small rates of a single doctor-day
+    private static int poisson(double rate, SplittableRandom random) {
+        if (rate <= 0) {
+            return 0;
+        }
+        double limit = Math.exp(-rate);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Splits {@code [0, count)} over the worker threads, each streaming its own {@code COPY} on its own
+     * connection, and returns the number of rows written.
+     */
+    private long inSlices(long count, SliceLoader loader) throws Exception {
+        int slices = (int) Math.max(1, Math.min(threads, count));
+        ExecutorService executor = Executors.newFixedThreadPool(slices);
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (int slice = 0; slice < slices; slice++) {
+                long from = count * slice / slices;
+                long to = count * (slice + 1) / slices;
+                SplittableRandom random = new SplittableRandom(seed * 31 + slice);
+                results.add(executor.submit(() -> {
+                    try (Connection connection = connectForLoad()) {
+                        return loader.load(from, to, random, connection);
+                    }
+                }));
+            }
+            long rows = 0;
+            for (Future<Long> result : results) {
+                rows += result.get();
+            }
+            return rows;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Takes count ids from the table's sequence, so the app cannot hand them out meanwhile
+    private static long reserveIds(Connection connection, String table, long count) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_get_serial_sequence('" + table + "', 'id')")) {
+            rs.next();
+            String sequence = rs.getString(1);
+            try (ResultSet first = statement.executeQuery("SELECT nextval('" + sequence + "')")) {
+                first.next();
+                long firstId = first.getLong(1);
+                if (count > 1) {
+                    statement.executeQuery("SELECT setval('" + sequence + "', " + (firstId + count - 1) + ")").close();
+                }
+                return firstId;
+            }
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(url, dbUser, dbPassword);
+    }
+
+    // Foreign key triggers dominate COPY into appointments and the generated rows are consistent by
+    // construction, so they are skipped when the role may do so (superuser, or PostgreSQL 15+ grants)
+    private Connection connectForLoad() throws SQLException {
+        Connection connection = connect();
+        if (config.getBoolean("skip-fk-checks", true)) {
+            try {
+                execute(connection, "SET session_replication_role = replica");
+            } catch (SQLException e) {
+                if (!fkWarningShown) {
+                    fkWarningShown = true;
+                    System.out.println("Foreign keys are checked row by row: " + e.getMessage());
+                }
+            }
+        }
+        return connection;
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static void timed(String table, Load load) throws Exception {
+        long started = System.currentTimeMillis();
+        long rows = load.run();
+        long millis = Math.max(System.currentTimeMillis() - started, 1);
+        System.out.printf("%s: %,d rows in %,d ms (%,d rows/s)%n", table, rows, millis, rows * 1000 / millis);
+    }
+
+    private interface Load {
+        long run() throws Exception;
+    }
+
+    private interface SliceLoader {
+        long load(long from, long to, SplittableRandom random, Connection connection) throws Exception;
+    }
+}
@@ -0,0 +1,132 @@
+package com.appointment.datagen;
+
+import java.util.SplittableRandom;
+
+/**
+ * Word lists and weighted distributions the generated rows are drawn from.
+ */
+final class SampleData {
+
+    static final String[] FIRST_NAMES = {
+            "Aarav", "Aditi", "Akash", "Ananya", "Arjun", "Deepa", "Divya", "Farhan", "Gaurav", "Isha",
+            "Karthik", "Kavya", "Manoj", "Meera", "Mohit", "Neha", "Nikhil", "Pooja", "Priya", "Rahul",
+            "Rajesh", "Ravi", "Rohan", "Sanjay", "Shreya", "Sneha", "Suresh", "Tanvi", "Varun", "Vikram",
+            "Anita", "Arun", "Bhavna", "Chetan", "Harish", "Lakshmi", "Nandini", "Pallavi", "Ramesh", "Sunita"
+    };
+
+    static final String[] LAST_NAMES = {
+            "Sharma", "Patel", "Reddy", "Kumar", "Iyer", "Rao", "Gowda", "Nair", "Menon", "Singh",
+            "Gupta", "Joshi", "Desai", "Kulkarni", "Pillai", "Mehta", "Verma", "Chopra", "Bhat", "Shetty",
+            "Das", "Mukherjee", "Banerjee", "Khan", "Fernandes", "Naidu", "Hegde", "Agarwal", "Malhotra", "Saxena"
+    };
+
+    static final String[] STREETS = {
+            "MG Road", "Main Road", "Ring Road", "Station Road", "Temple Street", "Park Avenue", "Hospital Road",
+            "Market Street", "Lake View Road", "Church Street", "Cross Road", "Nehru Street", "Gandhi Nagar"
+    };
+
+    // Same list as SPECIALTIES in the frontend; weights roughly follow how common each practice is
+    static final String[] SPECIALTIES = {
+            "Cardiology", "Dermatology", "Emergency Medicine", "Family Medicine", "Gynecology", "Neurology",
+            "Oncology", "Ophthalmology", "Orthopedics", "Pediatrics", "Psychiatry", "Radiology"
+    };
+    private static final double[] SPECIALTY_WEIGHTS = {8, 7, 4, 25, 9, 4, 3, 6, 8, 12, 5, 3};
+
+    static final City[] CITIES = {
+            new City("Bengaluru", "Karnataka", 12.9716, 77.5946, 13),
+            new City("Mumbai", "Maharashtra", 19.0760, 72.8777, 21),
+            new City("Delhi", "Delhi", 28.7041, 77.1025, 30),
+            new City("Hyderabad", "Telangana", 17.3850, 78.4867, 10),
+            new City("Chennai", "Tamil Nadu", 13.0827, 80.2707, 11),
+            new City("Kolkata", "West Bengal", 22.5726, 88.3639, 15),
+            new City("Pune", "Maharashtra", 18.5204, 73.8567, 7),
+            new City("Ahmedabad", "Gujarat", 23.0225, 72.5714, 8),
+            new City("Jaipur", "Rajasthan", 26.9124, 75.7873, 4),
+            new City("Lucknow", "Uttar Pradesh", 26.8467, 80.9462, 4),
+            new City("Kochi", "Kerala", 9.9312, 76.2673, 2),
+            new City("Mysuru", "Karnataka", 12.2958, 76.6394, 1)
+    };
+
+    private static final double[] CITY_CUMULATIVE = cumulative(cityWeights());
+    private static final double[] SPECIALTY_CUMULATIVE = cumulative(SPECIALTY_WEIGHTS);
+
+    private SampleData() {
+    }
+
+    static City city(SplittableRandom random) {
+        return CITIES[pick(CITY_CUMULATIVE, random)];
+    }
+
+    static String specialty(SplittableRandom random) {
+        return SPECIALTIES[pick(SPECIALTY_CUMULATIVE, random)];
+    }
+
+    static <T> T any(T[] values, SplittableRandom random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    static String phone(SplittableRandom random) {
+        return "+91 9" + (100000000 + random.nextInt(900000000));
+    }
+
+    private static double[] cityWeights() {
+        double[] weights = new double[CITIES.length];
+        for (int i = 0; i < CITIES.length; i++) {
+            weights[i] = CITIES[i].weight;
+        }
+        return weights;
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double[] cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < cumulative.length; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int pick(double[] cumulative, SplittableRandom random) {
+        double r = random.nextDouble();
+        for (int i = 0; i < cumulative.length; i++) {
+            if (r < cumulative[i]) {
+                return i;
+            }
+        }
+        return cumulative.length - 1;
+    }
+
+    static final class City {
+        final String name;
+        final String state;
+        final double latitude;
+        final double longitude;
+        final double weight;
+
+        private City(String name, String state, double latitude, double longitude, double weight) {
+            this.name = name;
+            this.state = state;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.weight = weight;
+        }
+
+        /** A point around the centre, normally distributed with about 8 km standard deviation. */
+        double[] randomPoint(SplittableRandom random) {
+            double latitudeOffset = gaussian(random) * 0.072;
+            double longitudeOffset = gaussian(random) * 0.072 / Math.cos(Math.toRadians(latitude));
+            return new double[] {latitude + latitudeOffset, longitude + longitudeOffset};
+        }
+
+        private static double gaussian(SplittableRandom random) {
+            // Box-Muller; SplittableRandom has no nextGaussian
+            double u = 1.0 - random.nextDouble();
+            double v = random.nextDouble();
+            return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * v);
+        }
+    }
+}
@@ -45,20 +45,21 @@ export const authAPI = {
 
 // Doctor API
 export const doctorAPI = {
-  getAllDoctors: () => api.get('/doctors'),
+  getAllDoctors: (fields) => api.get('/doctors', { params: { fields } }),
   getDoctorById: (id) => api.get(`/doctors/${id}`),
   searchDoctors: (specialty) => api.get('/doctors/search', { params: { specialty } }),
-  getNearbyDoctors: (latitude, longitude, limit = 10) =>
-    api.get('/doctors/nearby', { params: { latitude, longitude, limit } }),
+  getNearbyDoctors: (latitude, longitude, limit = 10, fields) =>
+    api.get('/doctors/nearby', { params: { latitude, longitude, limit, fields } }),
 };
 
 // Appointment API
 export const appointmentAPI = {
   createAppointment: (appointmentData) => api.post('/appointments', appointmentData),
-  getUserAppointments: () => api.get('/appointments'),
+  getUserAppointments: (fields) => api.get('/appointments', { params: { fields } }),
   getActiveAppointments: () => api.get('/appointments/active'),
   getAppointmentById: (id) => api.get(`/appointments/${id}`),
   cancelAppointment: (id) => api.put(`/appointments/${id}/cancel`),
+  getWaitingRoomTicket: (token) => api.get(`/appointments/waiting-room/${token}`),
 };
 
 export default api;
\ No newline at end of file
@@ -1,7 +1,51 @@
 import React, { useState, useEffect } from 'react';
 import { motion, AnimatePresence } from 'framer-motion';
 import Navigation from '../components/Navigation';
-import { X, User, Mail, Calendar, Phone, MapPin, Users, Stethoscope, Clock, BarChart3, Loader2, AlertCircle } from 'lucide-react';
+import { X, User, Mail, Calendar, Phone, MapPin, Users, Stethoscope, Clock, BarChart3, Loader2, AlertCircle, Search, ChevronLeft, ChevronRight } from 'lucide-react';
+
+const USERS_URL = 'http://localhost:8080/api/users';
+
+const APPOINTMENTS_URL = 'http://localhost:8080/api/appointments/all';
+
+// The appointment list covers a window of dates, widened on request
+const APPOINTMENT_WINDOW_MONTHS = 3;
+
+const monthsBefore = (isoDate, months) => {
+  const date = new Date(`${isoDate}T00:00:00`);
+  date.setMonth(date.getMonth() - months);
+  const pad = (n) => String(n).padStart(2, '0');
+  return `${date.getFullYear()}-${pad(date.getMonth() + 1)}-${pad(date.getDate())}`;
+};
+
+// YYYY-MM-DD in local time
+const today = () => new Date().toLocaleDateString('en-CA');
+
+// Handles both old entity format and new DTO format with safe access
+const transformAppointment = (apt) => ({
+  id: apt.id,
+  patientName: apt.patientName || // DTO format with helper method
+              (apt.patientFirstName && apt.patientLastName ? `${apt.patientFirstName} ${apt.patientLastName}`.trim() :
+               apt.patientFirstName || apt.patientLastName ||
+               (apt.user ? `${apt.user.firstName || ''} ${apt.user.lastName || ''}`.trim() : 'Unknown Patient')),
+  doctorName: apt.doctorName || (apt.doctor ? apt.doctor.name : 'Unknown Doctor'),
+  date: apt.appointmentDate || 'Unknown Date',
+  status: apt.status || 'UNKNOWN',
+  // Keep original data for future needs
+  user: apt.user,
+  doctor: apt.doctor,
+  appointmentTime: apt.appointmentTime,
+  appointmentDate: apt.appointmentDate,
+  // Add DTO fields
+  patientEmail: apt.patientEmail,
+  doctorSpecialty: apt.doctorSpecialty
+});
+
+// The users API pages by cursor and links the next page in a Link header
+const nextLink = (response) => {
+  const link = response.headers.get('Link');
+  const match = link && link.match(/<([^>]+)>;\s*rel="next"/);
+  return match ? match[1] : null;
+};
 
 const AdminDashboard = () => {
   const [stats, setStats] = useState({
@@ -18,6 +62,13 @@ const AdminDashboard = () => {
   const [selectedUser, setSelectedUser] = useState(null);
   const [showUserModal, setShowUserModal] = useState(false);
   const [appointmentFilter, setAppointmentFilter] = useState('all');
+  const [userSearch, setUserSearch] = useState('');
+  const [userPageUrl, setUserPageUrl] = useState(USERS_URL);
+  const [previousUserPages, setPreviousUserPages] = useState([]);
+  const [nextUsersUrl, setNextUsersUrl] = useState(null);
+  const [usersLoading, setUsersLoading] = useState(false);
+  const [appointmentsFrom, setAppointmentsFrom] = useState(() => monthsBefore(today(), APPOINTMENT_WINDOW_MONTHS));
+  const [appointmentsLoading, setAppointmentsLoading] = useState(false);
 
   useEffect(() => {
     fetchAdminData();
@@ -40,13 +91,13 @@ const AdminDashboard = () => {
         fetch('http://localhost:8080/api/admin/stats', {
           headers: { 'Authorization': `Bearer ${token}` }
         }),
-        fetch('http://localhost:8080/api/users', {
+        fetch(USERS_URL, {
           headers: { 'Authorization': `Bearer ${token}` }
         }),
         fetch('http://localhost:8080/api/doctors', {
           headers: { 'Authorization': `Bearer ${token}` }
         }),
-        fetch('http://localhost:8080/api/appointments/all', {
+        fetch(`${APPOINTMENTS_URL}?from=${appointmentsFrom}`, {
           headers: { 'Authorization': `Bearer ${token}` }
         })
       ]);
@@ -62,6 +113,7 @@ const AdminDashboard = () => {
       // Process responses with detailed error logging
       const adminStats = statsRes.ok ? await statsRes.json() : {};
       const usersData = usersRes.ok ? await usersRes.json() : [];
+      setNextUsersUrl(usersRes.ok ? nextLink(usersRes) : null);
       const doctorsData = doctorsRes.ok ? await doctorsRes.json() : [];
 
       let appointmentsData = [];
@@ -123,25 +175,7 @@ const AdminDashboard = () => {
       // Transform appointments data to match frontend expectations with safe access
       let transformedAppointments = [];
       if (appointmentsData && Array.isArray(appointmentsData) && appointmentsData.length > 0) {
-        transformedAppointments = appointmentsData.map(apt => ({
-          id: apt.id,
-          // Handle both old entity format and new DTO format
-          patientName: apt.patientName || // DTO format with helper method
-                      (apt.patientFirstName && apt.patientLastName ? `${apt.patientFirstName} ${apt.patientLastName}`.trim() :
-                       apt.patientFirstName || apt.patientLastName ||
-                       (apt.user ? `${apt.user.firstName || ''} ${apt.user.lastName || ''}`.trim() : 'Unknown Patient')),
-          doctorName: apt.doctorName || (apt.doctor ? apt.doctor.name : 'Unknown Doctor'),
-          date: apt.appointmentDate || 'Unknown Date',
-          status: apt.status || 'UNKNOWN',
-          // Keep original data for future needs
-          user: apt.user,
-          doctor: apt.doctor,
-          appointmentTime: apt.appointmentTime,
-          appointmentDate: apt.appointmentDate,
-          // Add DTO fields
-          patientEmail: apt.patientEmail,
-          doctorSpecialty: apt.doctorSpecialty
-        }));
+        transformedAppointments = appointmentsData.map(transformAppointment);
         console.log('Transformed appointments:', transformedAppointments);
       }
 
@@ -182,6 +216,83 @@ const AdminDashboard = () => {
     }
   };
 
+  const fetchUsersPage = async (url, previousPages) => {
+    const token = localStorage.getItem('token');
+    try {
+      setUsersLoading(true);
+      const response = await fetch(url, {
+        headers: { 'Authorization': `Bearer ${token}` }
+      });
+      if (response.status === 401) {
+        localStorage.removeItem('token');
+        window.location.href = '/login';
+        return;
+      }
+      if (!response.ok) {
+        console.error('Users API failed:', response.status);
+        return;
+      }
+      setUsers(await response.json());
+      setNextUsersUrl(nextLink(response));
+      setUserPageUrl(url);
+      setPreviousUserPages(previousPages);
+    } catch (error) {
+      console.error('Failed to fetch users:', error);
+    } finally {
+      setUsersLoading(false);
+    }
+  };
+
+  const fetchAppointments = async (from) => {
+    const token = localStorage.getItem('token');
+    try {
+      setAppointmentsLoading(true);
+      const response = await fetch(`${APPOINTMENTS_URL}?from=${from}`, {
+        headers: { 'Authorization': `Bearer ${token}` }
+      });
+      if (response.status === 401) {
+        localStorage.removeItem('token');
+        window.location.href = '/login';
+        return;
+      }
+      if (!response.ok) {
+        console.error('Appointments API failed:', response.status);
+        return;
+      }
+      const appointmentsData = await response.json();
+      setAppointments(Array.isArray(appointmentsData) ? appointmentsData.map(transformAppointment) : []);
+      setAppointmentsFrom(from);
+    } catch (error) {
+      console.error('Failed to fetch appointments:', error);
+    } finally {
+      setAppointmentsLoading(false);
+    }
+  };
+
+  const handleAppointmentsFromChange = (e) => {
+    if (e.target.value) {
+      fetchAppointments(e.target.value);
+    }
+  };
+
+  const handleWidenAppointments = () => {
+    fetchAppointments(monthsBefore(appointmentsFrom, APPOINTMENT_WINDOW_MONTHS));
+  };
+
+  const handleUserSearch = (e) => {
+    e.preventDefault();
+    const query = userSearch.trim();
+    fetchUsersPage(query ? `${USERS_URL}?q=${encodeURIComponent(query)}` : USERS_URL, []);
+  };
+
+  const handleNextUsers = () => {
+    fetchUsersPage(nextUsersUrl, [...previousUserPages, userPageUrl]);
+  };
+
+  const handlePreviousUsers = () => {
+    fetchUsersPage(previousUserPages[previousUserPages.length - 1], previousUserPages.slice(0, -1));
+  };
+
   const handleViewUserDetails = (user) => {
     setSelectedUser(user);
     setShowUserModal(true);
@@ -528,12 +639,35 @@ const AdminDashboard = () => {
           >
             <div className="absolute inset-0 animate-glass-shine pointer-events-none opacity-0 group-hover:opacity-100 transition-opacity duration-500 rounded-3xl" style={{ background: 'linear-gradient(45deg, transparent 30%, rgba(255,255,255,0.1) 50%, transparent 70%)' }} />
             <div className="relative z-10">
-              <h3 className="text-xl font-bold text-primary-800 mb-6 flex items-center">
-                <div className="p-2 bg-primary-100/80 rounded-xl mr-3 shadow-lg">
-                  <Users className="w-5 h-5 text-primary-600" strokeWidth={1.5} />
-                </div>
-                User Management
-              </h3>
+              <div className="flex justify-between items-center mb-6">
+                <h3 className="text-xl font-bold text-primary-800 flex items-center">
+                  <div className="p-2 bg-primary-100/80 rounded-xl mr-3 shadow-lg">
+                    <Users className="w-5 h-5 text-primary-600" strokeWidth={1.5} />
+                  </div>
+                  User Management
+                </h3>
+                <form onSubmit={handleUserSearch} className="flex space-x-2">
+                  <div className="relative">
+                    <Search className="w-4 h-4 text-primary-400 absolute left-3 top-1/2 -translate-y-1/2" strokeWidth={1.5} />
+                    <input
+                      type="text"
+                      value={userSearch}
+                      onChange={(e) => setUserSearch(e.target.value)}
+                      placeholder="Email or name starts with..."
+                      className="pl-9 pr-4 py-2 rounded-xl text-sm bg-white/50 border border-white/30 text-primary-800 placeholder-primary-400 focus:outline-none focus:ring-2 focus:ring-primary-300"
+                    />
+                  </div>
+                  <motion.button
+                    type="submit"
+                    whileHover={{ scale: 1.02 }}
+                    whileTap={{ scale: 0.98 }}
+                    disabled={usersLoading}
+                    className="px-4 py-2 rounded-xl text-sm font-medium transition-all duration-300 shadow-sm border bg-gradient-to-r from-primary-500 to-primary-600 text-white border-primary-600 disabled:opacity-50"
+                  >
+                    Search
+                  </motion.button>
+                </form>
+              </div>
               <div className="overflow-x-auto rounded-2xl">
                 <table className="w-full">
                   <thead>
@@ -572,6 +706,35 @@ const AdminDashboard = () => {
                   </tbody>
                 </table>
               </div>
+              {users.length === 0 && (
+                <div className="text-center py-8 text-primary-600">
+                  <Users className="w-12 h-12 mx-auto mb-4 text-primary-400" strokeWidth={1.5} />
+                  <p>No users found</p>
+                </div>
+              )}
+              <div className="flex justify-between items-center mt-6">
+                <motion.button
+                  whileHover={{ scale: 1.02 }}
+                  whileTap={{ scale: 0.98 }}
+                  onClick={handlePreviousUsers}
+                  disabled={usersLoading || previousUserPages.length === 0}
+                  className="flex items-center px-4 py-2 rounded-xl text-sm font-medium transition-all duration-300 shadow-sm border bg-white/50 text-primary-700 border-white/30 hover:bg-white/70 disabled:opacity-50"
+                >
+                  <ChevronLeft className="w-4 h-4 mr-1" strokeWidth={1.5} />
+                  Previous
+                </motion.button>
+                <span className="text-sm text-primary-600">Page {previousUserPages.length + 1}</span>
+                <motion.button
+                  whileHover={{ scale: 1.02 }}
+                  whileTap={{ scale: 0.98 }}
+                  onClick={handleNextUsers}
+                  disabled={usersLoading || !nextUsersUrl}
+                  className="flex items-center px-4 py-2 rounded-xl text-sm font-medium transition-all duration-300 shadow-sm border bg-white/50 text-primary-700 border-white/30 hover:bg-white/70 disabled:opacity-50"
+                >
+                  Next
+                  <ChevronRight className="w-4 h-4 ml-1" strokeWidth={1.5} />
+                </motion.button>
+              </div>
             </div>
           </motion.div>
         )}
@@ -657,6 +820,26 @@ const AdminDashboard = () => {
                   </div>
                   Appointment Management
                 </h3>
+                <div className="flex items-center space-x-2 text-sm text-primary-700">
+                  <span>Since</span>
+                  <input
+                    type="date"
+                    value={appointmentsFrom}
+                    max={today()}
+                    onChange={handleAppointmentsFromChange}
+                    disabled={appointmentsLoading}
+                    className="px-3 py-2 rounded-xl bg-white/50 border border-white/30 text-primary-800 focus:outline-none focus:ring-2 focus:ring-primary-300"
+                  />
+                  <motion.button
+                    whileHover={{ scale: 1.02 }}
+                    whileTap={{ scale: 0.98 }}
+                    onClick={handleWidenAppointments}
+                    disabled={appointmentsLoading}
+                    className="px-4 py-2 rounded-xl font-medium transition-all duration-300 shadow-sm border bg-white/50 text-primary-700 border-white/30 hover:bg-white/70 disabled:opacity-50"
+                  >
+                    {APPOINTMENT_WINDOW_MONTHS} more months
+                  </motion.button>
+                </div>
                 <div className="flex space-x-2">
                   <motion.button
                     whileHover={{ scale: 1.02 }}
@@ -5,6 +5,9 @@ import { appointmentAPI } from '../api/api';
 import AppointmentCard from '../components/AppointmentCard';
 import Navigation from '../components/Navigation';
 
+// Only what AppointmentCard shows
+const CARD_FIELDS = 'id,appointmentDate,appointmentTime,status,doctorName,doctorSpecialty,doctorAddress,doctorPhone';
+
 const Appointments = () => {
   const [appointments, setAppointments] = useState([]);
   const [loading, setLoading] = useState(true);
@@ -18,7 +21,7 @@ const Appointments = () => {
   const fetchAppointments = async () => {
     try {
       setLoading(true);
-      const response = await appointmentAPI.getUserAppointments();
+      const response = await appointmentAPI.getUserAppointments(CARD_FIELDS);
       setAppointments(response.data);
     } catch (err) {
       setError('Failed to fetch appointments');
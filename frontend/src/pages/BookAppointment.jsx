@@ -72,7 +72,19 @@ const BookAppointment = () => {
 
       console.log('Booking appointment with data:', requestData);
 
-      const response = await appointmentAPI.createAppointment(requestData);
+      let response = await appointmentAPI.createAppointment(requestData);
+      // 202: queued in the doctor's waiting room, poll the ticket until the booking ran
+      while (response.status === 202 || response.data?.status === 'WAITING' || response.data?.status === 'ADMITTED') {
+        const ticket = response.data;
+        setSuccess(ticket.status === 'WAITING'
+          ? `High demand for this doctor: you are number ${ticket.position} in line (about ${ticket.estimatedWaitSeconds}s)`
+          : 'Booking your appointment...');
+        await new Promise(resolve => setTimeout(resolve, 1000));
+        response = await appointmentAPI.getWaitingRoomTicket(ticket.token);
+      }
+      if (response.data?.status === 'FAILED') {
+        throw new Error(response.data.message || 'Failed to book appointment');
+      }
       console.log('Appointment booked successfully:', response.data);
 
       setSuccess('Appointment booked successfully!');
@@ -20,6 +20,9 @@ L.Icon.Default.mergeOptions({
   shadowUrl: markerShadow,
 });
 
+// Only what the markers and the sidebar show
+const MAP_FIELDS = 'id,name,specialty,address,phone,latitude,longitude';
+
 // Custom doctor marker icon
 const createDoctorIcon = (specialty) => {
   const color = getSpecialtyColor(specialty);
@@ -100,7 +103,7 @@ const MapView = () => {
   const fetchDoctors = async () => {
     try {
       setLoading(true);
-      const response = await doctorAPI.getAllDoctors();
+      const response = await doctorAPI.getAllDoctors(MAP_FIELDS);
       setDoctors(response.data);
     } catch (err) {
       setError('Failed to fetch doctors');
@@ -156,7 +159,7 @@ const MapView = () => {
 
   const fetchNearbyDoctors = async (lat, lng) => {
     try {
-      const response = await doctorAPI.getNearbyDoctors(lat, lng, 20);
+      const response = await doctorAPI.getNearbyDoctors(lat, lng, 20, MAP_FIELDS);
       setDoctors(response.data);
     } catch (err) {
       console.error('Error fetching nearby doctors:', err);
@@ -0,0 +1,19 @@
+package com.appointment.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/** An admin dashboard left open, polling the stats and the appointment listing. */
+public class AdminDashboardScenario implements Scenario {
+
+    @Override
+    public String name() {
+        return "admin";
+    }
+
+    @Override
+    public void iteration(Workload workload, ThreadLocalRandom random) {
+        ApiClient client = workload.client();
+        client.get(name(), "stats", "/api/admin/stats", workload.adminToken());
+        client.get(name(), "appointments", "/api/appointments/all", workload.adminToken());
+    }
+}
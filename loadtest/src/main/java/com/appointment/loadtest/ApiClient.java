@@ -0,0 +1,201 @@
+package com.appointment.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Thin JSON client for the backend API that records every call in {@link Metrics}.
+ * <p>
+ * A 409, or a 400 saying the slot is already booked, counts as a conflict rather than an error: losing
+ * a booking race is the expected outcome for most users of a contended slot. A 202 (queued in the
+ * waiting room) and a 503 (waiting room full) are recorded as outcomes of their own.
+ */
+public class ApiClient {
+
+    private final HttpClient http;
+    private final String baseUrl;
+    private final Duration timeout;
+    private final Duration ticketPoll;
+    private final Duration ticketTimeout;
+    private final Metrics metrics;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public ApiClient(String baseUrl, Duration timeout, Duration ticketPoll, Duration ticketTimeout, int maxConnections,
+                     Metrics metrics) {
+        // Sized for the virtual users; the JDK client keeps HTTP/1.1 connections alive per host
+        System.setProperty("jdk.httpclient.connectionPoolSize", String.valueOf(maxConnections));
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.ticketPoll = ticketPoll;
+        this.ticketTimeout = ticketTimeout;
+        this.metrics = metrics;
+    }
+
+    public Response get(String scenario, String request, String path, String token) {
+        return send(scenario, request, builder(path, token).GET());
+    }
+
+    public Response post(String scenario, String request, String path, Object body, String token) {
+        return send(scenario, request, builder(path, token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(toJson(body))));
+    }
+
+    public Response put(String scenario, String request, String path, String token) {
+        return send(scenario, request, builder(path, token).PUT(HttpRequest.BodyPublishers.noBody()));
+    }
+
+    /**
+     * Books an appointment. A booking queued in the waiting room (202) is followed at its {@code Location}
+     * until the ticket is BOOKED or FAILED, and then answered like a direct booking: 200 with the
+     * appointment, or the failure's status and message. The POST is recorded as {@code request}, each
+     * poll as {@code ticket} and the whole booking, queueing included, as {@code request-e2e}.
+     */
+    public Response book(String scenario, String request, Object body, String token) {
+        long started = System.nanoTime();
+        Response response = post(scenario, request, "/api/appointments", body, token);
+        if (response.status() == 202) {
+            response = awaitTicket(scenario, response, token);
+        }
+        if (scenario != null) {
+            metrics.record(scenario, request + "-e2e", System.nanoTime() - started, response.outcome());
+        }
+        return response;
+    }
+
+    private Response awaitTicket(String scenario, Response queued, String token) {
+        String location = queued.header("Location");
+        if (location == null) {
+            return new Response(0, "Queued without a ticket Location", null);
+        }
+        long deadline = System.nanoTime() + ticketTimeout.toNanos();
+        while (true) {
+            try {
+                Thread.sleep(ticketPoll.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new Response(0, "interrupted", null);
+            }
+            Response ticket = get(scenario, "ticket", location, token);
+            if (!ticket.isOk()) {
+                return ticket;
+            }
+            JsonNode status = ticket.json();
+            switch (status.path("status").asText()) {
+                case "BOOKED" -> {
+                    return new Response(200, status.path("appointment").toString(), null);
+                }
+                case "FAILED" -> {
+                    return new Response(status.path("httpStatus").asInt(400), status.path("message").asText(), null);
+                }
+                default -> {
+                }
+            }
+            if (System.nanoTime() >= deadline) {
+                return new Response(0, "Ticket still waiting after " + ticketTimeout.toMillis() + " ms", null);
+            }
+        }
+    }
+
+    private HttpRequest.Builder builder(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(timeout)
+                .header("Accept", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    // scenario null: setup traffic, not recorded
+    private Response send(String scenario, String request, HttpRequest.Builder builder) {
+        long started = System.nanoTime();
+        Response response;
+        try {
+            HttpResponse<String> httpResponse = http.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+            response = new Response(httpResponse.statusCode(), httpResponse.body(), httpResponse.headers());
+        } catch (IOException e) {
+            response = new Response(0, String.valueOf(e.getMessage()), null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response = new Response(0, "interrupted", null);
+        }
+        if (scenario != null) {
+            metrics.record(scenario, request, System.nanoTime() - started, response.outcome());
+        }
+        return response;
+    }
+
+    private String toJson(Object body) {
+        try {
+            return mapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize request body", e);
+        }
+    }
+
+    public final class Response {
+        private final int status;
+        private final String body;
+        private final HttpHeaders headers;
+
+        private Response(int status, String body, HttpHeaders headers) {
+            this.status = status;
+            this.body = body;
+            this.headers = headers;
+        }
+
+        public int status() {
+            return status;
+        }
+
+        public String body() {
+            return body;
+        }
+
+        public boolean isOk() {
+            return status >= 200 && status < 300;
+        }
+
+        public String header(String name) {
+            return headers == null ? null : headers.firstValue(name).orElse(null);
+        }
+
+        public JsonNode json() {
+            try {
+                return mapper.readTree(body);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Response is not JSON (HTTP " + status + "): " + body, e);
+            }
+        }
+
+        Metrics.Outcome outcome() {
+            if (status == 202) {
+                return Metrics.Outcome.QUEUED;
+            }
+            if (isOk()) {
+                return Metrics.Outcome.OK;
+            }
+            if (status == 503) {
+                return Metrics.Outcome.OVERLOADED;
+            }
+            if (status == 409 || (status == 400 && body != null && body.contains("already booked"))) {
+                return Metrics.Outcome.CONFLICT;
+            }
+            return Metrics.Outcome.ERROR;
+        }
+    }
+}
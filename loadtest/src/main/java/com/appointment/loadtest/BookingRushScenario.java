@@ -0,0 +1,24 @@
+package com.appointment.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Logged in users racing for the slots of a few popular doctors over the next {@code booking-days}
+ * days. Most attempts end in a conflict once the slots fill up, which is the point. {@code book-e2e}
+ * times each booking until it is done, including its wait in the waiting room.
+ */
+public class BookingRushScenario implements Scenario {
+
+    @Override
+    public String name() {
+        return "booking";
+    }
+
+    @Override
+    public void iteration(Workload workload, ThreadLocalRandom random) {
+        Workload.TestUser user = workload.randomUser(random);
+        workload.client().book(name(), "book",
+                workload.bookingRequest(workload.randomPopularDoctor(random), 1, workload.bookingDays(), random),
+                user.token());
+    }
+}
@@ -0,0 +1,23 @@
+package com.appointment.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/** Anonymous directory browsing: the doctor list, a nearby search around Bengaluru and one profile. */
+public class BrowseScenario implements Scenario {
+
+    @Override
+    public String name() {
+        return "browse";
+    }
+
+    @Override
+    public void iteration(Workload workload, ThreadLocalRandom random) {
+        ApiClient client = workload.client();
+        client.get(name(), "doctors", "/api/doctors", null);
+        double latitude = 12.85 + random.nextDouble() * 0.3;
+        double longitude = 77.45 + random.nextDouble() * 0.35;
+        client.get(name(), "nearby", String.format("/api/doctors/nearby?latitude=%.5f&longitude=%.5f&limit=10",
+                latitude, longitude), null);
+        client.get(name(), "doctor", "/api/doctors/" + workload.randomDoctor(random), null);
+    }
+}
@@ -0,0 +1,32 @@
+package com.appointment.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Books a slot with any doctor, beyond the days the booking rush competes for, checks the user's
+ * active appointments and cancels the booking again.
+ */
+public class CancellationScenario implements Scenario {
+
+    private static final int DAYS = 60;
+
+    @Override
+    public String name() {
+        return "cancel";
+    }
+
+    @Override
+    public void iteration(Workload workload, ThreadLocalRandom random) {
+        ApiClient client = workload.client();
+        Workload.TestUser user = workload.randomUser(random);
+        ApiClient.Response booked = client.book(name(), "book",
+                workload.bookingRequest(workload.randomDoctor(random), workload.bookingDays() + 1, DAYS, random),
+                user.token());
+        if (!booked.isOk()) {
+            return;
+        }
+        long appointmentId = booked.json().path("id").asLong();
+        client.get(name(), "active", "/api/appointments/active", user.token());
+        client.put(name(), "cancel", "/api/appointments/" + appointmentId + "/cancel", user.token());
+    }
+}
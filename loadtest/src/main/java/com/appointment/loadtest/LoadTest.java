@@ -0,0 +1,217 @@
+package com.appointment.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drives a running backend with a mix of production-like scenarios and reports throughput, latency
+ * percentiles and conflict/error rates per scenario and request.
+ * <p>
+ * Setup registers a pool of test users ({@code loadtest-N@loadtest.local}) and an admin, logs them in
+ * and reads the doctor ids; rerunning against the same database reuses them. Then every scenario runs
+ * its virtual users side by side:
+ * <ul>
+ *   <li>{@code login}: a burst of logins during the first {@code login-burst-seconds}</li>
+ *   <li>{@code browse}: doctor list, nearby search and a doctor profile, anonymous</li>
+ *   <li>{@code booking}: booking rush on the {@code popular-doctors} first doctors</li>
+ *   <li>{@code cancel}: book, list active appointments, cancel</li>
+ *   <li>{@code admin}: dashboard polling of stats and the appointment listing</li>
+ * </ul>
+ * Options ({@code --key=value}): {@code base-url}, {@code duration} (seconds), {@code scenarios}
+ * (comma separated), {@code users.<scenario>}, {@code think-ms.<scenario>}, {@code login-burst-seconds},
+ * {@code user-pool}, {@code popular-doctors}, {@code booking-days}, {@code timeout-ms},
+ * {@code ticket-poll-ms} and {@code ticket-timeout-ms} (following waiting room tickets), {@code report}
+ * (CSV file to write the results to).
+ */
+public class LoadTest {
+
+    private static final String PASSWORD = "loadtest-password";
+    private static final String ADMIN_EMAIL = "loadtest-admin@loadtest.local";
+    private static final int SETUP_THREADS = 16;
+
+    private static final Map<String, int[]> DEFAULT_USERS_AND_THINK_MS = new LinkedHashMap<>();
+
+    static {
+        DEFAULT_USERS_AND_THINK_MS.put("login", new int[] {50, 0});
+        DEFAULT_USERS_AND_THINK_MS.put("browse", new int[] {20, 500});
+        DEFAULT_USERS_AND_THINK_MS.put("booking", new int[] {30, 200});
+        DEFAULT_USERS_AND_THINK_MS.put("cancel", new int[] {5, 1000});
+        DEFAULT_USERS_AND_THINK_MS.put("admin", new int[] {2, 5000});
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = new LoadTestConfig(args);
+        List<Scenario> scenarios = selectScenarios(config);
+        int virtualUsers = 0;
+        for (Scenario scenario : scenarios) {
+            virtualUsers += config.getInt("users." + scenario.name(), DEFAULT_USERS_AND_THINK_MS.get(scenario.name())[0]);
+        }
+
+        Metrics metrics = new Metrics();
+        ApiClient client = new ApiClient(config.baseUrl(), Duration.ofMillis(config.getLong("timeout-ms", 10000)),
+                Duration.ofMillis(config.getLong("ticket-poll-ms", 100)),
+                Duration.ofMillis(config.getLong("ticket-timeout-ms", 60000)),
+                Math.max(virtualUsers, SETUP_THREADS), metrics);
+        Workload workload = setUp(client, config);
+
+        long durationMillis = config.getLong("duration", 60) * 1000;
+        long burstMillis = config.getLong("login-burst-seconds", 10) * 1000;
+        System.out.printf("Running %s against %s for %d s%n", names(scenarios), config.baseUrl(), durationMillis / 1000);
+
+        List<Thread> threads = new ArrayList<>();
+        long started = System.currentTimeMillis();
+        for (Scenario scenario : scenarios) {
+            int[] defaults = DEFAULT_USERS_AND_THINK_MS.get(scenario.name());
+            int users = config.getInt("users." + scenario.name(), defaults[0]);
+            long thinkMillis = config.getLong("think-ms." + scenario.name(), defaults[1]);
+            long deadline = started + ("login".equals(scenario.name()) ? Math.min(burstMillis, durationMillis) : durationMillis);
+            ScenarioRun run = new ScenarioRun(scenario, workload, metrics, users, started, deadline, thinkMillis);
+            for (int i = 0; i < users; i++) {
+                Thread thread = new Thread(run::virtualUser, scenario.name() + "-" + i);
+                thread.start();
+                threads.add(thread);
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        System.out.println();
+        metrics.print(System.out);
+        String report = config.get("report", null);
+        if (report != null) {
+            metrics.writeCsv(Path.of(report));
+            System.out.println("Report written to " + report);
+        }
+    }
+
+    private static List<Scenario> selectScenarios(LoadTestConfig config) {
+        Map<String, Scenario> available = new LinkedHashMap<>();
+        for (Scenario scenario : List.of(new LoginBurstScenario(), new BrowseScenario(), new BookingRushScenario(),
+                new CancellationScenario(), new AdminDashboardScenario())) {
+            available.put(scenario.name(), scenario);
+        }
+        List<Scenario> selected = new ArrayList<>();
+        for (String name : config.getSet("scenarios", String.join(",", available.keySet()))) {
+            Scenario scenario = available.get(name);
+            if (scenario == null) {
+                throw new IllegalArgumentException("Unknown scenario " + name + ", expected one of " + available.keySet());
+            }
+            selected.add(scenario);
+        }
+        return selected;
+    }
+
+    private static Workload setUp(ApiClient client, LoadTestConfig config) throws Exception {
+        ApiClient.Response doctors = client.get(null, null, "/api/doctors", null);
+        if (!doctors.isOk()) {
+            throw new IllegalStateException("Cannot list doctors at " + config.baseUrl() + " (HTTP " + doctors.status()
+                    + "), is the backend running?");
+        }
+        List<Long> doctorIds = new ArrayList<>();
+        for (JsonNode doctor : doctors.json()) {
+            doctorIds.add(doctor.path("id").asLong());
+        }
+        if (doctorIds.isEmpty()) {
+            throw new IllegalStateException("No doctors in the database");
+        }
+        Collections.sort(doctorIds);
+        List<Long> popular = doctorIds.subList(0, Math.min(config.getInt("popular-doctors", 3), doctorIds.size()));
+
+        int poolSize = config.getInt("user-pool", 200);
+        System.out.printf("Preparing %d test users and %d doctors%n", poolSize, doctorIds.size());
+        ExecutorService setup = Executors.newFixedThreadPool(SETUP_THREADS);
+        List<Future<Workload.TestUser>> pending = new ArrayList<>();
+        for (int i = 0; i < poolSize; i++) {
+            String email = "loadtest-" + i + "@loadtest.local";
+            pending.add(setup.submit(() -> prepareUser(client, email, "USER")));
+        }
+        Future<Workload.TestUser> admin = setup.submit(() -> prepareUser(client, ADMIN_EMAIL, "ADMIN"));
+        List<Workload.TestUser> users = new ArrayList<>();
+        for (Future<Workload.TestUser> user : pending) {
+            users.add(user.get());
+        }
+        String adminToken = admin.get().token();
+        setup.shutdown();
+
+        return new Workload(client, users, adminToken, doctorIds, popular, config.getInt("booking-days", 14));
+    }
+
+    // Registration fails harmlessly when the user is left over from an earlier run
+    private static Workload.TestUser prepareUser(ApiClient client, String email, String role) {
+        Map<String, Object> registration = new LinkedHashMap<>();
+        registration.put("firstName", "Load");
+        registration.put("lastName", "Test");
+        registration.put("email", email);
+        registration.put("password", PASSWORD);
+        registration.put("role", role);
+        client.post(null, null, "/api/auth/register", registration, null);
+        ApiClient.Response login = client.post(null, null, "/api/auth/login",
+                Map.of("email", email, "password", PASSWORD), null);
+        if (!login.isOk()) {
+            throw new IllegalStateException("Cannot log in " + email + ": HTTP " + login.status() + " " + login.body());
+        }
+        return new Workload.TestUser(email, PASSWORD, login.json().path("token").asText());
+    }
+
+    private static String names(List<Scenario> scenarios) {
+        List<String> names = new ArrayList<>();
+        scenarios.forEach(scenario -> names.add(scenario.name()));
+        return String.join(", ", names);
+    }
+
+    private static final class ScenarioRun {
+        private final Scenario scenario;
+        private final Workload workload;
+        private final Metrics metrics;
+        private final long started;
+        private final long deadline;
+        private final long thinkMillis;
+        private int running;
+
+        private ScenarioRun(Scenario scenario, Workload workload, Metrics metrics, int users, long started,
+                            long deadline, long thinkMillis) {
+            this.scenario = scenario;
+            this.workload = workload;
+            this.metrics = metrics;
+            this.started = started;
+            this.deadline = deadline;
+            this.thinkMillis = thinkMillis;
+            this.running = users;
+        }
+
+        private void virtualUser() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            try {
+                while (System.currentTimeMillis() < deadline) {
+                    scenario.iteration(workload, random);
+                    if (thinkMillis > 0) {
+                        // +-50%, so virtual users do not march in lockstep
+                        Thread.sleep(thinkMillis / 2 + random.nextLong(thinkMillis + 1));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                System.err.println(scenario.name() + " virtual user stopped: " + e);
+            } finally {
+                synchronized (this) {
+                    if (--running == 0) {
+                        metrics.scenarioWindow(scenario.name(), started, System.currentTimeMillis());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.appointment.loadtest;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/** Many users logging in at once, e.g. when the morning booking window opens. */
+public class LoginBurstScenario implements Scenario {
+
+    @Override
+    public String name() {
+        return "login";
+    }
+
+    @Override
+    public void iteration(Workload workload, ThreadLocalRandom random) {
+        Workload.TestUser user = workload.randomUser(random);
+        workload.client().post(name(), "login", "/api/auth/login",
+                Map.of("email", user.email(), "password", user.password()), null);
+    }
+}
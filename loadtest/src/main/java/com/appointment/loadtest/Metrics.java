@@ -0,0 +1,103 @@
+package com.appointment.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and outcome counts per scenario and request.
+ */
+public class Metrics {
+
+    public enum Outcome {
+        OK, QUEUED, CONFLICT, OVERLOADED, ERROR
+    }
+
+    private final Map<String, RequestStats> stats = new ConcurrentSkipListMap<>();
+    private final Map<String, long[]> scenarioWindows = new ConcurrentHashMap<>();
+
+    public void record(String scenario, String request, long latencyNanos, Outcome outcome) {
+        RequestStats requestStats = stats.computeIfAbsent(scenario + "\t" + request, key -> new RequestStats());
+        requestStats.latency.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        switch (outcome) {
+            case OK -> requestStats.ok.increment();
+            case QUEUED -> requestStats.queued.increment();
+            case CONFLICT -> requestStats.conflicts.increment();
+            case OVERLOADED -> requestStats.overloaded.increment();
+            case ERROR -> requestStats.errors.increment();
+        }
+    }
+
+    /** Records when the virtual users of {@code scenario} started and stopped, for throughput. */
+    public void scenarioWindow(String scenario, long startedMillis, long endedMillis) {
+        scenarioWindows.put(scenario, new long[] {startedMillis, endedMillis});
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%-10s %-14s %8s %9s %9s %9s %9s %9s %8s %8s %8s %8s%n",
+                "scenario", "request", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "queued", "conflict",
+                "503", "error");
+        for (Map.Entry<String, RequestStats> entry : stats.entrySet()) {
+            String[] key = entry.getKey().split("\t");
+            RequestStats s = entry.getValue();
+            Histogram h = s.latency.copy();
+            long count = h.getTotalCount();
+            out.printf("%-10s %-14s %8d %9.1f %9.1f %9.1f %9.1f %9.1f %7.2f%% %7.2f%% %7.2f%% %7.2f%%%n",
+                    key[0], key[1], count, count / seconds(key[0]),
+                    millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(90)),
+                    millis(h.getValueAtPercentile(99)), millis(h.getMaxValue()),
+                    percent(s.queued.sum(), count), percent(s.conflicts.sum(), count),
+                    percent(s.overloaded.sum(), count), percent(s.errors.sum(), count));
+        }
+    }
+
+    public void writeCsv(Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+            out.println("scenario,request,count,throughput_rps,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,ok,queued,conflicts,overloaded,errors");
+            for (Map.Entry<String, RequestStats> entry : stats.entrySet()) {
+                String[] key = entry.getKey().split("\t");
+                RequestStats s = entry.getValue();
+                Histogram h = s.latency.copy();
+                out.printf("%s,%s,%d,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%d,%d,%d,%d,%d%n",
+                        key[0], key[1], h.getTotalCount(), h.getTotalCount() / seconds(key[0]),
+                        millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(90)),
+                        millis(h.getValueAtPercentile(99)), millis(h.getValueAtPercentile(99.9)),
+                        millis(h.getMaxValue()), s.ok.sum(), s.queued.sum(), s.conflicts.sum(), s.overloaded.sum(),
+                        s.errors.sum());
+            }
+        }
+    }
+
+    private double seconds(String scenario) {
+        long[] window = scenarioWindows.get(scenario);
+        return window == null ? Double.NaN : Math.max(window[1] - window[0], 1) / 1000.0;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0 : 100.0 * part / total;
+    }
+
+    private static final class RequestStats {
+        // Microseconds; auto-resizing, so slow outliers are not clipped
+        private final ConcurrentHistogram latency = new ConcurrentHistogram(3);
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder queued = new LongAdder();
+        private final LongAdder conflicts = new LongAdder();
+        private final LongAdder overloaded = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+}
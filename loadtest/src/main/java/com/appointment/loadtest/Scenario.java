@@ -0,0 +1,14 @@
+package com.appointment.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One kind of user behaviour. Every virtual user of the scenario calls {@link #iteration} in a loop,
+ * pausing for the scenario's think time in between.
+ */
+public interface Scenario {
+
+    String name();
+
+    void iteration(Workload workload, ThreadLocalRandom random);
+}
@@ -0,0 +1,94 @@
+package com.appointment.loadtest;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * State shared by the scenarios: the API client and what setup prepared (logged in test users, doctor ids).
+ */
+public class Workload {
+
+    // Half hour slots 09:00 - 18:30, TIME_SLOTS in the frontend
+    private static final int FIRST_SLOT_MINUTE = 9 * 60;
+    private static final int SLOTS_PER_DAY = 20;
+
+    private final ApiClient client;
+    private final List<TestUser> users;
+    private final String adminToken;
+    private final List<Long> doctorIds;
+    private final List<Long> popularDoctorIds;
+    private final int bookingDays;
+
+    public Workload(ApiClient client, List<TestUser> users, String adminToken, List<Long> doctorIds,
+                    List<Long> popularDoctorIds, int bookingDays) {
+        this.client = client;
+        this.users = users;
+        this.adminToken = adminToken;
+        this.doctorIds = doctorIds;
+        this.popularDoctorIds = popularDoctorIds;
+        this.bookingDays = bookingDays;
+    }
+
+    public ApiClient client() {
+        return client;
+    }
+
+    public TestUser randomUser(ThreadLocalRandom random) {
+        return users.get(random.nextInt(users.size()));
+    }
+
+    public String adminToken() {
+        return adminToken;
+    }
+
+    public long randomDoctor(ThreadLocalRandom random) {
+        return doctorIds.get(random.nextInt(doctorIds.size()));
+    }
+
+    public long randomPopularDoctor(ThreadLocalRandom random) {
+        return popularDoctorIds.get(random.nextInt(popularDoctorIds.size()));
+    }
+
+    /** Booking request for a random slot between {@code firstDay} and {@code firstDay + days - 1} days ahead. */
+    public Map<String, Object> bookingRequest(long doctorId, int firstDay, int days, ThreadLocalRandom random) {
+        LocalDate date = LocalDate.now().plusDays(firstDay + random.nextInt(days));
+        LocalTime time = LocalTime.MIDNIGHT.plusMinutes(FIRST_SLOT_MINUTE + 30L * random.nextInt(SLOTS_PER_DAY));
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("doctorId", doctorId);
+        request.put("appointmentDate", date.toString());
+        request.put("appointmentTime", time.toString());
+        return request;
+    }
+
+    public int bookingDays() {
+        return bookingDays;
+    }
+
+    public static final class TestUser {
+        private final String email;
+        private final String password;
+        private final String token;
+
+        public TestUser(String email, String password, String token) {
+            this.email = email;
+            this.password = password;
+            this.token = token;
+        }
+
+        public String email() {
+            return email;
+        }
+
+        public String password() {
+            return password;
+        }
+
+        public String token() {
+            return token;
+        }
+    }
+}